@@ -14,6 +14,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 import uk.ac.ucl.comp0010.annotation.LoginRequired;
+import uk.ac.ucl.comp0010.cache.AccountCache;
+import uk.ac.ucl.comp0010.context.LoginContextHolder;
 import uk.ac.ucl.comp0010.enums.AccountType;
 import uk.ac.ucl.comp0010.enums.JwtType;
 import uk.ac.ucl.comp0010.exception.NoAccessException;
@@ -37,8 +39,6 @@ import uk.ac.ucl.comp0010.utils.JwtUtils;
 @Component
 public class LoginAspect {
 
-  public static final ThreadLocal<LoginEntity> threadLocal = new ThreadLocal<>();
-
   @Resource
   private StudentService studentService;
 
@@ -48,6 +48,9 @@ public class LoginAspect {
   @Resource
   private AdminService adminService;
 
+  @Resource
+  private AccountCache accountCache;
+
 
   @Pointcut("@annotation(uk.ac.ucl.comp0010.annotation.LoginRequired)")
   public void loginRequired() {
@@ -88,30 +91,34 @@ public class LoginAspect {
     if (!requiredRoles.contains(payload.getAccountType())) {
       throw new NoAccessException("No access To the Resources");
     }
-    if (payload.getAccountType() == AccountType.student) {
-      if (studentService.getById(payload.getAccountId()) == null) {
-        throw new UnauthorizedException("No such student");
-      }
-    } else if (payload.getAccountType() == AccountType.staff) {
-      if (staffService.getById(payload.getAccountId()) == null) {
-        throw new UnauthorizedException("No such staff");
-      }
-    } else if (payload.getAccountType() == AccountType.admin) {
-      if (adminService.getById(payload.getAccountId()) == null) {
-        throw new UnauthorizedException("No such admin");
-      }
+    // Check the account still exists, the database is only asked on a cache miss
+    if (!accountCache.exists(payload.getAccountType(), payload.getAccountId(),
+        this::accountExists)) {
+      throw new UnauthorizedException("No such " + payload.getAccountType());
     }
     // Setting Attributes
     LoginEntity loginEntity = new LoginEntity();
     loginEntity.setId(payload.getAccountId());
     loginEntity.setAccountType(payload.getAccountType()); // set accountType
-    threadLocal.set(loginEntity);
+    LoginContextHolder.set(loginEntity);
+    // Kept in the request too, for the Callable of an async request running after the clear
+    if (attributes != null) {
+      attributes.getRequest().setAttribute(LoginContextHolder.REQUEST_ATTRIBUTE, loginEntity);
+    }
     return joinPoint.proceed();
   }
 
+  private boolean accountExists(AccountType accountType, Integer accountId) {
+    return switch (accountType) {
+      case student -> studentService.getById(accountId) != null;
+      case staff -> staffService.getById(accountId) != null;
+      case admin -> adminService.getById(accountId) != null;
+    };
+  }
+
   @After("loginRequired()")
   public void afterLoginRequiredMethods() {
-    threadLocal.remove();
+    LoginContextHolder.clear();
   }
 }
 
@@ -0,0 +1,77 @@
+package uk.ac.ucl.comp0010.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiPredicate;
+import org.springframework.stereotype.Component;
+import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.utils.TransactionUtils;
+
+/**
+ * Accounts known to exist, checked on every authenticated request.
+ *
+ * <p>
+ * Only existing accounts are cached, so adding or importing accounts needs no invalidation.
+ * Deleting an account evicts it at once and again when the deletion ends. Entries also expire
+ * after a while in case an account is removed outside of the services.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+
+@Component
+public class AccountCache {
+
+  private static final Duration ACCOUNT_TTL = Duration.ofMinutes(30);
+
+  private final Cache<String, Boolean> liveAccounts = Caffeine.newBuilder()
+      .maximumSize(100_000)
+      .expireAfterWrite(ACCOUNT_TTL)
+      .build();
+
+  /**
+   * Check if an account exists, asking the database only when it isn't cached.
+   *
+   * @param accountType type of the account
+   * @param accountId   id of the account
+   * @param loader      checks the database for the account
+   * @return True if the account exists
+   */
+
+  public boolean exists(AccountType accountType, Integer accountId,
+      BiPredicate<AccountType, Integer> loader) {
+    String key = key(accountType, accountId);
+    if (liveAccounts.getIfPresent(key) != null) {
+      return true;
+    }
+    if (!loader.test(accountType, accountId)) {
+      return false;
+    }
+    liveAccounts.put(key, Boolean.TRUE);
+    return true;
+  }
+
+  /**
+   * Forget accounts now and again once the current transaction ends.
+   *
+   * @param accountType type of the accounts
+   * @param accountIds  ids of deleted accounts
+   */
+
+  public void evict(AccountType accountType, Collection<Integer> accountIds) {
+    List<String> keys = accountIds.stream().map(id -> key(accountType, id)).toList();
+    // Evict now and when the transaction ends, so a request racing the deletion can't keep the
+    // account cached
+    liveAccounts.invalidateAll(keys);
+    TransactionUtils.afterCompletion(() -> liveAccounts.invalidateAll(keys));
+  }
+
+  private static String key(AccountType accountType, Integer accountId) {
+    return accountType + ":" + accountId;
+  }
+
+}
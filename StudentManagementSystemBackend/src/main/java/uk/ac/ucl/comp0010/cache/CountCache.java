@@ -0,0 +1,79 @@
+package uk.ac.ucl.comp0010.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import uk.ac.ucl.comp0010.enums.CountMode;
+
+/**
+ * Totals of paginated listings.
+ *
+ * <p>
+ * Counts are cached for a short time per listing and filter, so paging through the same listing
+ * only counts once. Cached totals may lag behind recent writes.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+
+@Component
+public class CountCache {
+
+  private static final Duration COUNT_TTL = Duration.ofSeconds(30);
+
+  private final Cache<String, Long> counts = Caffeine.newBuilder()
+      .maximumSize(1000)
+      .expireAfterWrite(COUNT_TTL)
+      .build();
+
+  /**
+   * Create the page of a listing, computing its total as requested.
+   *
+   * @param current   current page
+   * @param size      page size
+   * @param countMode how the total is computed
+   * @param listName  name of the listing the count is cached under
+   * @param countId   statement counting the listing, run by the pagination interceptor
+   * @param wrapper   query of the listing
+   * @param counter   runs the count statement directly
+   * @param estimator estimates the number of rows of the listed table, null when the database
+   *                  has no estimate, in which case the cached count is used
+   * @return page to pass to the mapper
+   */
+
+  public <T> Page<T> page(long current, long size, CountMode countMode, String listName,
+      String countId, QueryWrapper<T> wrapper, Supplier<Long> counter,
+      Supplier<Long> estimator) {
+    if (countMode == CountMode.exact) {
+      Page<T> page = new Page<>(current, size);
+      page.setCountId(countId);
+      return page;
+    }
+    Page<T> page = new Page<>(current, size, false);
+    if (countMode == CountMode.none) {
+      return page;
+    }
+    // Table statistics can't account for filters, so filtered estimates use the cache
+    if (countMode == CountMode.estimate && !wrapper.nonEmptyOfNormal()) {
+      Long estimate = estimator.get();
+      if (estimate != null) {
+        page.setTotal(estimate);
+        return page;
+      }
+      // No table statistics on this database
+    }
+    page.setTotal(counts.get(key(listName, wrapper), key -> counter.get()));
+    return page;
+  }
+
+  private static String key(String listName, QueryWrapper<?> wrapper) {
+    return listName + ":" + wrapper.getExpression().getNormal().getSqlSegment() + ":"
+        + wrapper.getParamNameValuePairs();
+  }
+
+}
@@ -0,0 +1,81 @@
+package uk.ac.ucl.comp0010.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import uk.ac.ucl.comp0010.utils.TransactionUtils;
+
+/**
+ * Read-through cache of entities by primary key.
+ *
+ * <p>
+ * Caffeine bounds the cache and picks what to keep by how often entries are used, so a burst of
+ * one-off lookups can't push out the rows every request needs. Missing rows are not cached, so
+ * inserts need no invalidation. Callers get a copy of the cached entity and may change it freely.
+ * Evictions run again when the transaction ends, committed or rolled back, so a row read while
+ * the write was in progress is not kept. Hits, misses and evictions are published as cache
+ * metrics under the name of the cache.
+ * </p>
+ *
+ * @param <K> type of the primary key
+ * @param <V> type of the entity
+ * @author Jack Pan
+ * @since 2024-12-13
+ */
+
+public abstract class EntityCache<K, V> {
+
+  private final Cache<K, V> entities;
+
+  protected EntityCache(String name, long maximumSize, Duration ttl,
+      MeterRegistry meterRegistry) {
+    entities = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, entities, name);
+  }
+
+  /**
+   * Get an entity, loading it when it isn't cached.
+   *
+   * @param key    primary key
+   * @param loader loads the entity, returning null when it doesn't exist
+   * @return copy of the entity, or null when it doesn't exist
+   */
+
+  public V get(K key, Function<K, V> loader) {
+    V entity = entities.get(key, loader);
+    return entity == null ? null : copy(entity);
+  }
+
+  /**
+   * Forget entities that were edited or deleted.
+   *
+   * @param keys primary keys of the entities
+   */
+
+  public void evict(Collection<K> keys) {
+    List<K> evicted = List.copyOf(keys);
+    entities.invalidateAll(evicted);
+    TransactionUtils.afterCompletion(() -> entities.invalidateAll(evicted));
+  }
+
+  /**
+   * Forget every entity, for writes that cascade to rows of unknown keys.
+   */
+
+  public void evictAll() {
+    entities.invalidateAll();
+    TransactionUtils.afterCompletion(entities::invalidateAll);
+  }
+
+  protected abstract V copy(V entity);
+
+}
@@ -0,0 +1,71 @@
+package uk.ac.ucl.comp0010.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.stereotype.Component;
+import uk.ac.ucl.comp0010.utils.TransactionUtils;
+import uk.ac.ucl.comp0010.vo.GradeSummaryVo;
+
+/**
+ * Grade summaries of students.
+ *
+ * <p>
+ * A summary is computed on the first request and kept until a registration of the student
+ * changes. Editing or deleting modules, records or staff can change the credits or exam dates of
+ * many students at once, so those writes drop every summary. Evictions run again when the
+ * transaction ends, committed or rolled back, so a summary read while the write was in progress
+ * is not kept.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-13
+ */
+
+@Component
+public class GradeSummaryCache {
+
+  private static final Duration SUMMARY_TTL = Duration.ofHours(1);
+
+  private final Cache<Integer, GradeSummaryVo> summaries = Caffeine.newBuilder()
+      .maximumSize(10_000)
+      .expireAfterWrite(SUMMARY_TTL)
+      .build();
+
+  /**
+   * Get the grade summary of a student, computing it when it isn't cached.
+   *
+   * @param studentId id of the student
+   * @param loader    computes the summary
+   * @return grade summary
+   */
+
+  public GradeSummaryVo get(Integer studentId, Function<Integer, GradeSummaryVo> loader) {
+    return summaries.get(studentId, loader);
+  }
+
+  /**
+   * Forget the summaries of students whose registrations changed.
+   *
+   * @param studentIds ids of the students
+   */
+
+  public void evict(Collection<Integer> studentIds) {
+    List<Integer> keys = List.copyOf(studentIds);
+    summaries.invalidateAll(keys);
+    TransactionUtils.afterCompletion(() -> summaries.invalidateAll(keys));
+  }
+
+  /**
+   * Forget every summary.
+   */
+
+  public void evictAll() {
+    summaries.invalidateAll();
+    TransactionUtils.afterCompletion(summaries::invalidateAll);
+  }
+
+}
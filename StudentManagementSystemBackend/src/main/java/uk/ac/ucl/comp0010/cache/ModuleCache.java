@@ -0,0 +1,30 @@
+package uk.ac.ucl.comp0010.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Component;
+import uk.ac.ucl.comp0010.entity.Module;
+
+/**
+ * Modules by code, read by every record and registration write.
+ *
+ * @author Jack Pan
+ * @since 2024-12-13
+ */
+
+@Component
+public class ModuleCache extends EntityCache<String, Module> {
+
+  public ModuleCache(MeterRegistry meterRegistry) {
+    super("module", 10_000, Duration.ofHours(1), meterRegistry);
+  }
+
+  @Override
+  protected Module copy(Module module) {
+    Module copy = new Module();
+    BeanUtils.copyProperties(module, copy);
+    return copy;
+  }
+
+}
@@ -0,0 +1,30 @@
+package uk.ac.ucl.comp0010.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Component;
+import uk.ac.ucl.comp0010.entity.Record;
+
+/**
+ * Records by id, read by every registration write.
+ *
+ * @author Jack Pan
+ * @since 2024-12-13
+ */
+
+@Component
+public class RecordCache extends EntityCache<Long, Record> {
+
+  public RecordCache(MeterRegistry meterRegistry) {
+    super("record", 50_000, Duration.ofHours(1), meterRegistry);
+  }
+
+  @Override
+  protected Record copy(Record record) {
+    Record copy = new Record();
+    BeanUtils.copyProperties(record, copy);
+    return copy;
+  }
+
+}
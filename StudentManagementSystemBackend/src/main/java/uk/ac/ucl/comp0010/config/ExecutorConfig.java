@@ -0,0 +1,149 @@
+package uk.ac.ucl.comp0010.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import uk.ac.ucl.comp0010.context.LoginContextCallableInterceptor;
+import uk.ac.ucl.comp0010.context.LoginContextTaskDecorator;
+
+/**
+ * Configuration for background executors.
+ *
+ * <p>
+ * The bcrypt executors stay on platform threads sized to the cores whatever the threading mode,
+ * since hashing is CPU bound and gains nothing from virtual threads. Every executor carries the
+ * logged in account over to its tasks.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-10
+ */
+
+@Configuration
+public class ExecutorConfig implements WebMvcConfigurer {
+
+  @Resource
+  private Environment environment;
+
+  @Resource
+  private LoginContextTaskDecorator loginContextTaskDecorator;
+
+  @Resource
+  private LoginContextCallableInterceptor loginContextCallableInterceptor;
+
+  /**
+   * Executor hashing passwords during bulk imports.
+   *
+   * <p>
+   * Bcrypt is CPU bound, so the pool is sized to the available cores. When the queue is full the
+   * submitting thread hashes the password itself instead of failing the import.
+   * </p>
+   */
+
+  @Bean(destroyMethod = "shutdown")
+  public ThreadPoolTaskExecutor passwordHashExecutor() {
+    int cores = Runtime.getRuntime().availableProcessors();
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(cores);
+    executor.setMaxPoolSize(cores);
+    executor.setQueueCapacity(cores * 64);
+    executor.setThreadNamePrefix("password-hash-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.setTaskDecorator(loginContextTaskDecorator);
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Executor checking passwords on login.
+   *
+   * <p>
+   * Keeps bcrypt off the request threads, so a login storm uses at most one thread per core and
+   * the rest of the API keeps responding. Logins beyond the queue are rejected at once and
+   * counted in login.rejected. Queue depth is published with the other executor metrics.
+   * </p>
+   */
+
+  @Bean(destroyMethod = "shutdown")
+  public ThreadPoolTaskExecutor loginExecutor(MeterRegistry meterRegistry) {
+    int cores = Runtime.getRuntime().availableProcessors();
+    Counter rejected = Counter.builder("login.rejected")
+        .description("Logins rejected because the login executor was full")
+        .register(meterRegistry);
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(cores);
+    executor.setMaxPoolSize(cores);
+    executor.setQueueCapacity(cores * 16);
+    executor.setThreadNamePrefix("login-");
+    executor.setRejectedExecutionHandler((runnable, threadPoolExecutor) -> {
+      rejected.increment();
+      throw new RejectedExecutionException("Login executor is full");
+    });
+    executor.setTaskDecorator(loginContextTaskDecorator);
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Executor running background csv imports.
+   *
+   * <p>
+   * Imports hold a database transaction for their whole run, so only a few run at once and new
+   * jobs are rejected once the queue is full. With spring.threads.virtual.enabled on Java 21 or
+   * later the jobs run on virtual threads, which leave their carrier while waiting on the
+   * database. The pool still bounds how many run at once.
+   * </p>
+   */
+
+  @Bean(destroyMethod = "shutdown")
+  public ThreadPoolTaskExecutor importJobExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(2);
+    executor.setMaxPoolSize(2);
+    executor.setQueueCapacity(50);
+    executor.setThreadNamePrefix("import-job-");
+    if (Threading.VIRTUAL.isActive(environment)) {
+      executor.setThreadFactory(
+          new VirtualThreadTaskExecutor("import-job-").getVirtualThreadFactory());
+    }
+    executor.setTaskDecorator(loginContextTaskDecorator);
+    executor.initialize();
+    return executor;
+  }
+
+  /**
+   * Executor running async request handlers, such as controllers returning a Callable.
+   *
+   * <p>
+   * Starts a thread per request, virtual when spring.threads.virtual.enabled is active, with at
+   * most a few hundred running at once. The Callable is submitted after the account was cleared,
+   * so it gets its account from LoginContextCallableInterceptor.
+   * </p>
+   */
+
+  @Bean
+  public SimpleAsyncTaskExecutor mvcAsyncExecutor() {
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("mvc-async-");
+    executor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+    executor.setConcurrencyLimit(256);
+    executor.setTaskDecorator(loginContextTaskDecorator);
+    return executor;
+  }
+
+  @Override
+  public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+    configurer.setTaskExecutor(mvcAsyncExecutor());
+    configurer.registerCallableInterceptors(loginContextCallableInterceptor);
+  }
+}
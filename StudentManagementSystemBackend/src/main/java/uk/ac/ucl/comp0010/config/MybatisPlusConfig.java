@@ -2,7 +2,11 @@ package uk.ac.ucl.comp0010.config;
 
 import com.baomidou.mybatisplus.annotation.DbType;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.OptimisticLockerInnerInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import java.util.Properties;
+import org.apache.ibatis.mapping.DatabaseIdProvider;
+import org.apache.ibatis.mapping.VendorDatabaseIdProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -26,8 +30,33 @@ public class MybatisPlusConfig {
   @Bean
   public MybatisPlusInterceptor mybatisPlusInterceptor() {
     MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+    // Checks and increases the @Version column of updated entities
+    interceptor.addInnerInterceptor(new OptimisticLockerInnerInterceptor());
     interceptor.addInnerInterceptor(new PaginationInnerInterceptor(DbType.MYSQL));
     return interceptor;
   }
+
+  /**
+   * Database id of the connected database.
+   * <p>
+   * Lets mappers give a statement per database, with databaseId h2 or mysql. Statements without
+   * a databaseId are used on any other database.
+   * </p>
+   * <p>
+   * Selects read with a result handler have a mysql variant with a fetch size of
+   * Integer.MIN_VALUE. Connector/J reads the whole result into memory for any other fetch size,
+   * unless useCursorFetch is on, and only streams it row by row for that one.
+   * </p>
+   */
+
+  @Bean
+  public DatabaseIdProvider databaseIdProvider() {
+    Properties properties = new Properties();
+    properties.setProperty("H2", "h2");
+    properties.setProperty("MySQL", "mysql");
+    VendorDatabaseIdProvider databaseIdProvider = new VendorDatabaseIdProvider();
+    databaseIdProvider.setProperties(properties);
+    return databaseIdProvider;
+  }
 }
 
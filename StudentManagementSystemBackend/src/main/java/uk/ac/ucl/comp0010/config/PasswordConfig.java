@@ -0,0 +1,37 @@
+package uk.ac.ucl.comp0010.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.utils.BcryptPasswordHasher;
+import uk.ac.ucl.comp0010.utils.PasswordHasher;
+
+/**
+ * Configuration for password hashing.
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+
+@Configuration
+@EnableConfigurationProperties(PasswordProperties.class)
+public class PasswordConfig {
+
+  /**
+   * Algorithm hashing passwords, checking the configured costs are in its range.
+   */
+
+  @Bean
+  public PasswordHasher passwordHasher(PasswordProperties passwordProperties) {
+    for (AccountType accountType : AccountType.values()) {
+      int cost = passwordProperties.getCost(accountType);
+      if (cost < BcryptPasswordHasher.MIN_COST || cost > BcryptPasswordHasher.MAX_COST) {
+        throw new IllegalStateException("password.cost." + accountType + " must be between "
+            + BcryptPasswordHasher.MIN_COST + " and " + BcryptPasswordHasher.MAX_COST);
+      }
+    }
+    return new BcryptPasswordHasher();
+  }
+
+}
@@ -0,0 +1,34 @@
+package uk.ac.ucl.comp0010.config;
+
+import java.util.EnumMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import uk.ac.ucl.comp0010.enums.AccountType;
+
+/**
+ * Password hashing settings, under the password prefix.
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+
+@Data
+@ConfigurationProperties(prefix = "password")
+public class PasswordProperties {
+
+  /**
+   * Cost used for new hashes, bcrypt's default of 10 when not set.
+   */
+  public static final int DEFAULT_COST = 10;
+
+  /**
+   * Hashing cost per account type. Hashes with another cost are redone on the next login.
+   */
+  private Map<AccountType, Integer> cost = new EnumMap<>(AccountType.class);
+
+  public int getCost(AccountType accountType) {
+    return cost.getOrDefault(accountType, DEFAULT_COST);
+  }
+
+}
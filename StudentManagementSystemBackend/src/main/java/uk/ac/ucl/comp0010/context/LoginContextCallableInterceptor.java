@@ -0,0 +1,41 @@
+package uk.ac.ucl.comp0010.context;
+
+import java.util.concurrent.Callable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import uk.ac.ucl.comp0010.model.LoginEntity;
+
+/**
+ * Sets the logged in account around the Callable returned by an async request handler.
+ *
+ * <p>
+ * LoginAspect clears the account as soon as the handler returns, before Spring submits the
+ * Callable, so the task decorator of the async request executor has nothing to carry over. The
+ * account is read from the request instead, where LoginAspect also keeps it.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-14
+ */
+
+@Component
+public class LoginContextCallableInterceptor implements CallableProcessingInterceptor {
+
+  @Override
+  public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+    LoginEntity loginEntity = (LoginEntity) request.getAttribute(
+        LoginContextHolder.REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    if (loginEntity != null) {
+      LoginContextHolder.set(loginEntity);
+    }
+  }
+
+  @Override
+  public <T> void postProcess(NativeWebRequest request, Callable<T> task,
+      Object concurrentResult) {
+    LoginContextHolder.clear();
+  }
+
+}
@@ -0,0 +1,136 @@
+package uk.ac.ucl.comp0010.context;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+import uk.ac.ucl.comp0010.model.LoginEntity;
+
+/**
+ * Holds the account logged in for the work running on the current thread.
+ *
+ * <p>
+ * LoginAspect sets the account for a request and clears it once the request is handled. Work
+ * handed to an executor or a CompletableFuture is wrapped, so it runs with the account of the
+ * thread which submitted it, on pooled and virtual threads alike. Wrapped work puts back whatever
+ * the running thread held before, so it is also safe when a pool runs it on the submitting
+ * thread.
+ * </p>
+ *
+ * <p>
+ * The Callable of an async request is only submitted after the handler returned and the account
+ * was cleared. LoginAspect therefore also keeps the account in the request, and
+ * LoginContextCallableInterceptor sets it from there while the Callable runs.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-14
+ */
+
+public class LoginContextHolder {
+
+  /**
+   * Request attribute holding the account logged in for the request.
+   */
+  public static final String REQUEST_ATTRIBUTE = LoginContextHolder.class.getName() + ".LOGIN";
+
+  private static final ThreadLocal<LoginEntity> CONTEXT = new ThreadLocal<>();
+
+  /**
+   * Get the account logged in for the current work.
+   *
+   * @return logged in account, or null outside of a login required request
+   */
+
+  public static LoginEntity get() {
+    return CONTEXT.get();
+  }
+
+  /**
+   * Set the account logged in for the current work.
+   *
+   * @param loginEntity logged in account
+   */
+
+  public static void set(LoginEntity loginEntity) {
+    CONTEXT.set(loginEntity);
+  }
+
+  /**
+   * Forget the account of the current work.
+   */
+
+  public static void clear() {
+    CONTEXT.remove();
+  }
+
+  /**
+   * Wrap a task to run with the account of the current thread.
+   *
+   * @param task task
+   * @return task running with the current account
+   */
+
+  public static Runnable wrap(Runnable task) {
+    LoginEntity loginEntity = CONTEXT.get();
+    return () -> {
+      LoginEntity previous = CONTEXT.get();
+      CONTEXT.set(loginEntity);
+      try {
+        task.run();
+      } finally {
+        restore(previous);
+      }
+    };
+  }
+
+  /**
+   * Wrap a task to run with the account of the current thread.
+   *
+   * @param task task
+   * @param <T>  type of the result
+   * @return task running with the current account
+   */
+
+  public static <T> Callable<T> wrap(Callable<T> task) {
+    LoginEntity loginEntity = CONTEXT.get();
+    return () -> {
+      LoginEntity previous = CONTEXT.get();
+      CONTEXT.set(loginEntity);
+      try {
+        return task.call();
+      } finally {
+        restore(previous);
+      }
+    };
+  }
+
+  /**
+   * Wrap a supplier, such as one given to CompletableFuture.supplyAsync, to run with the account
+   * of the current thread.
+   *
+   * @param supplier supplier
+   * @param <T>      type of the result
+   * @return supplier running with the current account
+   */
+
+  public static <T> Supplier<T> wrapSupplier(Supplier<T> supplier) {
+    LoginEntity loginEntity = CONTEXT.get();
+    return () -> {
+      LoginEntity previous = CONTEXT.get();
+      CONTEXT.set(loginEntity);
+      try {
+        return supplier.get();
+      } finally {
+        restore(previous);
+      }
+    };
+  }
+
+  private static void restore(LoginEntity previous) {
+    if (previous == null) {
+      CONTEXT.remove();
+    } else {
+      CONTEXT.set(previous);
+    }
+  }
+
+}
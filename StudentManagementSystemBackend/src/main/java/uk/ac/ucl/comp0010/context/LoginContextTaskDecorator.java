@@ -0,0 +1,27 @@
+package uk.ac.ucl.comp0010.context;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Carries the logged in account from the submitting thread to tasks run by executors.
+ *
+ * <p>
+ * Set on the executors declared by the application, and picked up by the executors Spring Boot
+ * configures. The Callable of an async request is submitted after the account was cleared, so
+ * LoginContextCallableInterceptor sets the account for it instead.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-14
+ */
+
+@Component
+public class LoginContextTaskDecorator implements TaskDecorator {
+
+  @Override
+  public Runnable decorate(Runnable runnable) {
+    return LoginContextHolder.wrap(runnable);
+  }
+
+}
@@ -0,0 +1,43 @@
+package uk.ac.ucl.comp0010.controller;
+
+import jakarta.annotation.Resource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import uk.ac.ucl.comp0010.annotation.LoginRequired;
+import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.service.ImportJobService;
+import uk.ac.ucl.comp0010.vo.ImportJobVo;
+
+/**
+ * <p>
+ * Import Job Controller.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-10
+ */
+@RestController
+@RequestMapping("/api/import-jobs")
+public class ImportJobController {
+
+  @Resource
+  private ImportJobService importJobService;
+
+  /**
+   * Retrieves the progress of a background import.
+   * This endpoint is accessible to authenticated users with the account types
+   * {@code admin} or {@code staff}.
+   *
+   * @param id the id returned when the import was submitted
+   * @return a Result object containing rows processed, rows failed, throughput and ETA
+   */
+  @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff})
+  @GetMapping("/{id}")
+  public Result<ImportJobVo> get(@PathVariable String id) {
+    return importJobService.get(id);
+  }
+
+}
@@ -2,6 +2,7 @@ package uk.ac.ucl.comp0010.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -11,12 +12,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import uk.ac.ucl.comp0010.annotation.LoginRequired;
 import uk.ac.ucl.comp0010.dto.CreateModuleDto;
 import uk.ac.ucl.comp0010.dto.EditModuleDto;
 import uk.ac.ucl.comp0010.enums.AccountType;
 import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.service.ExportService;
 import uk.ac.ucl.comp0010.service.ModuleService;
+import uk.ac.ucl.comp0010.utils.EtagUtils;
 import uk.ac.ucl.comp0010.vo.ModuleDetailVo;
 import uk.ac.ucl.comp0010.vo.ModuleListVo;
 
@@ -36,6 +40,9 @@ public class ModuleController {
   @Resource
   private ModuleService moduleService;
 
+  @Resource
+  private ExportService exportService;
+
   /**
    * Adds a new module based on the provided data.
    * This endpoint is accessible only to authenticated users with the account type {@code admin}.
@@ -59,16 +66,19 @@ public class ModuleController {
    * @param code    (optional) the code of the module to filter by
    * @param name    (optional) the name of the module to filter by
    * @param leader  (optional) the leader of the module to filter by
+   * @param after   (optional) cursor of the previous page, switches to keyset paging;
+   *                empty for the first page
    * @return a Result object containing a paginated list of {@code ModuleListVo} objects
    */
   @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff, AccountType.student})
   @GetMapping("/list")
-  public Result<IPage<ModuleListVo>> list(@RequestParam Integer current,
+  public Result<IPage<ModuleListVo>> list(@RequestParam(defaultValue = "1") Integer current,
       @RequestParam Integer size,
       @RequestParam(required = false) String code,
       @RequestParam(required = false) String name,
-      @RequestParam(required = false) String leader) {
-    return moduleService.list(current, size, code, name, leader);
+      @RequestParam(required = false) String leader,
+      @RequestParam(required = false) String after) {
+    return moduleService.list(current, size, code, name, leader, after);
   }
 
   /**
@@ -76,12 +86,21 @@ public class ModuleController {
    * This endpoint is accessible to authenticated users with the account types
    * {@code admin}, {@code staff}, or {@code student}.
    *
-   * @param code the unique code of the module to retrieve
+   * <p>
+   * Answers 304 Not Modified without loading the module when If-None-Match holds its current
+   * entity tag.
+   * </p>
+   *
+   * @param code    the unique code of the module to retrieve
+   * @param request current request
    * @return a Result object containing the details of the module as a {@code ModuleDetailVo}
    */
   @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff, AccountType.student})
   @GetMapping("/{code}")
-  public Result<ModuleDetailVo> get(@PathVariable String code) {
+  public Result<ModuleDetailVo> get(@PathVariable String code, ServletWebRequest request) {
+    if (EtagUtils.checkNotModified(request, moduleService.getEtag(code))) {
+      return null;
+    }
     return moduleService.get(code);
   }
 
@@ -110,4 +129,19 @@ public class ModuleController {
     return moduleService.delete(code);
   }
 
+  /**
+   * Exports all modules as a csv file, streamed while it is read from the database.
+   * This endpoint is accessible to authenticated users with the account types
+   * {@code admin} or {@code staff}.
+   *
+   * @param gzip     compress the file with gzip
+   * @param response the response the file is streamed to
+   */
+  @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff})
+  @GetMapping("/export")
+  public void export(@RequestParam(defaultValue = "false") Boolean gzip,
+      HttpServletResponse response) {
+    exportService.exportModules(gzip, response);
+  }
+
 }
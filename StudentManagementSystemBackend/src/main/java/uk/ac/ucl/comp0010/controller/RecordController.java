@@ -2,7 +2,11 @@ package uk.ac.ucl.comp0010.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.LocalDate;
 import java.util.Map;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,13 +16,19 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import uk.ac.ucl.comp0010.annotation.LoginRequired;
 import uk.ac.ucl.comp0010.dto.CreateRecordDto;
 import uk.ac.ucl.comp0010.dto.EditRecordDto;
 import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.enums.CountMode;
+import uk.ac.ucl.comp0010.enums.ImportType;
 import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.service.ExportService;
+import uk.ac.ucl.comp0010.service.ImportJobService;
 import uk.ac.ucl.comp0010.service.RecordService;
+import uk.ac.ucl.comp0010.utils.EtagUtils;
 import uk.ac.ucl.comp0010.vo.RecordDetailVo;
 import uk.ac.ucl.comp0010.vo.RecordListVo;
 
@@ -37,6 +47,12 @@ public class RecordController {
   @Resource
   private RecordService recordService;
 
+  @Resource
+  private ExportService exportService;
+
+  @Resource
+  private ImportJobService importJobService;
+
   /**
    * Creates a new record based on the provided details.
    * This endpoint is accessible to authenticated users with the account types
@@ -76,18 +92,28 @@ public class RecordController {
    * @param year       (optional) the year to filter by
    * @param month      (optional) the month to filter by
    * @param day        (optional) the day to filter by
+   * @param from       (optional) the earliest exam date, inclusive
+   * @param to         (optional) the latest exam date, inclusive
    * @param moduleCode (optional) the module code to filter by
+   * @param after      (optional) cursor of the previous page, switches to keyset paging;
+   *                   empty for the first page
+   * @param count      (optional) how the total is computed: exact, none, cached or estimate
    * @return a Result object containing a paginated list of {@code RecordListVo} objects
    */
   @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff, AccountType.student})
   @GetMapping
-  public Result<IPage<RecordListVo>> list(@RequestParam Integer current,
+  public Result<IPage<RecordListVo>> list(@RequestParam(defaultValue = "1") Integer current,
       @RequestParam Integer size,
       @RequestParam(required = false) Integer year,
       @RequestParam(required = false) Integer month,
       @RequestParam(required = false) Integer day,
-      @RequestParam(required = false) String moduleCode) {
-    return recordService.list(current, size, year, month, day, moduleCode);
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+      @RequestParam(required = false) String moduleCode,
+      @RequestParam(required = false) String after,
+      @RequestParam(defaultValue = "exact") CountMode count) {
+    return recordService.list(current, size, year, month, day, from, to, moduleCode, after,
+        count);
   }
 
   /**
@@ -95,12 +121,21 @@ public class RecordController {
    * This endpoint is accessible to authenticated users with the account types
    * {@code admin}, {@code staff}, or {@code student}.
    *
-   * @param id the unique identifier of the record to retrieve
+   * <p>
+   * Answers 304 Not Modified without loading the record when If-None-Match holds its current
+   * entity tag.
+   * </p>
+   *
+   * @param id      the unique identifier of the record to retrieve
+   * @param request current request
    * @return a Result object containing the details of the record as a {@code RecordDetailVo}
    */
   @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff, AccountType.student})
   @GetMapping("/{id}")
-  public Result<RecordDetailVo> get(@PathVariable Long id) {
+  public Result<RecordDetailVo> get(@PathVariable Long id, ServletWebRequest request) {
+    if (EtagUtils.checkNotModified(request, recordService.getEtag(id))) {
+      return null;
+    }
     return recordService.get(id);
   }
 
@@ -123,13 +158,34 @@ public class RecordController {
    * This endpoint is accessible to authenticated users with the account types
    * {@code admin} or {@code staff}.
    *
-   * @param file the CSV file containing the records to be imported
+   * @param file  the CSV file containing the records to be imported
+   * @param async run the import in the background and return the import job
    * @return a Result object indicating the success or failure of the import operation
    */
   @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff})
   @PostMapping("/import-records")
-  public Result<Object> importRecords(@RequestParam MultipartFile file) {
+  public Result<Object> importRecords(@RequestParam MultipartFile file,
+      @RequestParam(defaultValue = "false") Boolean async) {
+    if (async) {
+      return Result.success(importJobService.submit(ImportType.record, file).getData());
+    }
     return recordService.importRecordByCsv(file);
   }
 
-}
\ No newline at end of file
+  /**
+   * Exports all records with their score aggregates as a csv file, streamed while it is read
+   * from the database.
+   * This endpoint is accessible to authenticated users with the account types
+   * {@code admin} or {@code staff}.
+   *
+   * @param gzip     compress the file with gzip
+   * @param response the response the file is streamed to
+   */
+  @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff})
+  @GetMapping("/export")
+  public void export(@RequestParam(defaultValue = "false") Boolean gzip,
+      HttpServletResponse response) {
+    exportService.exportRecords(gzip, response);
+  }
+
+}
@@ -2,6 +2,7 @@ package uk.ac.ucl.comp0010.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -16,7 +17,11 @@ import uk.ac.ucl.comp0010.annotation.LoginRequired;
 import uk.ac.ucl.comp0010.dto.CreateRegistrationDto;
 import uk.ac.ucl.comp0010.dto.EditRegistrationDto;
 import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.enums.CountMode;
+import uk.ac.ucl.comp0010.enums.ImportType;
 import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.service.ExportService;
+import uk.ac.ucl.comp0010.service.ImportJobService;
 import uk.ac.ucl.comp0010.service.RegistrationService;
 import uk.ac.ucl.comp0010.vo.RegistrationListVo;
 
@@ -36,6 +41,12 @@ public class RegistrationController {
   @Resource
   private RegistrationService registrationService;
 
+  @Resource
+  private ExportService exportService;
+
+  @Resource
+  private ImportJobService importJobService;
+
   /**
    * Adds a new registration based on the provided details.
    * This endpoint is accessible to authenticated users with the account types
@@ -77,15 +88,21 @@ public class RegistrationController {
    * @param size      the number of records per page
    * @param studentId (optional) the ID of the student to filter by
    * @param recordId  (optional) the ID of the record to filter by
+   * @param after     (optional) cursor of the previous page, switches to keyset paging;
+   *                  empty for the first page
+   * @param count     (optional) how the total is computed: exact, none, cached or estimate
    * @return a Result object containing a paginated list of {@code RegistrationListVo} objects
    */
   @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff})
   @GetMapping
-  public Result<IPage<RegistrationListVo>> list(@RequestParam Integer current,
+  public Result<IPage<RegistrationListVo>> list(
+      @RequestParam(defaultValue = "1") Integer current,
       @RequestParam Integer size,
       @RequestParam(required = false) Integer studentId,
-      @RequestParam(required = false) Long recordId) {
-    return registrationService.list(current, size, studentId, recordId);
+      @RequestParam(required = false) Long recordId,
+      @RequestParam(required = false) String after,
+      @RequestParam(defaultValue = "exact") CountMode count) {
+    return registrationService.list(current, size, studentId, recordId, after, count);
   }
 
   /**
@@ -107,13 +124,36 @@ public class RegistrationController {
    * This endpoint is accessible to authenticated users with the account types
    * {@code admin} or {@code staff}.
    *
-   * @param file the CSV file containing the registration data to import
+   * @param file  the CSV file containing the registration data to import
+   * @param async run the import in the background and return the import job
    * @return a Result object indicating the success or failure of the import operation
    */
   @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff})
   @PostMapping("/import-registrations")
-  public Result<Object> importRegistration(@RequestParam MultipartFile file) {
+  public Result<Object> importRegistration(@RequestParam MultipartFile file,
+      @RequestParam(defaultValue = "false") Boolean async) {
+    if (async) {
+      return Result.success(importJobService.submit(ImportType.registration, file).getData());
+    }
     return registrationService.importRegistrationByCsv(file);
   }
 
+  /**
+   * Exports registrations as a csv file, streamed while it is read from the database.
+   * This endpoint is accessible to authenticated users with the account types
+   * {@code admin} or {@code staff}.
+   *
+   * @param studentId (optional) the ID of the student to filter by
+   * @param recordId  (optional) the ID of the record to filter by
+   * @param gzip      compress the file with gzip
+   * @param response  the response the file is streamed to
+   */
+  @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff})
+  @GetMapping("/export")
+  public void export(@RequestParam(required = false) Integer studentId,
+      @RequestParam(required = false) Long recordId,
+      @RequestParam(defaultValue = "false") Boolean gzip, HttpServletResponse response) {
+    exportService.exportRegistrations(studentId, recordId, gzip, response);
+  }
+
 }
@@ -0,0 +1,46 @@
+package uk.ac.ucl.comp0010.controller;
+
+import jakarta.annotation.Resource;
+import java.util.List;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import uk.ac.ucl.comp0010.annotation.LoginRequired;
+import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.service.SearchService;
+import uk.ac.ucl.comp0010.vo.SearchResultVo;
+
+/**
+ * <p>
+ * Search Controller.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+  @Resource
+  private SearchService searchService;
+
+  /**
+   * Type-ahead search over students, staff and modules.
+   * This endpoint is accessible to authenticated users with the account types
+   * {@code admin} or {@code staff}.
+   *
+   * @param q     the text typed so far, every word of it is matched as a prefix
+   * @param limit (optional) the maximum number of results, default 10
+   * @return a Result object containing the best matches, best first
+   */
+  @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff})
+  @GetMapping
+  public Result<List<SearchResultVo>> search(@RequestParam(required = false) String q,
+      @RequestParam(defaultValue = "10") Integer limit) {
+    return searchService.search(q, limit);
+  }
+
+}
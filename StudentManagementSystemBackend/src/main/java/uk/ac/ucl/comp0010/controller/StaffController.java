@@ -2,6 +2,7 @@ package uk.ac.ucl.comp0010.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletResponse;
 import java.util.List;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,7 +19,10 @@ import uk.ac.ucl.comp0010.dto.CreateStaffDto;
 import uk.ac.ucl.comp0010.dto.EditStaffDto;
 import uk.ac.ucl.comp0010.dto.LoginDto;
 import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.enums.ImportType;
 import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.service.ExportService;
+import uk.ac.ucl.comp0010.service.ImportJobService;
 import uk.ac.ucl.comp0010.service.StaffService;
 import uk.ac.ucl.comp0010.vo.LoginVo;
 import uk.ac.ucl.comp0010.vo.StaffListVo;
@@ -39,6 +43,12 @@ public class StaffController {
   @Resource
   private StaffService staffService;
 
+  @Resource
+  private ExportService exportService;
+
+  @Resource
+  private ImportJobService importJobService;
+
   /**
    * Handles login requests for staff accounts.
    *
@@ -88,29 +98,38 @@ public class StaffController {
    * @param fullName   (optional) the full name of the staff to filter by
    * @param department (optional) the department of the staff to filter by
    * @param title      (optional) the title of the staff to filter by
+   * @param after      (optional) cursor of the previous page, switches to keyset paging;
+   *                   empty for the first page
    * @return a Result object containing a paginated list of {@code StaffListVo} objects
    */
   @LoginRequired(accountTypes = {AccountType.staff, AccountType.admin})
   @GetMapping("/list-staffs")
-  public Result<IPage<StaffListVo>> listStaffs(@RequestParam Integer current,
+  public Result<IPage<StaffListVo>> listStaffs(
+      @RequestParam(defaultValue = "1") Integer current,
       @RequestParam Integer size,
       @RequestParam(required = false) Integer id,
       @RequestParam(required = false) String fullName,
       @RequestParam(required = false) String department,
-      @RequestParam(required = false) String title) {
-    return staffService.listStaffs(current, size, id, fullName, department, title);
+      @RequestParam(required = false) String title,
+      @RequestParam(required = false) String after) {
+    return staffService.listStaffs(current, size, id, fullName, department, title, after);
   }
 
   /**
    * Imports staff members from a provided CSV file.
    * This endpoint is accessible only to authenticated users with the account type {@code admin}.
    *
-   * @param file the CSV file containing the staff data to import
+   * @param file  the CSV file containing the staff data to import
+   * @param async run the import in the background and return the import job
    * @return a Result object indicating the success or failure of the import operation
    */
   @LoginRequired(accountTypes = {AccountType.admin})
   @PostMapping("/import-staffs")
-  public Result<Object> importStaffs(@RequestParam MultipartFile file) {
+  public Result<Object> importStaffs(@RequestParam MultipartFile file,
+      @RequestParam(defaultValue = "false") Boolean async) {
+    if (async) {
+      return Result.success(importJobService.submit(ImportType.staff, file).getData());
+    }
     return staffService.importStaff(file);
   }
 
@@ -182,4 +201,18 @@ public class StaffController {
     return staffService.listTitles();
   }
 
+  /**
+   * Exports all staff as a csv file, streamed while it is read from the database.
+   * This endpoint is accessible only to authenticated users with the account type {@code admin}.
+   *
+   * @param gzip     compress the file with gzip
+   * @param response the response the file is streamed to
+   */
+  @LoginRequired(accountTypes = {AccountType.admin})
+  @GetMapping("/export")
+  public void export(@RequestParam(defaultValue = "false") Boolean gzip,
+      HttpServletResponse response) {
+    exportService.exportStaffs(gzip, response);
+  }
+
 }
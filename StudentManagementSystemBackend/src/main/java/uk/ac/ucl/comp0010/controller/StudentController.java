@@ -2,6 +2,7 @@ package uk.ac.ucl.comp0010.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletResponse;
 import java.util.List;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,8 +19,13 @@ import uk.ac.ucl.comp0010.dto.CreateStudentDto;
 import uk.ac.ucl.comp0010.dto.EditStudentDto;
 import uk.ac.ucl.comp0010.dto.LoginDto;
 import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.enums.ImportType;
 import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.service.ExportService;
+import uk.ac.ucl.comp0010.service.ImportJobService;
 import uk.ac.ucl.comp0010.service.StudentService;
+import uk.ac.ucl.comp0010.service.TranscriptService;
+import uk.ac.ucl.comp0010.vo.GradeSummaryVo;
 import uk.ac.ucl.comp0010.vo.LoginVo;
 import uk.ac.ucl.comp0010.vo.StudentListVo;
 import uk.ac.ucl.comp0010.vo.StudentRegistrationListVo;
@@ -40,6 +46,15 @@ public class StudentController {
   @Resource
   private StudentService studentService;
 
+  @Resource
+  private ExportService exportService;
+
+  @Resource
+  private ImportJobService importJobService;
+
+  @Resource
+  private TranscriptService transcriptService;
+
   /**
    * Student Login.
    *
@@ -86,31 +101,39 @@ public class StudentController {
    * @param fullName        (optional) the full name of the student to filter by
    * @param username        (optional) the username of the student to filter by
    * @param programOfStudy  (optional) the program of study to filter by
+   * @param after           (optional) cursor of the previous page, switches to keyset paging;
+   *                        empty for the first page
    * @return a Result object containing a paginated list of {@code StudentListVo} objects
    */
   @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff})
   @GetMapping("/list-students")
   public Result<IPage<StudentListVo>> listStudents(
-      @RequestParam Integer current,
+      @RequestParam(defaultValue = "1") Integer current,
       @RequestParam Integer size,
       @RequestParam(required = false) Integer id,
       @RequestParam(required = false) String fullName,
       @RequestParam(required = false) String username,
-      @RequestParam(required = false) String programOfStudy) {
+      @RequestParam(required = false) String programOfStudy,
+      @RequestParam(required = false) String after) {
     return studentService.listStudents(current, size, id, fullName, username,
-        programOfStudy);
+        programOfStudy, after);
   }
 
   /**
    * Imports students from a provided CSV file.
    * This endpoint is accessible only to authenticated users with the account type {@code admin}.
    *
-   * @param file the CSV file containing the student data to import
+   * @param file  the CSV file containing the student data to import
+   * @param async run the import in the background and return the import job
    * @return a Result object indicating the success or failure of the import operation
    */
   @LoginRequired(accountTypes = {AccountType.admin})
   @PostMapping("/import-students")
-  public Result<Object> importStudents(@RequestParam MultipartFile file) {
+  public Result<Object> importStudents(@RequestParam MultipartFile file,
+      @RequestParam(defaultValue = "false") Boolean async) {
+    if (async) {
+      return Result.success(importJobService.submit(ImportType.student, file).getData());
+    }
     return studentService.importStudent(file);
   }
 
@@ -172,6 +195,34 @@ public class StudentController {
     return studentService.listStudentRegistrations(current, size);
   }
 
+  /**
+   * Retrieves the credit weighted averages, classification and yearly breakdown of the logged-in
+   * student's grades.
+   * This endpoint is accessible only to authenticated users with the account type {@code student}.
+   *
+   * @return a Result object containing the {@code GradeSummaryVo}
+   */
+  @LoginRequired(accountTypes = {AccountType.student})
+  @GetMapping("/grade-summary")
+  public Result<GradeSummaryVo> gradeSummary() {
+    return studentService.gradeSummary();
+  }
+
+  /**
+   * Retrieves the credit weighted averages, classification and yearly breakdown of a specific
+   * student's grades.
+   * This endpoint is accessible to authenticated users with the account types
+   * {@code admin} or {@code staff}.
+   *
+   * @param id the ID of the student
+   * @return a Result object containing the {@code GradeSummaryVo}
+   */
+  @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff})
+  @GetMapping("/grade-summary/{id}")
+  public Result<GradeSummaryVo> getStudentGradeSummary(@PathVariable Integer id) {
+    return studentService.getStudentGradeSummary(id);
+  }
+
   /**
    * Retrieves a list of unique academic programs associated with students.
    * This endpoint is accessible to authenticated users with the account types
@@ -185,5 +236,60 @@ public class StudentController {
     return studentService.listPrograms();
   }
 
+  /**
+   * Downloads the logged-in student's transcript as a PDF.
+   * This endpoint is accessible only to authenticated users with the account type {@code student}.
+   *
+   * @param response the response the PDF is streamed to
+   */
+  @LoginRequired(accountTypes = {AccountType.student})
+  @GetMapping("/transcript")
+  public void transcript(HttpServletResponse response) {
+    transcriptService.exportTranscript(response);
+  }
+
+  /**
+   * Downloads the transcript of a specific student as a PDF.
+   * This endpoint is accessible to authenticated users with the account types
+   * {@code admin} or {@code staff}.
+   *
+   * @param id       the ID of the student
+   * @param response the response the PDF is streamed to
+   */
+  @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff})
+  @GetMapping("/transcript/{id}")
+  public void studentTranscript(@PathVariable Integer id, HttpServletResponse response) {
+    transcriptService.exportTranscript(id, response);
+  }
+
+  /**
+   * Downloads a ZIP archive with the transcripts of every student in a program of study.
+   * This endpoint is accessible to authenticated users with the account types
+   * {@code admin} or {@code staff}.
+   *
+   * @param programOfStudy the program of study
+   * @param response       the response the archive is streamed to
+   */
+  @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff})
+  @GetMapping("/transcripts")
+  public void programTranscripts(@RequestParam String programOfStudy,
+      HttpServletResponse response) {
+    transcriptService.exportProgramTranscripts(programOfStudy, response);
+  }
+
+  /**
+   * Exports all students as a csv file, streamed while it is read from the database.
+   * This endpoint is accessible to authenticated users with the account types
+   * {@code admin} or {@code staff}.
+   *
+   * @param gzip     compress the file with gzip
+   * @param response the response the file is streamed to
+   */
+  @LoginRequired(accountTypes = {AccountType.admin, AccountType.staff})
+  @GetMapping("/export")
+  public void export(@RequestParam(defaultValue = "false") Boolean gzip,
+      HttpServletResponse response) {
+    exportService.exportStudents(gzip, response);
+  }
 
-}
\ No newline at end of file
+}
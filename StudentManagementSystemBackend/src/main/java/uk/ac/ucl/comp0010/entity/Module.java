@@ -1,11 +1,11 @@
 package uk.ac.ucl.comp0010.entity;
 
 import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.Version;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import java.io.Serial;
 import java.io.Serializable;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import uk.ac.ucl.comp0010.dto.CreateModuleDto;
@@ -20,7 +20,6 @@ import uk.ac.ucl.comp0010.dto.CreateModuleDto;
  */
 @Entity
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class Module implements Serializable {
 
@@ -70,6 +69,35 @@ public class Module implements Serializable {
 
   private Integer staffId;
 
+  /**
+   * Version, increased by every change to the module or to the name of its leader.
+   *
+   * <p>
+   * Edits only apply when the version hasn't changed since the module was read.
+   * </p>
+   */
+
+  @Version
+  private Long version;
+
+  /**
+   * Constructor of Module.
+   *
+   * @param code    module code
+   * @param name    module name
+   * @param mnc     is the module mandatory non-condonable
+   * @param credits credits
+   * @param staffId teaching staff id
+   */
+
+  public Module(String code, String name, Boolean mnc, Integer credits, Integer staffId) {
+    this.code = code;
+    this.name = name;
+    this.mnc = mnc;
+    this.credits = credits;
+    this.staffId = staffId;
+  }
+
   /**
    * Constructor of Module using CreateModuleDto.
    *
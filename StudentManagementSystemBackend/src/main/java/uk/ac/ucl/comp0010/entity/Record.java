@@ -1,13 +1,15 @@
 package uk.ac.ucl.comp0010.entity;
 
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
 import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.Version;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDate;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
@@ -25,7 +27,6 @@ import uk.ac.ucl.comp0010.dto.CreateRecordDto;
 @Data
 @Accessors(chain = true)
 @NoArgsConstructor
-@AllArgsConstructor
 public class Record implements Serializable {
 
   @Serial
@@ -53,6 +54,43 @@ public class Record implements Serializable {
 
   private LocalDate date;
 
+  /**
+   * Version, increased by every change to the record.
+   *
+   * <p>
+   * Edits only apply when the version hasn't changed since the record was read.
+   * </p>
+   */
+
+  @Version
+  private Long version;
+
+  /**
+   * Version of the score aggregates, increased whenever the registrations of the record change.
+   *
+   * <p>
+   * Only written by the statements maintaining the aggregates, so registration changes never make
+   * an edit of the record fail.
+   * </p>
+   */
+
+  @TableField(insertStrategy = FieldStrategy.NEVER, updateStrategy = FieldStrategy.NEVER)
+  private Long statsVersion;
+
+  /**
+   * Constructor of Record.
+   *
+   * @param id         ID
+   * @param moduleCode module code
+   * @param date       exam date
+   */
+
+  public Record(Long id, String moduleCode, LocalDate date) {
+    this.id = id;
+    this.moduleCode = moduleCode;
+    this.date = date;
+  }
+
   public Record(CreateRecordDto createRecordDto) {
     this.moduleCode = createRecordDto.getModuleCode();
     this.date = createRecordDto.getDate();
@@ -99,10 +99,20 @@ public class Student implements Serializable {
    * @param createStudentDto the DTO with student data
    */
   public Student(CreateStudentDto createStudentDto) {
+    this(createStudentDto, PasswordEncoderUtils.encode(createStudentDto.getPassword()));
+  }
+
+  /**
+   * Constructs a new Student from CreateStudentDto with an already hashed password.
+   *
+   * @param createStudentDto the DTO with student data
+   * @param encodedPassword  hashed password
+   */
+  public Student(CreateStudentDto createStudentDto, String encodedPassword) {
     this.firstName = createStudentDto.getFirstName();
     this.lastName = createStudentDto.getLastName();
     this.username = createStudentDto.getUsername();
-    this.password = PasswordEncoderUtils.encode(createStudentDto.getPassword());
+    this.password = encodedPassword;
     this.email = createStudentDto.getEmail();
     this.birthDate = createStudentDto.getBirthDate();
     this.programOfStudy = createStudentDto.getProgramOfStudy();
@@ -0,0 +1,18 @@
+package uk.ac.ucl.comp0010.enums;
+
+/**
+ * How the total of a paginated listing is computed.
+ *
+ * <p>
+ * exact runs a count query, none skips it, cached reuses a recent count of the same query and
+ * estimate reads the table statistics of the database. Filtered listings, and databases without
+ * table statistics, get the cached count for estimate.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+
+public enum CountMode {
+  exact, none, cached, estimate
+}
@@ -0,0 +1,12 @@
+package uk.ac.ucl.comp0010.enums;
+
+/**
+ * Columns whose distinct values are offered as filters.
+ *
+ * @author Jack Pan
+ * @since 2024-12-13
+ */
+
+public enum FacetType {
+  program, department, title
+}
@@ -0,0 +1,12 @@
+package uk.ac.ucl.comp0010.enums;
+
+/**
+ * Status of an import job.
+ *
+ * @author Jack Pan
+ * @since 2024-12-10
+ */
+
+public enum ImportJobStatus {
+  pending, running, completed, failed
+}
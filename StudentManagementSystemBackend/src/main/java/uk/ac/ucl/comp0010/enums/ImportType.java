@@ -0,0 +1,12 @@
+package uk.ac.ucl.comp0010.enums;
+
+/**
+ * Kinds of csv imports.
+ *
+ * @author Jack Pan
+ * @since 2024-12-10
+ */
+
+public enum ImportType {
+  student, staff, record, registration
+}
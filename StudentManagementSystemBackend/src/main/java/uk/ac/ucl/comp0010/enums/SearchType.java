@@ -0,0 +1,12 @@
+package uk.ac.ucl.comp0010.enums;
+
+/**
+ * Kinds of documents in the search index.
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+
+public enum SearchType {
+  student, staff, module
+}
@@ -20,4 +20,9 @@ public class ServerException extends RuntimeException {
     this.code = ResultCode.ERROR;
   }
 
+  public ServerException(ResultCode code, String message) {
+    super(message);
+    this.code = code;
+  }
+
 }
\ No newline at end of file
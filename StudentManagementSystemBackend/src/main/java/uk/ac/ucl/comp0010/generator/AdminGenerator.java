@@ -4,8 +4,9 @@ import jakarta.annotation.Resource;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 import uk.ac.ucl.comp0010.entity.Admin;
+import uk.ac.ucl.comp0010.enums.AccountType;
 import uk.ac.ucl.comp0010.service.AdminService;
-import uk.ac.ucl.comp0010.utils.PasswordEncoderUtils;
+import uk.ac.ucl.comp0010.service.PasswordService;
 
 /**
  * Admin generator for Application.
@@ -19,6 +20,9 @@ public class AdminGenerator implements CommandLineRunner {
   @Resource
   private AdminService adminService;
 
+  @Resource
+  private PasswordService passwordService;
+
 
   /**
    * This method is called when the application starts. It generates an admin user with the
@@ -40,7 +44,7 @@ public class AdminGenerator implements CommandLineRunner {
   public void generateAdmin(String username, String password) {
     Admin admin = new Admin();
     admin.setUsername(username);
-    admin.setPassword(PasswordEncoderUtils.encode(password));
+    admin.setPassword(passwordService.encode(AccountType.admin, password));
     adminService.save(admin);
     System.out.println("Admin user created successfully.");
     System.out.println("username:" + username);
@@ -4,7 +4,9 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.toolkit.Constants;
+import java.util.Collection;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 import uk.ac.ucl.comp0010.entity.Module;
 import uk.ac.ucl.comp0010.vo.ModuleDetailVo;
 import uk.ac.ucl.comp0010.vo.ModuleListVo;
@@ -25,4 +27,25 @@ public interface ModuleMapper extends BaseMapper<Module> {
 
   ModuleDetailVo get(String code);
 
+  /**
+   * Stream every module to the handler, ordered by code.
+   *
+   * @param handler receives each row
+   */
+  void export(ResultHandler<ModuleListVo> handler);
+
+  /**
+   * Stream the code of every module to the handler.
+   *
+   * @param handler receives each code
+   */
+  void listCodes(ResultHandler<String> handler);
+
+  /**
+   * Increase the version of modules led by staff whose names changed.
+   *
+   * @param staffIds ids of the staff
+   */
+  void increaseVersionsOfStaff(@Param("staffIds") Collection<Integer> staffIds);
+
 }
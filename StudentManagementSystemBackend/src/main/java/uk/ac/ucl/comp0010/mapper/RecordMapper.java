@@ -4,7 +4,9 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.toolkit.Constants;
+import java.util.Collection;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 import uk.ac.ucl.comp0010.entity.Record;
 import uk.ac.ucl.comp0010.vo.RecordDetailVo;
 import uk.ac.ucl.comp0010.vo.RecordListVo;
@@ -22,6 +24,45 @@ public interface RecordMapper extends BaseMapper<Record> {
   IPage<RecordListVo> list(IPage<RecordListVo> ipage,
       @Param(Constants.WRAPPER) QueryWrapper<RecordListVo> wrapper);
 
+  Long listCount(@Param(Constants.WRAPPER) QueryWrapper<RecordListVo> wrapper);
+
+  Long estimateCount();
+
   RecordDetailVo get(Long id);
 
+  /**
+   * Stream every record with its score aggregates to the handler, ordered by id.
+   *
+   * @param handler receives each row
+   */
+  void export(ResultHandler<RecordDetailVo> handler);
+
+  void deleteStats(@Param("recordIds") Collection<Long> recordIds);
+
+  void insertStats(@Param("recordIds") Collection<Long> recordIds);
+
+  /**
+   * Add a registration to the aggregates of its record.
+   *
+   * @param recordId record id
+   * @param score    score of the registration, or null
+   * @return number of aggregate rows updated, 0 when the record has none yet
+   */
+  int addStats(@Param("recordId") Long recordId, @Param("score") Integer score);
+
+  /**
+   * Remove a registration from the aggregates of its record, after the registration is gone.
+   *
+   * @param recordId record id
+   * @param score    score of the registration, or null
+   */
+  void removeStats(@Param("recordId") Long recordId, @Param("score") Integer score);
+
+  /**
+   * Increase the stats version of records, locking their rows until the transaction ends.
+   *
+   * @param recordIds ids of the records
+   */
+  void increaseStatsVersions(@Param("recordIds") Collection<Long> recordIds);
+
 }
\ No newline at end of file
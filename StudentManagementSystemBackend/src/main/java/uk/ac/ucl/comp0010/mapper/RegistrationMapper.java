@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.toolkit.Constants;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 import uk.ac.ucl.comp0010.entity.Registration;
 import uk.ac.ucl.comp0010.vo.RegistrationListVo;
 import uk.ac.ucl.comp0010.vo.StudentRegistrationListVo;
@@ -23,6 +24,28 @@ public interface RegistrationMapper extends BaseMapper<Registration> {
   IPage<RegistrationListVo> list(IPage<RegistrationListVo> ipage,
       @Param(Constants.WRAPPER) QueryWrapper<RegistrationListVo> wrapper);
 
+  Long listCount(@Param(Constants.WRAPPER) QueryWrapper<RegistrationListVo> wrapper);
+
+  Long estimateCount();
+
   IPage<StudentRegistrationListVo> listStudentRegistrations(IPage<StudentRegistrationListVo> ipage,
       Integer studentId);
+
+  /**
+   * Stream the registrations matched by the filters to the handler.
+   *
+   * @param wrapper filters and order
+   * @param handler receives each row
+   */
+  void export(@Param(Constants.WRAPPER) QueryWrapper<RegistrationListVo> wrapper,
+      ResultHandler<RegistrationListVo> handler);
+
+  /**
+   * Stream the id, record id and student id of the registrations matched by the filters.
+   *
+   * @param wrapper filters
+   * @param handler receives each row, with only the keys set
+   */
+  void listKeys(@Param(Constants.WRAPPER) QueryWrapper<Registration> wrapper,
+      ResultHandler<Registration> handler);
 }
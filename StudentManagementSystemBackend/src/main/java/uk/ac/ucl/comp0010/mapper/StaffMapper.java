@@ -4,9 +4,13 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.toolkit.Constants;
+import java.util.Collection;
 import java.util.List;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 import uk.ac.ucl.comp0010.entity.Staff;
+import uk.ac.ucl.comp0010.model.FacetCount;
+import uk.ac.ucl.comp0010.model.NameTrigram;
 import uk.ac.ucl.comp0010.vo.StaffListVo;
 
 
@@ -20,11 +24,65 @@ import uk.ac.ucl.comp0010.vo.StaffListVo;
  */
 public interface StaffMapper extends BaseMapper<Staff> {
 
+  /**
+   * List staffs.
+   *
+   * @param ipage   page
+   * @param wrapper filters
+   * @param rank    escaped name query to rank matches by, null to keep the wrapper order
+   * @return page of staffs
+   */
   IPage<StaffListVo> listStaffs(IPage<StaffListVo> ipage,
-      @Param(Constants.WRAPPER) QueryWrapper<StaffListVo> wrapper);
+      @Param(Constants.WRAPPER) QueryWrapper<StaffListVo> wrapper, @Param("rank") String rank);
 
-  List<String> listDepartments();
+  /**
+   * Count the rows matched by the filters of listStaffs, without its ranking order.
+   *
+   * @param wrapper filters
+   * @return number of rows
+   */
+  Long listCount(@Param(Constants.WRAPPER) QueryWrapper<StaffListVo> wrapper);
 
-  List<String> listTitles();
+  void deleteNameTrigrams(@Param("ids") Collection<Integer> ids);
+
+  void insertNameTrigrams(@Param("trigrams") List<NameTrigram> trigrams);
+
+  /**
+   * Count the staffs holding a name trigram, stopping at a limit.
+   *
+   * @param trigram trigram to count
+   * @param limit   most staffs counted
+   * @return number of staffs, at most the limit
+   */
+  int countNameTrigram(@Param("trigram") String trigram, @Param("limit") int limit);
+
+  /**
+   * List the staffs sharing the most name trigrams with a query.
+   *
+   * @param trigrams  trigrams of the query
+   * @param minShared least number of trigrams shared
+   * @param limit     most ids returned
+   * @return ids of the staffs, the ones sharing the most trigrams first
+   */
+  List<Integer> listSimilarNames(@Param("trigrams") Collection<String> trigrams,
+      @Param("minShared") int minShared, @Param("limit") int limit);
+
+  List<FacetCount> countDepartments();
+
+  List<FacetCount> countTitles();
+
+  /**
+   * Stream every staff to the handler, ordered by id.
+   *
+   * @param handler receives each row
+   */
+  void export(ResultHandler<Staff> handler);
+
+  /**
+   * Stream the id and username of every staff to the handler.
+   *
+   * @param handler receives each row, with only id and username set
+   */
+  void listUsernames(ResultHandler<Staff> handler);
 
 }
@@ -5,10 +5,14 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.toolkit.Constants;
+import java.util.Collection;
 import java.util.List;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 import uk.ac.ucl.comp0010.entity.Student;
+import uk.ac.ucl.comp0010.model.FacetCount;
+import uk.ac.ucl.comp0010.model.NameTrigram;
 import uk.ac.ucl.comp0010.vo.StudentListVo;
 
 /**
@@ -22,9 +26,63 @@ import uk.ac.ucl.comp0010.vo.StudentListVo;
 @Mapper
 public interface StudentMapper extends BaseMapper<Student> {
 
+  /**
+   * List students.
+   *
+   * @param ipage   page
+   * @param wrapper filters
+   * @param rank    escaped name query to rank matches by, null to keep the wrapper order
+   * @return page of students
+   */
   IPage<StudentListVo> listStudents(IPage<StudentListVo> ipage,
-      @Param(Constants.WRAPPER) QueryWrapper<StudentListVo> wrapper);
+      @Param(Constants.WRAPPER) QueryWrapper<StudentListVo> wrapper, @Param("rank") String rank);
 
-  List<String> listPrograms();
+  /**
+   * Count the rows matched by the filters of listStudents, without its ranking order.
+   *
+   * @param wrapper filters
+   * @return number of rows
+   */
+  Long listCount(@Param(Constants.WRAPPER) QueryWrapper<StudentListVo> wrapper);
+
+  void deleteNameTrigrams(@Param("ids") Collection<Integer> ids);
+
+  void insertNameTrigrams(@Param("trigrams") List<NameTrigram> trigrams);
+
+  /**
+   * Count the students holding a name trigram, stopping at a limit.
+   *
+   * @param trigram trigram to count
+   * @param limit   most students counted
+   * @return number of students, at most the limit
+   */
+  int countNameTrigram(@Param("trigram") String trigram, @Param("limit") int limit);
+
+  /**
+   * List the students sharing the most name trigrams with a query.
+   *
+   * @param trigrams  trigrams of the query
+   * @param minShared least number of trigrams shared
+   * @param limit     most ids returned
+   * @return ids of the students, the ones sharing the most trigrams first
+   */
+  List<Integer> listSimilarNames(@Param("trigrams") Collection<String> trigrams,
+      @Param("minShared") int minShared, @Param("limit") int limit);
+
+  List<FacetCount> countPrograms();
+
+  /**
+   * Stream every student to the handler, ordered by id.
+   *
+   * @param handler receives each row
+   */
+  void export(ResultHandler<Student> handler);
+
+  /**
+   * Stream the id and username of every student to the handler.
+   *
+   * @param handler receives each row, with only id and username set
+   */
+  void listUsernames(ResultHandler<Student> handler);
 
 }
@@ -0,0 +1,85 @@
+package uk.ac.ucl.comp0010.model;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import lombok.AccessLevel;
+import lombok.Getter;
+import uk.ac.ucl.comp0010.exception.CustomException;
+import uk.ac.ucl.comp0010.utils.CursorUtils;
+
+/**
+ * Page fetched by keyset pagination.
+ *
+ * <p>
+ * Rows are read in ascending order of a unique key, starting after the key in the cursor, so deep
+ * pages cost the same as the first one. No count query is run, so total is always 0. One row more
+ * than the page size is read to tell whether another page follows, so nextCursor is null on the
+ * last page even when it is full.
+ * </p>
+ *
+ * @param <T> type of the rows
+ * @author Jack Pan
+ * @since 2024-12-10
+ */
+
+@Getter
+public class CursorPage<T> extends Page<T> {
+
+  /**
+   * Cursor of the next page.
+   */
+  private String nextCursor;
+
+  /**
+   * Page size asked for, one less than the rows read.
+   */
+  @Getter(AccessLevel.NONE)
+  private final long pageSize;
+
+  private CursorPage(long size) {
+    super(1, size + 1, false);
+    this.pageSize = size;
+  }
+
+  /**
+   * Restrict a query to the page after a key.
+   *
+   * @param wrapper   query of the list
+   * @param keyColumn unique column the rows are sorted by
+   * @param lastKey   key of the last row of the previous page, null for the first page
+   * @param size      page size
+   * @return page to pass to the mapper
+   * @throws CustomException if the page size is below 1
+   */
+
+  public static <T> CursorPage<T> seek(QueryWrapper<T> wrapper, String keyColumn, Object lastKey,
+      long size) {
+    if (size < 1) {
+      throw new CustomException("Invalid page size");
+    }
+    wrapper.gt(lastKey != null, keyColumn, lastKey).orderByAsc(keyColumn);
+    return new CursorPage<>(size);
+  }
+
+  /**
+   * Drop the look-ahead row and set the cursor of the next page if it was found.
+   *
+   * @param keyGetter getter of the key column
+   * @return this page
+   */
+
+  public CursorPage<T> withNextCursor(Function<T, Object> keyGetter) {
+    List<T> records = getRecords();
+    if (records.size() > pageSize) {
+      records = new ArrayList<>(records.subList(0, (int) pageSize));
+      setRecords(records);
+      this.nextCursor = CursorUtils.encode(keyGetter.apply(records.get(records.size() - 1)));
+    }
+    setSize(pageSize);
+    return this;
+  }
+
+}
@@ -0,0 +1,19 @@
+package uk.ac.ucl.comp0010.model;
+
+import lombok.Data;
+
+/**
+ * A distinct value of a filter column and the number of rows holding it.
+ *
+ * @author Jack Pan
+ * @since 2024-12-13
+ */
+
+@Data
+public class FacetCount {
+
+  private String name;
+
+  private Long total;
+
+}
@@ -0,0 +1,161 @@
+package uk.ac.ucl.comp0010.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import lombok.Getter;
+import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.enums.ImportJobStatus;
+import uk.ac.ucl.comp0010.enums.ImportType;
+
+/**
+ * Progress of a csv import running in the background.
+ *
+ * <p>
+ * Counters are updated by the import thread and read by the polling requests, so they are kept in
+ * atomic or volatile fields. Imports are all or nothing, so rows processed before a failure are
+ * rolled back. When the job fails they are moved from processedRows to rolledBackRows, so a failed
+ * job never reports rows as imported.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-10
+ */
+
+@Getter
+public class ImportJob {
+
+  private final String id = UUID.randomUUID().toString();
+
+  private final ImportType type;
+
+  /**
+   * Account which submitted the job.
+   */
+  private final Integer accountId;
+
+  private final AccountType accountType;
+
+  private final LocalDateTime createdAt = LocalDateTime.now();
+
+  private final AtomicLong processedRows = new AtomicLong();
+
+  private final AtomicLong failedRows = new AtomicLong();
+
+  /**
+   * Rows processed before the job failed, undone with the rest of the import.
+   */
+  private volatile long rolledBackRows;
+
+  private volatile ImportJobStatus status = ImportJobStatus.pending;
+
+  /**
+   * Number of data rows in the file, null until they are counted.
+   */
+  private volatile Long totalRows;
+
+  private volatile String message;
+
+  private volatile LocalDateTime startedAt;
+
+  private volatile LocalDateTime finishedAt;
+
+  /**
+   * Constructor for ImportJob.
+   *
+   * @param type        import type
+   * @param accountId   id of the submitting account
+   * @param accountType type of the submitting account
+   */
+
+  public ImportJob(ImportType type, Integer accountId, AccountType accountType) {
+    this.type = type;
+    this.accountId = accountId;
+    this.accountType = accountType;
+  }
+
+  /**
+   * Wrap a chunk consumer so the rows it handles are counted on the job.
+   *
+   * @param importJob     job to report to, or null when the import is not tracked
+   * @param chunkConsumer consumer handling each chunk of rows
+   * @return consumer reporting progress to the job
+   */
+
+  public static <T> Consumer<List<T>> track(ImportJob importJob,
+      Consumer<List<T>> chunkConsumer) {
+    if (importJob == null) {
+      return chunkConsumer;
+    }
+    return chunk -> {
+      try {
+        chunkConsumer.accept(chunk);
+      } catch (RuntimeException e) {
+        importJob.failedRows.addAndGet(chunk.size());
+        throw e;
+      }
+      importJob.processedRows.addAndGet(chunk.size());
+    };
+  }
+
+  public void start(long totalRows) {
+    this.totalRows = totalRows;
+    this.startedAt = LocalDateTime.now();
+    this.status = ImportJobStatus.running;
+  }
+
+  public void complete() {
+    this.finishedAt = LocalDateTime.now();
+    this.status = ImportJobStatus.completed;
+  }
+
+  /**
+   * Mark the job as failed.
+   *
+   * @param message reason of the failure
+   */
+
+  public void fail(String message) {
+    this.rolledBackRows = processedRows.getAndSet(0);
+    this.message = message;
+    this.finishedAt = LocalDateTime.now();
+    this.status = ImportJobStatus.failed;
+  }
+
+  /**
+   * Rows processed per second since the job started.
+   *
+   * @return throughput, 0 before the job starts or after it failed
+   */
+
+  public double getThroughput() {
+    if (startedAt == null || status == ImportJobStatus.failed) {
+      return 0;
+    }
+    LocalDateTime end = finishedAt == null ? LocalDateTime.now() : finishedAt;
+    long millis = Duration.between(startedAt, end).toMillis();
+    return millis == 0 ? 0 : processedRows.get() * 1000.0 / millis;
+  }
+
+  /**
+   * Estimated seconds left at the current throughput.
+   *
+   * @return seconds left, null when it can't be estimated yet
+   */
+
+  public Long getEtaSeconds() {
+    if (status != ImportJobStatus.running) {
+      return status == ImportJobStatus.completed ? 0L : null;
+    }
+    double throughput = getThroughput();
+    if (totalRows == null || throughput == 0) {
+      return null;
+    }
+    long remainingRows = Math.max(totalRows - processedRows.get() - failedRows.get(), 0);
+    return (long) Math.ceil(remainingRows / throughput);
+  }
+
+}
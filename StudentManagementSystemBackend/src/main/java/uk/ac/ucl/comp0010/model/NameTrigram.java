@@ -0,0 +1,24 @@
+package uk.ac.ucl.comp0010.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One entry of the trigram index on student or staff names.
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+
+@Data
+@AllArgsConstructor
+public class NameTrigram {
+
+  /**
+   * id of the student or staff.
+   */
+  private Integer ownerId;
+
+  private String trigram;
+
+}
@@ -0,0 +1,44 @@
+package uk.ac.ucl.comp0010.model;
+
+import java.util.Set;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import uk.ac.ucl.comp0010.enums.SearchType;
+
+/**
+ * A student, staff or module held in the search index.
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+
+@Getter
+@AllArgsConstructor
+public class SearchDocument {
+
+  private final SearchType type;
+
+  /**
+   * id of the student or staff, or code of the module.
+   */
+  private final String id;
+
+  private final String title;
+
+  private final String subtitle;
+
+  /**
+   * Lower case words the document is found by.
+   */
+  private final Set<String> tokens;
+
+  /**
+   * Leader of a module, null for other documents.
+   */
+  private final Integer staffId;
+
+  public String getKey() {
+    return type + ":" + id;
+  }
+
+}
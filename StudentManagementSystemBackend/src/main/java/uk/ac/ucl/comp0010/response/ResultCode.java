@@ -17,7 +17,8 @@ public enum ResultCode {
   FORBIDDEN(403, "Forbidden"),
   NOT_FOUND(404, "Not Found"),
   Method_Not_Allowed(405, "Method Not Allowed"),
-  ERROR(500, "Internal Service Error");
+  ERROR(500, "Internal Service Error"),
+  SERVICE_UNAVAILABLE(503, "Service Unavailable");
 
   /**
    * Status Code.
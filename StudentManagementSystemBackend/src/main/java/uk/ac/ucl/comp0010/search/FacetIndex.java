@@ -0,0 +1,145 @@
+package uk.ac.ucl.comp0010.search;
+
+import jakarta.annotation.Resource;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import uk.ac.ucl.comp0010.enums.FacetType;
+import uk.ac.ucl.comp0010.mapper.StaffMapper;
+import uk.ac.ucl.comp0010.mapper.StudentMapper;
+import uk.ac.ucl.comp0010.model.FacetCount;
+import uk.ac.ucl.comp0010.utils.TransactionUtils;
+
+/**
+ * Distinct programs, departments and titles with the number of accounts holding each.
+ *
+ * <p>
+ * The counts are loaded when the application starts. Adding, editing and deleting a student or
+ * staff moves one count, and imports reload the counts of the columns they touch. A value
+ * disappears once its count drops to zero. Changes are applied after the surrounding transaction
+ * commits, and values are kept sorted so they can be returned as they are. Writers share a lock
+ * instead of a monitor, so a reload waiting on the database doesn't pin a virtual thread.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-13
+ */
+
+@Component
+public class FacetIndex implements CommandLineRunner {
+
+  private final Map<FacetType, ConcurrentNavigableMap<String, Long>> facets =
+      new EnumMap<>(FacetType.class);
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  @Resource
+  private StudentMapper studentMapper;
+
+  @Resource
+  private StaffMapper staffMapper;
+
+  /**
+   * Create an empty map for every facet.
+   */
+
+  public FacetIndex() {
+    for (FacetType type : FacetType.values()) {
+      facets.put(type, new ConcurrentSkipListMap<>());
+    }
+  }
+
+  @Override
+  public void run(String... args) {
+    for (FacetType type : FacetType.values()) {
+      load(type);
+    }
+  }
+
+  /**
+   * Distinct values of a facet.
+   *
+   * @param type facet
+   * @return values in ascending order
+   */
+
+  public List<String> values(FacetType type) {
+    return new ArrayList<>(facets.get(type).keySet());
+  }
+
+  /**
+   * Move one account from a value to another once the current transaction commits.
+   *
+   * @param type     facet
+   * @param oldValue value before the write, null for a new account
+   * @param newValue value after the write, null for a deleted account
+   */
+
+  public void change(FacetType type, String oldValue, String newValue) {
+    if (oldValue != null && oldValue.equals(newValue)) {
+      return;
+    }
+    TransactionUtils.afterCommit(() -> {
+      lock.lock();
+      try {
+        adjust(type, oldValue, -1);
+        adjust(type, newValue, 1);
+      } finally {
+        lock.unlock();
+      }
+    });
+  }
+
+  /**
+   * Reload the counts of facets from the database once the current transaction commits.
+   *
+   * @param types facets changed by a bulk write
+   */
+
+  public void reload(FacetType... types) {
+    TransactionUtils.afterCommit(() -> {
+      for (FacetType type : types) {
+        load(type);
+      }
+    });
+  }
+
+  private void load(FacetType type) {
+    lock.lock();
+    try {
+      List<FacetCount> counts = switch (type) {
+        case program -> studentMapper.countPrograms();
+        case department -> staffMapper.countDepartments();
+        case title -> staffMapper.countTitles();
+      };
+      Map<String, Long> totals = new HashMap<>();
+      for (FacetCount count : counts) {
+        totals.put(count.getName(), count.getTotal());
+      }
+      // Update in place, so readers never see the facet empty while it reloads
+      ConcurrentNavigableMap<String, Long> values = facets.get(type);
+      values.keySet().retainAll(totals.keySet());
+      values.putAll(totals);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void adjust(FacetType type, String value, long delta) {
+    if (value == null || value.isBlank()) {
+      return;
+    }
+    facets.get(type).compute(value, (key, count) -> {
+      long total = (count == null ? 0 : count) + delta;
+      return total > 0 ? total : null;
+    });
+  }
+
+}
@@ -0,0 +1,472 @@
+package uk.ac.ucl.comp0010.search;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import jakarta.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import uk.ac.ucl.comp0010.entity.Module;
+import uk.ac.ucl.comp0010.entity.Staff;
+import uk.ac.ucl.comp0010.entity.Student;
+import uk.ac.ucl.comp0010.enums.SearchType;
+import uk.ac.ucl.comp0010.mapper.ModuleMapper;
+import uk.ac.ucl.comp0010.mapper.StaffMapper;
+import uk.ac.ucl.comp0010.mapper.StudentMapper;
+import uk.ac.ucl.comp0010.model.SearchDocument;
+import uk.ac.ucl.comp0010.utils.TransactionUtils;
+
+/**
+ * In memory prefix index over students, staff and modules for type-ahead search.
+ *
+ * <p>
+ * Every document is split into lower case words, and each word points to the documents holding
+ * it. The words are kept sorted, so all words starting with a prefix are one range of the map.
+ * The index is built when the application starts and the services refresh the documents they
+ * write. Refreshes run after the surrounding transaction commits, so rolled back writes never
+ * show up in the results. Writers share a lock instead of a monitor, so a rebuild waiting on the
+ * database doesn't pin a virtual thread.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+
+@Component
+public class SearchIndex implements CommandLineRunner {
+
+  private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  /**
+   * Order of documents matching a query equally well.
+   */
+  private static final Comparator<SearchDocument> TITLE_ORDER = Comparator
+      .comparingInt((SearchDocument document) -> document.getTitle().length())
+      .thenComparing(SearchDocument::getTitle)
+      .thenComparing(SearchDocument::getKey);
+
+  /**
+   * Documents by key.
+   */
+  private final Map<String, SearchDocument> documents = new ConcurrentHashMap<>();
+
+  /**
+   * Documents holding each word, in title order.
+   */
+  private final ConcurrentNavigableMap<String, NavigableSet<SearchDocument>> postings =
+      new ConcurrentSkipListMap<>();
+
+  /**
+   * Documents in title order.
+   */
+  private final NavigableSet<SearchDocument> titles = new ConcurrentSkipListSet<>(TITLE_ORDER);
+
+  /**
+   * Codes of the modules led by each staff, so modules follow their leader's name.
+   */
+  private final Map<Integer, Set<String>> modulesByStaff = new ConcurrentHashMap<>();
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  @Resource
+  private StudentMapper studentMapper;
+
+  @Resource
+  private StaffMapper staffMapper;
+
+  @Resource
+  private ModuleMapper moduleMapper;
+
+  @Override
+  public void run(String... args) {
+    rebuild();
+  }
+
+  /**
+   * Load every student, staff and module into the index.
+   */
+
+  public void rebuild() {
+    lock.lock();
+    try {
+      documents.clear();
+      postings.clear();
+      titles.clear();
+      modulesByStaff.clear();
+      for (Student student : studentMapper.selectList(studentColumns())) {
+        put(studentDocument(student));
+      }
+      Map<Integer, Staff> staffs = staffMapper.selectList(staffColumns()).stream()
+          .collect(Collectors.toMap(Staff::getId, Function.identity()));
+      for (Staff staff : staffs.values()) {
+        put(staffDocument(staff));
+      }
+      for (Module module : moduleMapper.selectList(null)) {
+        put(moduleDocument(module, staffs.get(module.getStaffId())));
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Reload students from the database once the current transaction commits.
+   *
+   * @param ids ids of added, edited or deleted students
+   */
+
+  public void refreshStudents(Collection<Integer> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    List<Integer> studentIds = List.copyOf(ids);
+    TransactionUtils.afterCommit(() -> {
+      Map<Integer, Student> students = studentMapper.selectList(
+              studentColumns().in("id", studentIds)).stream()
+          .collect(Collectors.toMap(Student::getId, Function.identity()));
+      lock.lock();
+      try {
+        for (Integer id : studentIds) {
+          remove(SearchType.student + ":" + id);
+          if (students.containsKey(id)) {
+            put(studentDocument(students.get(id)));
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+    });
+  }
+
+  /**
+   * Reload staff and the modules they lead once the current transaction commits.
+   *
+   * @param ids ids of added, edited or deleted staff
+   */
+
+  public void refreshStaffs(Collection<Integer> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    List<Integer> staffIds = List.copyOf(ids);
+    TransactionUtils.afterCommit(() -> {
+      Map<Integer, Staff> staffs = staffMapper.selectList(staffColumns().in("id", staffIds))
+          .stream()
+          .collect(Collectors.toMap(Staff::getId, Function.identity()));
+      Set<String> moduleCodes = new HashSet<>();
+      lock.lock();
+      try {
+        for (Integer id : staffIds) {
+          remove(SearchType.staff + ":" + id);
+          if (staffs.containsKey(id)) {
+            put(staffDocument(staffs.get(id)));
+          }
+          moduleCodes.addAll(modulesByStaff.getOrDefault(id, Set.of()));
+        }
+      } finally {
+        lock.unlock();
+      }
+      // Modules of deleted staff are removed by cascade and disappear on reload
+      reloadModules(moduleCodes);
+    });
+  }
+
+  /**
+   * Reload modules from the database once the current transaction commits.
+   *
+   * @param codes codes of added, edited or deleted modules
+   */
+
+  public void refreshModules(Collection<String> codes) {
+    if (codes.isEmpty()) {
+      return;
+    }
+    List<String> moduleCodes = List.copyOf(codes);
+    TransactionUtils.afterCommit(() -> reloadModules(moduleCodes));
+  }
+
+  /**
+   * Find the documents matching every word of a query.
+   *
+   * <p>
+   * A query word matches a document when one of the document's words starts with it. Documents
+   * matching more query words exactly come first, then shorter titles.
+   * </p>
+   *
+   * <p>
+   * Documents holding a query word exactly are looked up directly and ranked in title order, so
+   * a single word stops after the first few of them. The rest rank by title alone. They are
+   * found by scanning the prefix range of the longest query word and walking the documents in
+   * title order side by side, stopping as soon as either has the answer. A narrow range ends the
+   * scan early, while a short prefix covering most of the index fills the results within the
+   * first few titles.
+   * </p>
+   *
+   * @param query search text
+   * @param limit maximum number of results
+   * @return best matches, best first
+   */
+
+  public List<SearchDocument> search(String query, int limit) {
+    Set<String> terms = tokenize(query);
+    if (terms.isEmpty()) {
+      return List.of();
+    }
+    NavigableSet<SearchDocument> exact;
+    if (terms.size() == 1) {
+      exact = postings.getOrDefault(terms.iterator().next(), Collections.emptyNavigableSet());
+    } else {
+      exact = new TreeSet<>(TITLE_ORDER);
+      for (String term : terms) {
+        exact.addAll(postings.getOrDefault(term, Collections.emptyNavigableSet()));
+      }
+    }
+    List<SearchDocument> results = rank(exact, terms, limit);
+    if (results.size() < limit) {
+      results.addAll(prefixMatches(terms, limit - results.size()));
+    }
+    return results;
+  }
+
+  /**
+   * First documents in title order matching every query word, but none of them exactly.
+   */
+
+  private List<SearchDocument> prefixMatches(Set<String> terms, int count) {
+    // The longest word has the narrowest prefix range
+    String driver = terms.stream().max(Comparator.comparingInt(String::length)).orElseThrow();
+    Iterator<NavigableSet<SearchDocument>> range = postings.subMap(driver, true,
+        driver + Character.MAX_VALUE, true).values().iterator();
+    Iterator<SearchDocument> holders = Collections.emptyIterator();
+    Iterator<SearchDocument> titleOrder = titles.iterator();
+    NavigableSet<SearchDocument> inRange = new TreeSet<>(TITLE_ORDER);
+    List<SearchDocument> walked = new ArrayList<>();
+    while (true) {
+      while (!holders.hasNext() && range.hasNext()) {
+        holders = range.next().iterator();
+      }
+      if (!holders.hasNext()) {
+        return new ArrayList<>(inRange);
+      }
+      SearchDocument document = holders.next();
+      if (inRange.size() == count && TITLE_ORDER.compare(document, inRange.last()) >= 0) {
+        // The rest of this word's documents come later in title order
+        holders = Collections.emptyIterator();
+      } else if (isPrefixMatch(document, terms)) {
+        inRange.add(document);
+        if (inRange.size() > count) {
+          inRange.pollLast();
+        }
+      }
+      if (!titleOrder.hasNext()) {
+        return walked;
+      }
+      document = titleOrder.next();
+      if (isPrefixMatch(document, terms)) {
+        walked.add(document);
+        if (walked.size() == count) {
+          return walked;
+        }
+      }
+    }
+  }
+
+  private void reloadModules(Collection<String> codes) {
+    if (codes.isEmpty()) {
+      return;
+    }
+    List<Module> modules = moduleMapper.selectBatchIds(codes);
+    Set<Integer> staffIds = modules.stream().map(Module::getStaffId).collect(Collectors.toSet());
+    Map<Integer, Staff> staffs = staffIds.isEmpty() ? Map.of()
+        : staffMapper.selectList(staffColumns().in("id", staffIds)).stream()
+            .collect(Collectors.toMap(Staff::getId, Function.identity()));
+    lock.lock();
+    try {
+      for (String code : codes) {
+        remove(SearchType.module + ":" + code);
+      }
+      for (Module module : modules) {
+        put(moduleDocument(module, staffs.get(module.getStaffId())));
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void put(SearchDocument document) {
+    documents.put(document.getKey(), document);
+    for (String token : document.getTokens()) {
+      postings.computeIfAbsent(token, key -> new ConcurrentSkipListSet<>(TITLE_ORDER))
+          .add(document);
+    }
+    titles.add(document);
+    if (document.getStaffId() != null) {
+      modulesByStaff.computeIfAbsent(document.getStaffId(), key -> ConcurrentHashMap.newKeySet())
+          .add(document.getId());
+    }
+  }
+
+  private void remove(String key) {
+    SearchDocument document = documents.remove(key);
+    if (document == null) {
+      return;
+    }
+    titles.remove(document);
+    for (String token : document.getTokens()) {
+      NavigableSet<SearchDocument> holders = postings.get(token);
+      if (holders != null) {
+        holders.remove(document);
+        if (holders.isEmpty()) {
+          postings.remove(token, holders);
+        }
+      }
+    }
+    if (document.getStaffId() != null) {
+      Set<String> codes = modulesByStaff.get(document.getStaffId());
+      if (codes != null) {
+        codes.remove(document.getId());
+        if (codes.isEmpty()) {
+          modulesByStaff.remove(document.getStaffId(), codes);
+        }
+      }
+    }
+  }
+
+  private static SearchDocument studentDocument(Student student) {
+    return new SearchDocument(SearchType.student, student.getId().toString(),
+        fullName(student.getFirstName(), student.getLastName()), student.getProgramOfStudy(),
+        tokenize(student.getFirstName(), student.getLastName(), student.getUsername(),
+            student.getProgramOfStudy()), null);
+  }
+
+  private static SearchDocument staffDocument(Staff staff) {
+    return new SearchDocument(SearchType.staff, staff.getId().toString(),
+        fullName(staff.getFirstName(), staff.getLastName()), staff.getDepartment(),
+        tokenize(staff.getFirstName(), staff.getLastName(), staff.getUsername(),
+            staff.getDepartment(), staff.getTitle()), null);
+  }
+
+  private static SearchDocument moduleDocument(Module module, Staff leader) {
+    String leaderFirstName = leader == null ? null : leader.getFirstName();
+    String leaderLastName = leader == null ? null : leader.getLastName();
+    return new SearchDocument(SearchType.module, module.getCode(),
+        module.getCode() + " " + (module.getName() == null ? "" : module.getName()),
+        fullName(leaderFirstName, leaderLastName),
+        tokenize(module.getCode(), module.getName(), leaderFirstName, leaderLastName),
+        module.getStaffId());
+  }
+
+  private static QueryWrapper<Student> studentColumns() {
+    return new QueryWrapper<Student>()
+        .select("id", "first_name", "last_name", "username", "program_of_study");
+  }
+
+  private static QueryWrapper<Staff> staffColumns() {
+    return new QueryWrapper<Staff>()
+        .select("id", "first_name", "last_name", "username", "department", "title");
+  }
+
+  private static String fullName(String firstName, String lastName) {
+    return ((firstName == null ? "" : firstName) + " "
+        + (lastName == null ? "" : lastName)).trim();
+  }
+
+  private static Set<String> tokenize(String... texts) {
+    Set<String> tokens = new LinkedHashSet<>();
+    for (String text : texts) {
+      if (text == null) {
+        continue;
+      }
+      for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+        if (!token.isEmpty()) {
+          tokens.add(token);
+        }
+      }
+    }
+    return tokens;
+  }
+
+  private static List<SearchDocument> rank(NavigableSet<SearchDocument> candidates,
+      Set<String> terms, int limit) {
+    Comparator<Ranked> ranking = Comparator.comparingInt(Ranked::exactMatches).reversed()
+        .thenComparing(Ranked::document, TITLE_ORDER);
+    // Keep only the best results in a heap whose head is the worst of them
+    PriorityQueue<Ranked> best = new PriorityQueue<>(limit + 1, ranking.reversed());
+    for (SearchDocument document : candidates) {
+      Ranked ranked = new Ranked(document, exactMatches(document, terms));
+      if (best.size() == limit && ranking.compare(ranked, best.peek()) >= 0) {
+        // Later candidates have longer titles, so none beats a worst result holding every word
+        if (best.peek().exactMatches() == terms.size()) {
+          break;
+        }
+        continue;
+      }
+      if (!matchesAll(document, terms)) {
+        continue;
+      }
+      best.add(ranked);
+      if (best.size() > limit) {
+        best.poll();
+      }
+    }
+    return best.stream().sorted(ranking).map(Ranked::document)
+        .collect(Collectors.toCollection(ArrayList::new));
+  }
+
+  private static boolean isPrefixMatch(SearchDocument document, Set<String> terms) {
+    return exactMatches(document, terms) == 0 && matchesAll(document, terms);
+  }
+
+  private static boolean matchesAll(SearchDocument document, Set<String> terms) {
+    for (String term : terms) {
+      boolean matched = false;
+      for (String token : document.getTokens()) {
+        if (token.startsWith(term)) {
+          matched = true;
+          break;
+        }
+      }
+      if (!matched) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int exactMatches(SearchDocument document, Set<String> terms) {
+    int matches = 0;
+    for (String term : terms) {
+      if (document.getTokens().contains(term)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Matching document with the number of query words it holds exactly.
+   */
+  private record Ranked(SearchDocument document, int exactMatches) {
+  }
+
+}
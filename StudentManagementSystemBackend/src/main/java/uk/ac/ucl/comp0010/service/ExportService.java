@@ -0,0 +1,25 @@
+package uk.ac.ucl.comp0010.service;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * <p>
+ * Service Interface for csv exports.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-13
+ */
+public interface ExportService {
+
+  void exportStudents(boolean gzip, HttpServletResponse response);
+
+  void exportStaffs(boolean gzip, HttpServletResponse response);
+
+  void exportModules(boolean gzip, HttpServletResponse response);
+
+  void exportRecords(boolean gzip, HttpServletResponse response);
+
+  void exportRegistrations(Integer studentId, Long recordId, boolean gzip,
+      HttpServletResponse response);
+}
@@ -0,0 +1,21 @@
+package uk.ac.ucl.comp0010.service;
+
+import org.springframework.web.multipart.MultipartFile;
+import uk.ac.ucl.comp0010.enums.ImportType;
+import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.vo.ImportJobVo;
+
+/**
+ * <p>
+ * Service Interface for background csv imports.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-10
+ */
+public interface ImportJobService {
+
+  Result<ImportJobVo> submit(ImportType type, MultipartFile file);
+
+  Result<ImportJobVo> get(String id);
+}
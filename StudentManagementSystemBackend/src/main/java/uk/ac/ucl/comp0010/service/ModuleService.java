@@ -23,7 +23,7 @@ public interface ModuleService extends IService<Module> {
   Result<Object> add(CreateModuleDto createModuleDto);
 
   Result<IPage<ModuleListVo>> list(Integer current, Integer size, String code, String name,
-      String leader);
+      String leader, String after);
 
   Result<Object> edit(EditModuleDto editModuleDto, String code);
 
@@ -31,4 +31,12 @@ public interface ModuleService extends IService<Module> {
 
   Result<ModuleDetailVo> get(String code);
 
+  /**
+   * Strong entity tag of the details of a module, from its version.
+   *
+   * @param code module code
+   * @return entity tag, or null when there is no such module
+   */
+  String getEtag(String code);
+
 }
@@ -0,0 +1,25 @@
+package uk.ac.ucl.comp0010.service;
+
+import java.util.List;
+import uk.ac.ucl.comp0010.enums.AccountType;
+
+/**
+ * <p>
+ * Service Interface for hashing and checking passwords.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+public interface PasswordService {
+
+  String encode(AccountType accountType, String plainPassword);
+
+  List<String> encodeAll(AccountType accountType, List<String> plainPasswords);
+
+  boolean matches(String plainPassword, String hashedPassword);
+
+  boolean checkLogin(String plainPassword, String hashedPassword);
+
+  String rehashIfNeeded(AccountType accountType, String plainPassword, String hashedPassword);
+}
@@ -2,11 +2,16 @@ package uk.ac.ucl.comp0010.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.Map;
 import org.springframework.web.multipart.MultipartFile;
 import uk.ac.ucl.comp0010.dto.CreateRecordDto;
 import uk.ac.ucl.comp0010.dto.EditRecordDto;
 import uk.ac.ucl.comp0010.entity.Record;
+import uk.ac.ucl.comp0010.enums.CountMode;
+import uk.ac.ucl.comp0010.model.ImportJob;
 import uk.ac.ucl.comp0010.response.Result;
 import uk.ac.ucl.comp0010.vo.RecordDetailVo;
 import uk.ac.ucl.comp0010.vo.RecordListVo;
@@ -27,12 +32,29 @@ public interface RecordService extends IService<Record> {
   Result<Object> edit(EditRecordDto editRecordDto, Long id);
 
   Result<IPage<RecordListVo>> list(Integer current, Integer size,
-      Integer year, Integer month, Integer day, String moduleCode);
+      Integer year, Integer month, Integer day, LocalDate from, LocalDate to, String moduleCode,
+      String after, CountMode count);
 
   Result<Object> delete(Long id);
 
   Result<RecordDetailVo> get(Long id);
 
+  /**
+   * Strong entity tag of the details of a record, from its versions and its module's version.
+   *
+   * @param id record id
+   * @return entity tag, or null when there is no such record
+   */
+  String getEtag(Long id);
+
+  void addStats(Long recordId, Integer score);
+
+  void removeStats(Long recordId, Integer score);
+
+  void refreshStats(Collection<Long> recordIds);
+
   Result<Object> importRecordByCsv(MultipartFile file);
 
+  void importRecordByCsv(InputStream inputStream, ImportJob importJob);
+
 }
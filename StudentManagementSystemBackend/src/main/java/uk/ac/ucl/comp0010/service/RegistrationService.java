@@ -2,10 +2,13 @@ package uk.ac.ucl.comp0010.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import java.io.InputStream;
 import org.springframework.web.multipart.MultipartFile;
 import uk.ac.ucl.comp0010.dto.CreateRegistrationDto;
 import uk.ac.ucl.comp0010.dto.EditRegistrationDto;
 import uk.ac.ucl.comp0010.entity.Registration;
+import uk.ac.ucl.comp0010.enums.CountMode;
+import uk.ac.ucl.comp0010.model.ImportJob;
 import uk.ac.ucl.comp0010.response.Result;
 import uk.ac.ucl.comp0010.vo.RegistrationListVo;
 
@@ -25,10 +28,12 @@ public interface RegistrationService extends IService<Registration> {
   Result<Object> editRegistration(EditRegistrationDto editRegistrationDto, Long id);
 
   Result<IPage<RegistrationListVo>> list(Integer current, Integer size, Integer studentId,
-      Long recordId);
+      Long recordId, String after, CountMode count);
 
   Result<Object> delete(Long id);
 
   Result<Object> importRegistrationByCsv(MultipartFile file);
 
+  void importRegistrationByCsv(InputStream inputStream, ImportJob importJob);
+
 }
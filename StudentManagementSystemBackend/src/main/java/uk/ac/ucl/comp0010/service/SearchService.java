@@ -0,0 +1,18 @@
+package uk.ac.ucl.comp0010.service;
+
+import java.util.List;
+import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.vo.SearchResultVo;
+
+/**
+ * <p>
+ * Service Interface for type-ahead search.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+public interface SearchService {
+
+  Result<List<SearchResultVo>> search(String q, Integer limit);
+}
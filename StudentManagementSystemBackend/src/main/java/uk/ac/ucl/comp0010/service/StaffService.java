@@ -2,6 +2,7 @@ package uk.ac.ucl.comp0010.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import java.io.InputStream;
 import java.util.List;
 import org.springframework.web.multipart.MultipartFile;
 import uk.ac.ucl.comp0010.dto.CreateStaffDto;
@@ -9,6 +10,7 @@ import uk.ac.ucl.comp0010.dto.EditStaffDto;
 import uk.ac.ucl.comp0010.dto.LoginDto;
 import uk.ac.ucl.comp0010.dto.ResetPasswordDto;
 import uk.ac.ucl.comp0010.entity.Staff;
+import uk.ac.ucl.comp0010.model.ImportJob;
 import uk.ac.ucl.comp0010.response.Result;
 import uk.ac.ucl.comp0010.vo.LoginVo;
 import uk.ac.ucl.comp0010.vo.StaffListVo;
@@ -30,10 +32,12 @@ public interface StaffService extends IService<Staff> {
   Result<Object> addStaff(CreateStaffDto createStaffDto);
 
   Result<IPage<StaffListVo>> listStaffs(Integer current, Integer size, Integer id, String fullName,
-      String department, String title);
+      String department, String title, String after);
 
   Result<Object> importStaff(MultipartFile file);
 
+  void importStaff(InputStream inputStream, ImportJob importJob);
+
   Result<Object> edit(EditStaffDto editStaffDto, Integer id);
 
   Result<Object> delete(Integer id);
@@ -2,6 +2,7 @@ package uk.ac.ucl.comp0010.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import java.io.InputStream;
 import java.util.List;
 import org.springframework.web.multipart.MultipartFile;
 import uk.ac.ucl.comp0010.dto.CreateStudentDto;
@@ -9,7 +10,9 @@ import uk.ac.ucl.comp0010.dto.EditStudentDto;
 import uk.ac.ucl.comp0010.dto.LoginDto;
 import uk.ac.ucl.comp0010.dto.ResetPasswordDto;
 import uk.ac.ucl.comp0010.entity.Student;
+import uk.ac.ucl.comp0010.model.ImportJob;
 import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.vo.GradeSummaryVo;
 import uk.ac.ucl.comp0010.vo.LoginVo;
 import uk.ac.ucl.comp0010.vo.StudentListVo;
 import uk.ac.ucl.comp0010.vo.StudentRegistrationListVo;
@@ -31,10 +34,12 @@ public interface StudentService extends IService<Student> {
   Result<Object> addStudent(CreateStudentDto createStudentDto);
 
   Result<IPage<StudentListVo>> listStudents(Integer current, Integer size, Integer id,
-      String fullName, String username, String programOfStudy);
+      String fullName, String username, String programOfStudy, String after);
 
   Result<Object> importStudent(MultipartFile file);
 
+  void importStudent(InputStream inputStream, ImportJob importJob);
+
   Result<Object> edit(EditStudentDto editStudentDto, Integer id);
 
   Result<Object> delete(Integer id);
@@ -47,5 +52,9 @@ public interface StudentService extends IService<Student> {
 
   Result<IPage<StudentRegistrationListVo>> listStudentRegistrations(Integer current, Integer size);
 
+  Result<GradeSummaryVo> gradeSummary();
+
+  Result<GradeSummaryVo> getStudentGradeSummary(Integer id);
+
   Result<List<String>> listPrograms();
 }
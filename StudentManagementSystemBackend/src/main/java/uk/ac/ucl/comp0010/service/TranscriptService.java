@@ -0,0 +1,20 @@
+package uk.ac.ucl.comp0010.service;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * <p>
+ * Service Interface for transcript documents.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-12
+ */
+public interface TranscriptService {
+
+  void exportTranscript(HttpServletResponse response);
+
+  void exportTranscript(Integer studentId, HttpServletResponse response);
+
+  void exportProgramTranscripts(String programOfStudy, HttpServletResponse response);
+}
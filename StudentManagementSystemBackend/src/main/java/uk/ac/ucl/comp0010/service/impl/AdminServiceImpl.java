@@ -1,7 +1,9 @@
 package uk.ac.ucl.comp0010.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import jakarta.annotation.Resource;
 import org.springframework.stereotype.Service;
 import uk.ac.ucl.comp0010.dto.LoginDto;
 import uk.ac.ucl.comp0010.dto.ResetPasswordDto;
@@ -12,8 +14,8 @@ import uk.ac.ucl.comp0010.exception.CustomException;
 import uk.ac.ucl.comp0010.mapper.AdminMapper;
 import uk.ac.ucl.comp0010.response.Result;
 import uk.ac.ucl.comp0010.service.AdminService;
+import uk.ac.ucl.comp0010.service.PasswordService;
 import uk.ac.ucl.comp0010.utils.JwtUtils;
-import uk.ac.ucl.comp0010.utils.PasswordEncoderUtils;
 import uk.ac.ucl.comp0010.vo.LoginVo;
 
 
@@ -28,6 +30,9 @@ import uk.ac.ucl.comp0010.vo.LoginVo;
 @Service
 public class AdminServiceImpl extends ServiceImpl<AdminMapper, Admin> implements AdminService {
 
+  @Resource
+  private PasswordService passwordService;
+
   /**
    * login admin account.
    *
@@ -42,9 +47,15 @@ public class AdminServiceImpl extends ServiceImpl<AdminMapper, Admin> implements
     if (admin == null) {
       throw new CustomException("No such username");
     }
-    if (!PasswordEncoderUtils.checkPassword(loginDto.getPassword(), admin.getPassword())) {
+    if (!passwordService.checkLogin(loginDto.getPassword(), admin.getPassword())) {
       throw new CustomException("Username or password incorrect");
     }
+    String rehashedPassword = passwordService.rehashIfNeeded(AccountType.admin,
+        loginDto.getPassword(), admin.getPassword());
+    if (rehashedPassword != null) {
+      this.update(new UpdateWrapper<Admin>().set("password", rehashedPassword)
+          .eq("id", admin.getId()));
+    }
     String accessToken = JwtUtils.generateJwtToken(admin.getId(), AccountType.admin,
         JwtType.access_token);
     String refreshToken = JwtUtils.generateJwtToken(admin.getId(), AccountType.admin,
@@ -70,11 +81,11 @@ public class AdminServiceImpl extends ServiceImpl<AdminMapper, Admin> implements
     if (admin == null) {
       throw new CustomException("Admin not found");
     }
-    if (!PasswordEncoderUtils
-        .checkPassword(resetPasswordDto.getOldPassword(), admin.getPassword())) {
+    if (!passwordService.matches(resetPasswordDto.getOldPassword(), admin.getPassword())) {
       throw new CustomException("Old password is incorrect");
     }
-    admin.setPassword(PasswordEncoderUtils.encode(resetPasswordDto.getNewPassword()));
+    admin.setPassword(
+        passwordService.encode(AccountType.admin, resetPasswordDto.getNewPassword()));
     this.updateById(admin);
   }
 
@@ -3,7 +3,7 @@ package uk.ac.ucl.comp0010.service.impl;
 import jakarta.annotation.Resource;
 import org.hibernate.validator.internal.util.stereotypes.Lazy;
 import org.springframework.stereotype.Service;
-import uk.ac.ucl.comp0010.aspect.LoginAspect;
+import uk.ac.ucl.comp0010.context.LoginContextHolder;
 import uk.ac.ucl.comp0010.dto.ResetPasswordDto;
 import uk.ac.ucl.comp0010.enums.AccountType;
 import uk.ac.ucl.comp0010.model.LoginEntity;
@@ -43,7 +43,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
    */
   @Override
   public void resetPassword(ResetPasswordDto resetPasswordDto) {
-    LoginEntity loginEntity = LoginAspect.threadLocal.get();
+    LoginEntity loginEntity = LoginContextHolder.get();
     Integer accountId = loginEntity.getId();
     AccountType accountType = loginEntity.getAccountType();
 
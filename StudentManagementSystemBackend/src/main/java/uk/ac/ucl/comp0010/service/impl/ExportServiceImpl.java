@@ -0,0 +1,152 @@
+package uk.ac.ucl.comp0010.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import uk.ac.ucl.comp0010.entity.Staff;
+import uk.ac.ucl.comp0010.entity.Student;
+import uk.ac.ucl.comp0010.mapper.ModuleMapper;
+import uk.ac.ucl.comp0010.mapper.RecordMapper;
+import uk.ac.ucl.comp0010.mapper.RegistrationMapper;
+import uk.ac.ucl.comp0010.mapper.StaffMapper;
+import uk.ac.ucl.comp0010.mapper.StudentMapper;
+import uk.ac.ucl.comp0010.service.ExportService;
+import uk.ac.ucl.comp0010.utils.CsvUtils;
+import uk.ac.ucl.comp0010.vo.ModuleListVo;
+import uk.ac.ucl.comp0010.vo.RecordDetailVo;
+import uk.ac.ucl.comp0010.vo.RegistrationListVo;
+
+/**
+ * <p>
+ * Implementation for Export Service.
+ * </p>
+ *
+ * <p>
+ * Every export reads its rows through a forward only cursor and writes each row to the response
+ * as it arrives, so memory use stays flat however many rows are exported. The exports run in a
+ * read only transaction, which some drivers need to fetch a cursor in batches. Column names
+ * follow the csv imports, so exported accounts and modules can be imported again.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-13
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+
+  @Resource
+  private StudentMapper studentMapper;
+
+  @Resource
+  private StaffMapper staffMapper;
+
+  @Resource
+  private ModuleMapper moduleMapper;
+
+  @Resource
+  private RecordMapper recordMapper;
+
+  @Resource
+  private RegistrationMapper registrationMapper;
+
+  /**
+   * Export every student, without passwords.
+   *
+   * @param gzip     compress the file
+   * @param response response the file is written to
+   */
+  @Transactional(readOnly = true)
+  @Override
+  public void exportStudents(boolean gzip, HttpServletResponse response) {
+    CsvUtils.<Student>writeCsv(response, "students", gzip,
+        new String[] {"id", "username", "firstName", "lastName", "email", "birthDate",
+            "programOfStudy", "graduationYear", "department"},
+        student -> new Object[] {student.getId(), student.getUsername(),
+            student.getFirstName(), student.getLastName(), student.getEmail(),
+            student.getBirthDate(), student.getProgramOfStudy(), student.getGraduationYear(),
+            student.getDepartment()},
+        studentMapper::export);
+  }
+
+  /**
+   * Export every staff, without passwords.
+   *
+   * @param gzip     compress the file
+   * @param response response the file is written to
+   */
+  @Transactional(readOnly = true)
+  @Override
+  public void exportStaffs(boolean gzip, HttpServletResponse response) {
+    CsvUtils.<Staff>writeCsv(response, "staffs", gzip,
+        new String[] {"id", "username", "firstName", "lastName", "email", "title",
+            "department"},
+        staff -> new Object[] {staff.getId(), staff.getUsername(), staff.getFirstName(),
+            staff.getLastName(), staff.getEmail(), staff.getTitle(), staff.getDepartment()},
+        staffMapper::export);
+  }
+
+  /**
+   * Export every module with its leader.
+   *
+   * @param gzip     compress the file
+   * @param response response the file is written to
+   */
+  @Transactional(readOnly = true)
+  @Override
+  public void exportModules(boolean gzip, HttpServletResponse response) {
+    CsvUtils.<ModuleListVo>writeCsv(response, "modules", gzip,
+        new String[] {"code", "name", "mnc", "credits", "staffId", "staffFirstName",
+            "staffLastName"},
+        module -> new Object[] {module.getCode(), module.getName(), module.getMnc(),
+            module.getCredits(), module.getStaffId(), module.getStaffFirstName(),
+            module.getStaffLastName()},
+        moduleMapper::export);
+  }
+
+  /**
+   * Export every record with its score aggregates.
+   *
+   * @param gzip     compress the file
+   * @param response response the file is written to
+   */
+  @Transactional(readOnly = true)
+  @Override
+  public void exportRecords(boolean gzip, HttpServletResponse response) {
+    CsvUtils.<RecordDetailVo>writeCsv(response, "records", gzip,
+        new String[] {"id", "moduleCode", "moduleName", "date", "averageScore",
+            "numberOfCandidates", "passRate", "minScore", "maxScore"},
+        record -> new Object[] {record.getId(), record.getModuleCode(), record.getModuleName(),
+            record.getDate(), record.getAverageScore(), record.getNumberOfCandidates(),
+            record.getPassRate(), record.getMinScore(), record.getMaxScore()},
+        recordMapper::export);
+  }
+
+  /**
+   * Export registrations, optionally of one student or record.
+   *
+   * @param studentId (optional) the ID of the student to filter by
+   * @param recordId  (optional) the ID of the record to filter by
+   * @param gzip      compress the file
+   * @param response  response the file is written to
+   */
+  @Transactional(readOnly = true)
+  @Override
+  public void exportRegistrations(Integer studentId, Long recordId, boolean gzip,
+      HttpServletResponse response) {
+    QueryWrapper<RegistrationListVo> wrapper = new QueryWrapper<RegistrationListVo>()
+        .eq(studentId != null, "student_id", studentId)
+        .eq(recordId != null, "record_id", recordId)
+        .orderByAsc("registration.id");
+    CsvUtils.<RegistrationListVo>writeCsv(response, "registrations", gzip,
+        new String[] {"id", "recordId", "moduleCode", "moduleName", "examDate", "studentId",
+            "studentFirstName", "studentLastName", "score", "registrationTime"},
+        registration -> new Object[] {registration.getId(), registration.getRecordId(),
+            registration.getModuleCode(), registration.getModuleName(),
+            registration.getExamDate(), registration.getStudentId(),
+            registration.getStudentFirstName(), registration.getStudentLastName(),
+            registration.getScore(), registration.getRegistrationTime()},
+        handler -> registrationMapper.export(wrapper, handler));
+  }
+}
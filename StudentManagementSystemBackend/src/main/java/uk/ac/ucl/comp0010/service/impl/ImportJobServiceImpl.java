@@ -0,0 +1,164 @@
+package uk.ac.ucl.comp0010.service.impl;
+
+import jakarta.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import uk.ac.ucl.comp0010.context.LoginContextHolder;
+import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.enums.ImportType;
+import uk.ac.ucl.comp0010.exception.CustomException;
+import uk.ac.ucl.comp0010.exception.NoAccessException;
+import uk.ac.ucl.comp0010.exception.ServerException;
+import uk.ac.ucl.comp0010.model.ImportJob;
+import uk.ac.ucl.comp0010.model.LoginEntity;
+import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.service.ImportJobService;
+import uk.ac.ucl.comp0010.service.RecordService;
+import uk.ac.ucl.comp0010.service.RegistrationService;
+import uk.ac.ucl.comp0010.service.StaffService;
+import uk.ac.ucl.comp0010.service.StudentService;
+import uk.ac.ucl.comp0010.utils.CsvUtils;
+import uk.ac.ucl.comp0010.vo.ImportJobVo;
+
+/**
+ * <p>
+ * Implementation for Import Job Service.
+ * </p>
+ *
+ * <p>
+ * The uploaded file is copied to a temporary file so the request can return at once, then the
+ * import runs on the import executor. Jobs are kept in memory for an hour after they finish.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-10
+ */
+@Service
+public class ImportJobServiceImpl implements ImportJobService {
+
+  private static final Duration JOB_RETENTION = Duration.ofHours(1);
+
+  private final Map<String, ImportJob> importJobs = new ConcurrentHashMap<>();
+
+  @Resource
+  private Executor importJobExecutor;
+
+  @Resource
+  private StudentService studentService;
+
+  @Resource
+  private StaffService staffService;
+
+  @Resource
+  private RecordService recordService;
+
+  @Resource
+  private RegistrationService registrationService;
+
+  /**
+   * Start importing a csv file in the background.
+   *
+   * @param type import type
+   * @param file csv file
+   * @return the created job
+   */
+  @Override
+  public Result<ImportJobVo> submit(ImportType type, MultipartFile file) {
+    if (file.isEmpty()) {
+      throw new CustomException("The file is empty!");
+    }
+    removeExpiredJobs();
+    Path tempFile;
+    try {
+      tempFile = Files.createTempFile("import-" + type + "-", ".csv");
+      file.transferTo(tempFile);
+    } catch (IOException e) {
+      throw new ServerException("Reading csv file error");
+    }
+    LoginEntity loginEntity = LoginContextHolder.get();
+    ImportJob importJob = new ImportJob(type, loginEntity.getId(), loginEntity.getAccountType());
+    importJobs.put(importJob.getId(), importJob);
+    try {
+      importJobExecutor.execute(() -> run(importJob, tempFile));
+    } catch (RejectedExecutionException e) {
+      importJobs.remove(importJob.getId());
+      deleteQuietly(tempFile);
+      throw new ServerException("Too many imports running, please try again later");
+    }
+    return Result.success(new ImportJobVo(importJob));
+  }
+
+  /**
+   * Get the progress of an import job.
+   *
+   * <p>
+   * Only the account which submitted the job and admins can see it.
+   * </p>
+   *
+   * @param id job id
+   * @return progress of the job
+   */
+  @Override
+  public Result<ImportJobVo> get(String id) {
+    ImportJob importJob = importJobs.get(id);
+    if (importJob == null) {
+      throw new CustomException("No such import job");
+    }
+    LoginEntity loginEntity = LoginContextHolder.get();
+    if (loginEntity.getAccountType() != AccountType.admin
+        && (loginEntity.getAccountType() != importJob.getAccountType()
+        || !loginEntity.getId().equals(importJob.getAccountId()))) {
+      throw new NoAccessException("No access To the Resources");
+    }
+    return Result.success(new ImportJobVo(importJob));
+  }
+
+  private void run(ImportJob importJob, Path tempFile) {
+    try {
+      try (InputStream inputStream = Files.newInputStream(tempFile)) {
+        importJob.start(CsvUtils.countRows(inputStream));
+      }
+      try (InputStream inputStream = Files.newInputStream(tempFile)) {
+        switch (importJob.getType()) {
+          case student -> studentService.importStudent(inputStream, importJob);
+          case staff -> staffService.importStaff(inputStream, importJob);
+          case record -> recordService.importRecordByCsv(inputStream, importJob);
+          case registration -> registrationService.importRegistrationByCsv(inputStream, importJob);
+          default -> throw new ServerException("Import type not supported");
+        }
+      }
+      importJob.complete();
+    } catch (CustomException | ServerException e) {
+      importJob.fail(e.getMessage());
+    } catch (IOException | RuntimeException e) {
+      importJob.fail("Import failed");
+    } finally {
+      deleteQuietly(tempFile);
+    }
+  }
+
+  private void removeExpiredJobs() {
+    LocalDateTime expiredBefore = LocalDateTime.now().minus(JOB_RETENTION);
+    importJobs.values().removeIf(importJob -> importJob.getFinishedAt() != null
+        && importJob.getFinishedAt().isBefore(expiredBefore));
+  }
+
+  private static void deleteQuietly(Path tempFile) {
+    try {
+      Files.deleteIfExists(tempFile);
+    } catch (IOException e) {
+      // The temporary directory is cleaned by the system
+    }
+  }
+
+}
@@ -5,17 +5,27 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import jakarta.annotation.Resource;
+import jakarta.transaction.Transactional;
+import java.io.Serializable;
+import java.util.List;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import uk.ac.ucl.comp0010.cache.AccountCache;
+import uk.ac.ucl.comp0010.cache.GradeSummaryCache;
+import uk.ac.ucl.comp0010.cache.ModuleCache;
+import uk.ac.ucl.comp0010.cache.RecordCache;
 import uk.ac.ucl.comp0010.dto.CreateModuleDto;
 import uk.ac.ucl.comp0010.dto.EditModuleDto;
 import uk.ac.ucl.comp0010.entity.Module;
-import uk.ac.ucl.comp0010.entity.Staff;
+import uk.ac.ucl.comp0010.enums.AccountType;
 import uk.ac.ucl.comp0010.exception.CustomException;
 import uk.ac.ucl.comp0010.mapper.ModuleMapper;
+import uk.ac.ucl.comp0010.model.CursorPage;
 import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.search.SearchIndex;
 import uk.ac.ucl.comp0010.service.ModuleService;
 import uk.ac.ucl.comp0010.service.StaffService;
+import uk.ac.ucl.comp0010.utils.CursorUtils;
 import uk.ac.ucl.comp0010.vo.ModuleDetailVo;
 import uk.ac.ucl.comp0010.vo.ModuleListVo;
 
@@ -38,6 +48,32 @@ public class ModuleServiceImpl extends ServiceImpl<ModuleMapper, Module> impleme
   @Resource
   private ModuleMapper moduleMapper;
 
+  @Resource
+  private SearchIndex searchIndex;
+
+  @Resource
+  private GradeSummaryCache gradeSummaryCache;
+
+  @Resource
+  private ModuleCache moduleCache;
+
+  @Resource
+  private RecordCache recordCache;
+
+  @Resource
+  private AccountCache accountCache;
+
+  /**
+   * Get a module by code, through the module cache.
+   *
+   * @param id module code, converted to a string so any key type shares one cache entry
+   * @return copy of the module, or null when it doesn't exist
+   */
+  @Override
+  public Module getById(Serializable id) {
+    return moduleCache.get(id.toString(), super::getById);
+  }
+
   /**
    * Add Modules.
    *
@@ -64,12 +100,12 @@ public class ModuleServiceImpl extends ServiceImpl<ModuleMapper, Module> impleme
         || createModuleDto.getCredits() < 0)) {
       throw new CustomException("Credits must between 0 and 100!");
     }
-    Staff staff = staffService.getById(createModuleDto.getStaffId());
-    if (staff == null) {
+    if (!staffExists(createModuleDto.getStaffId())) {
       throw new CustomException("No such staff!");
     }
     Module module = new Module(createModuleDto);
     this.save(module);
+    searchIndex.refreshModules(List.of(module.getCode()));
     return Result.success();
   }
 
@@ -78,11 +114,12 @@ public class ModuleServiceImpl extends ServiceImpl<ModuleMapper, Module> impleme
    *
    * @param current current page number
    * @param size    page size
+   * @param after   cursor of the previous page for keyset paging, empty for the first page
    * @return page
    */
   @Override
   public Result<IPage<ModuleListVo>> list(Integer current, Integer size, String code, String name,
-      String leader) {
+      String leader, String after) {
     QueryWrapper<ModuleListVo> wrapper = new QueryWrapper<>();
     if (code != null && !code.isBlank()) {
       wrapper.like("code", code);
@@ -94,6 +131,12 @@ public class ModuleServiceImpl extends ServiceImpl<ModuleMapper, Module> impleme
       wrapper.apply("CONCAT(staff.first_name, ' ', staff.last_name) LIKE {0}",
           "%" + leader + "%");
     }
+    if (after != null) {
+      CursorPage<ModuleListVo> page = CursorPage.seek(wrapper, "module.code",
+          CursorUtils.decode(after), size);
+      moduleMapper.list(page, wrapper);
+      return Result.success(page.withNextCursor(ModuleListVo::getCode));
+    }
     IPage<ModuleListVo> ipage = new Page<>(current, size);
     return Result.success(moduleMapper.list(ipage, wrapper));
   }
@@ -105,6 +148,7 @@ public class ModuleServiceImpl extends ServiceImpl<ModuleMapper, Module> impleme
    * @param code          editing module code
    * @return success
    */
+  @Transactional
   @Override
   public Result<Object> edit(EditModuleDto editModuleDto, String code) {
     Module module = this.getById(code);
@@ -113,8 +157,7 @@ public class ModuleServiceImpl extends ServiceImpl<ModuleMapper, Module> impleme
     }
     // Staff Check
     if (editModuleDto.getStaffId() != null) {
-      Staff staffForCheck = staffService.getById(editModuleDto.getStaffId());
-      if (staffForCheck == null) {
+      if (!staffExists(editModuleDto.getStaffId())) {
         throw new CustomException("No such staff!");
       }
     }
@@ -124,12 +167,21 @@ public class ModuleServiceImpl extends ServiceImpl<ModuleMapper, Module> impleme
         throw new CustomException("Credits must between 0 and 100!");
       }
     }
+    boolean creditsChanged = editModuleDto.getCredits() != null
+        && !editModuleDto.getCredits().equals(module.getCredits());
     module.setCode(code);
     module.setName(editModuleDto.getName());
     module.setMnc(editModuleDto.getMnc());
     module.setCredits(editModuleDto.getCredits());
     module.setStaffId(editModuleDto.getStaffId());
-    this.updateById(module);
+    if (!this.updateById(module)) {
+      throw new CustomException("Module was changed by someone else, please retry!");
+    }
+    moduleCache.evict(List.of(code));
+    searchIndex.refreshModules(List.of(code));
+    if (creditsChanged) {
+      gradeSummaryCache.evictAll();
+    }
     return Result.success();
   }
 
@@ -139,6 +191,7 @@ public class ModuleServiceImpl extends ServiceImpl<ModuleMapper, Module> impleme
    * @param code deleting module code
    * @return success
    */
+  @Transactional
   @Override
   public Result<Object> delete(String code) {
     Module module = this.getById(code);
@@ -146,6 +199,11 @@ public class ModuleServiceImpl extends ServiceImpl<ModuleMapper, Module> impleme
       throw new CustomException("No such module!");
     }
     this.removeById(code);
+    moduleCache.evict(List.of(code));
+    // Records of the module are deleted by cascade
+    recordCache.evictAll();
+    searchIndex.refreshModules(List.of(code));
+    gradeSummaryCache.evictAll();
     return Result.success();
   }
 
@@ -163,4 +221,25 @@ public class ModuleServiceImpl extends ServiceImpl<ModuleMapper, Module> impleme
     }
     return Result.success(moduleDetail);
   }
+
+  /**
+   * Entity tag of the details of a module.
+   *
+   * <p>
+   * Read from the module cache, so a request whose tag still matches never reaches the database.
+   * </p>
+   *
+   * @param code Module Code
+   * @return entity tag, or null when there is no such module
+   */
+  @Override
+  public String getEtag(String code) {
+    Module module = this.getById(code);
+    return module == null ? null : "\"" + module.getVersion() + "\"";
+  }
+
+  private boolean staffExists(Integer staffId) {
+    return accountCache.exists(AccountType.staff, staffId,
+        (accountType, id) -> staffService.getById(id) != null);
+  }
 }
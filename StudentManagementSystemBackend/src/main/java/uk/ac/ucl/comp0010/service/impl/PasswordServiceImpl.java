@@ -0,0 +1,136 @@
+package uk.ac.ucl.comp0010.service.impl;
+
+import jakarta.annotation.Resource;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.springframework.stereotype.Service;
+import uk.ac.ucl.comp0010.config.PasswordProperties;
+import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.exception.ServerException;
+import uk.ac.ucl.comp0010.response.ResultCode;
+import uk.ac.ucl.comp0010.service.PasswordService;
+import uk.ac.ucl.comp0010.utils.PasswordHasher;
+
+/**
+ * <p>
+ * Implementation for Password Service.
+ * </p>
+ *
+ * <p>
+ * New hashes use the cost configured for the account type. Logins run on the bounded login
+ * executor, and bulk hashing runs on the password hash executor.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+@Service
+public class PasswordServiceImpl implements PasswordService {
+
+  @Resource
+  private PasswordHasher passwordHasher;
+
+  @Resource
+  private PasswordProperties passwordProperties;
+
+  @Resource
+  private Executor passwordHashExecutor;
+
+  @Resource
+  private Executor loginExecutor;
+
+  /**
+   * Hash a password with the cost of the account type.
+   *
+   * @param accountType   type of the account owning the password
+   * @param plainPassword raw password
+   * @return hashed password
+   */
+  @Override
+  public String encode(AccountType accountType, String plainPassword) {
+    return passwordHasher.hash(plainPassword, passwordProperties.getCost(accountType));
+  }
+
+  /**
+   * Hash a batch of passwords in parallel.
+   *
+   * <p>
+   * The hashes are returned in the same order as the given passwords.
+   * </p>
+   *
+   * @param accountType    type of the accounts owning the passwords
+   * @param plainPasswords raw passwords
+   * @return hashed passwords
+   */
+  @Override
+  public List<String> encodeAll(AccountType accountType, List<String> plainPasswords) {
+    List<CompletableFuture<String>> futures = plainPasswords.stream()
+        .map(password -> CompletableFuture.supplyAsync(
+            () -> encode(accountType, password), passwordHashExecutor))
+        .toList();
+    try {
+      return futures.stream().map(CompletableFuture::join).toList();
+    } catch (CompletionException e) {
+      throw new ServerException("Encoding password error");
+    }
+  }
+
+  /**
+   * Check if the password is correct.
+   *
+   * @param plainPassword  raw password
+   * @param hashedPassword hashed password
+   * @return True if password is correct, False if password is incorrect.
+   */
+  @Override
+  public boolean matches(String plainPassword, String hashedPassword) {
+    return passwordHasher.verify(plainPassword, hashedPassword);
+  }
+
+  /**
+   * Check the password of a login on the login executor.
+   *
+   * @param plainPassword  raw password
+   * @param hashedPassword hashed password
+   * @return True if password is correct, False if password is incorrect.
+   * @throws ServerException with 503 when the login executor is full
+   */
+  @Override
+  public boolean checkLogin(String plainPassword, String hashedPassword) {
+    try {
+      return CompletableFuture.supplyAsync(
+          () -> matches(plainPassword, hashedPassword), loginExecutor).join();
+    } catch (RejectedExecutionException e) {
+      throw new ServerException(ResultCode.SERVICE_UNAVAILABLE,
+          "Too many logins, please try again later");
+    } catch (CompletionException e) {
+      throw new ServerException("Checking password error");
+    }
+  }
+
+  /**
+   * Rehash a password after a successful login when its cost isn't the configured one.
+   *
+   * @param accountType    type of the account
+   * @param plainPassword  raw password, already checked
+   * @param hashedPassword stored hash
+   * @return new hash to store, or null when the stored one is up to date
+   */
+  @Override
+  public String rehashIfNeeded(AccountType accountType, String plainPassword,
+      String hashedPassword) {
+    if (passwordHasher.costOf(hashedPassword) == passwordProperties.getCost(accountType)) {
+      return null;
+    }
+    try {
+      return CompletableFuture.supplyAsync(
+          () -> encode(accountType, plainPassword), loginExecutor).join();
+    } catch (RejectedExecutionException | CompletionException e) {
+      // The login already succeeded, the hash is upgraded on a later login
+      return null;
+    }
+  }
+}
@@ -6,25 +6,38 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import jakarta.annotation.Resource;
 import jakarta.transaction.Transactional;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import uk.ac.ucl.comp0010.cache.CountCache;
+import uk.ac.ucl.comp0010.cache.GradeSummaryCache;
+import uk.ac.ucl.comp0010.cache.RecordCache;
 import uk.ac.ucl.comp0010.dto.CreateRecordDto;
 import uk.ac.ucl.comp0010.dto.EditRecordDto;
 import uk.ac.ucl.comp0010.entity.Module;
 import uk.ac.ucl.comp0010.entity.Record;
+import uk.ac.ucl.comp0010.enums.CountMode;
 import uk.ac.ucl.comp0010.exception.CustomException;
+import uk.ac.ucl.comp0010.mapper.ModuleMapper;
 import uk.ac.ucl.comp0010.mapper.RecordMapper;
+import uk.ac.ucl.comp0010.model.CursorPage;
+import uk.ac.ucl.comp0010.model.ImportJob;
 import uk.ac.ucl.comp0010.response.Result;
 import uk.ac.ucl.comp0010.service.ModuleService;
 import uk.ac.ucl.comp0010.service.RecordService;
 import uk.ac.ucl.comp0010.utils.CsvUtils;
+import uk.ac.ucl.comp0010.utils.CursorUtils;
 import uk.ac.ucl.comp0010.vo.RecordDetailVo;
 import uk.ac.ucl.comp0010.vo.RecordListVo;
 
@@ -48,6 +61,29 @@ public class RecordServiceImpl extends ServiceImpl<RecordMapper, Record>
   @Resource
   private RecordMapper recordMapper;
 
+  @Resource
+  private ModuleMapper moduleMapper;
+
+  @Resource
+  private CountCache countCache;
+
+  @Resource
+  private GradeSummaryCache gradeSummaryCache;
+
+  @Resource
+  private RecordCache recordCache;
+
+  /**
+   * Get a record by id, through the record cache.
+   *
+   * @param id record id, converted to a long so integer ids share the cache entry
+   * @return copy of the record, or null when it doesn't exist
+   */
+  @Override
+  public Record getById(Serializable id) {
+    return recordCache.get(Long.valueOf(id.toString()), super::getById);
+  }
+
   /**
    * Create Record.
    *
@@ -82,6 +118,7 @@ public class RecordServiceImpl extends ServiceImpl<RecordMapper, Record>
    * @param id            ID
    * @return success
    */
+  @Transactional
   @Override
   public Result<Object> edit(EditRecordDto editRecordDto, Long id) {
     Record record = this.getById(id);
@@ -99,7 +136,12 @@ public class RecordServiceImpl extends ServiceImpl<RecordMapper, Record>
     if (editRecordDto.getDate() != null) {
       record.setDate(editRecordDto.getDate());
     }
-    this.updateById(record);
+    if (!this.updateById(record)) {
+      throw new CustomException("Record was changed by someone else, please retry!");
+    }
+    recordCache.evict(List.of(id));
+    // The module and exam year of every registration of the record may have changed
+    gradeSummaryCache.evictAll();
     return Result.success();
   }
 
@@ -108,25 +150,127 @@ public class RecordServiceImpl extends ServiceImpl<RecordMapper, Record>
    *
    * @param current current page number
    * @param size    page size
+   * @param from    earliest exam date, inclusive
+   * @param to      latest exam date, inclusive
+   * @param after   cursor of the previous page for keyset paging, empty for the first page
+   * @param count   how the total is computed
    * @return record data.
    */
   @Override
   public Result<IPage<RecordListVo>> list(Integer current, Integer size, Integer year,
-      Integer month, Integer day, String moduleCode) {
+      Integer month, Integer day, LocalDate from, LocalDate to, String moduleCode, String after,
+      CountMode count) {
     QueryWrapper<RecordListVo> wrapper = new QueryWrapper<>();
-    if (year != null) {
-      wrapper.apply("YEAR(date) = {0}", year);
-    }
-    if (month != null) {
-      wrapper.apply("MONTH(date) = {0}", month);
-    }
-    if (day != null) {
-      wrapper.apply("DAY(date) = {0}", day);
+    applyDateFilter(wrapper, year, month, day);
+    if (from != null && to != null && from.isAfter(to)) {
+      throw new CustomException("Start date can't be after end date!");
     }
+    wrapper.ge(from != null, "date", from);
+    wrapper.le(to != null, "date", to);
     if (moduleCode != null && !moduleCode.isBlank()) {
       wrapper.like("module_code", moduleCode);
     }
-    return Result.success(recordMapper.list(new Page<>(current, size), wrapper));
+    if (after != null) {
+      CursorPage<RecordListVo> page = CursorPage.seek(wrapper, "record.id",
+          CursorUtils.decodeLong(after), size);
+      recordMapper.list(page, wrapper);
+      return Result.success(page.withNextCursor(RecordListVo::getId));
+    }
+    // Count records without joining and aggregating registrations
+    Page<RecordListVo> page = countCache.page(current, size, count, "record", "listCount",
+        wrapper, () -> recordMapper.listCount(wrapper), recordMapper::estimateCount);
+    return Result.success(recordMapper.list(page, wrapper));
+  }
+
+  /**
+   * Filter records by year, month and day of the exam date.
+   *
+   * <p>
+   * When the year is given the filter becomes a range on date, so the index on it can be used.
+   * Month or day without a year can't be expressed as a range and are matched per row.
+   * </p>
+   */
+  private static void applyDateFilter(QueryWrapper<RecordListVo> wrapper, Integer year,
+      Integer month, Integer day) {
+    if (year == null) {
+      wrapper.apply(month != null, "MONTH(date) = {0}", month);
+      wrapper.apply(day != null, "DAY(date) = {0}", day);
+      return;
+    }
+    LocalDate start;
+    LocalDate end;
+    try {
+      if (month == null) {
+        start = LocalDate.of(year, 1, 1);
+        end = start.plusYears(1);
+      } else if (day == null) {
+        start = LocalDate.of(year, month, 1);
+        end = start.plusMonths(1);
+      } else {
+        start = LocalDate.of(year, month, day);
+        end = start.plusDays(1);
+      }
+    } catch (DateTimeException e) {
+      throw new CustomException("Invalid date!");
+    }
+    wrapper.ge("date", start).lt("date", end);
+    wrapper.apply(month == null && day != null, "DAY(date) = {0}", day);
+  }
+
+  /**
+   * Add a new registration to the score aggregates of its record.
+   *
+   * <p>
+   * Called in the same transaction as every change to registrations, so the record list and
+   * detail read the aggregates instead of scanning registrations. Increasing the stats version
+   * first locks the record row, so concurrent changes to the same record apply one at a time.
+   * </p>
+   *
+   * @param recordId record of the registration, already saved
+   * @param score    score of the registration, or null
+   */
+  @Override
+  public void addStats(Long recordId, Integer score) {
+    recordMapper.increaseStatsVersions(List.of(recordId));
+    if (recordMapper.addStats(recordId, score) == 0) {
+      // First registration of the record
+      recordMapper.insertStats(List.of(recordId));
+    }
+    recordCache.evict(List.of(recordId));
+  }
+
+  /**
+   * Remove a registration from the score aggregates of its record.
+   *
+   * @param recordId record the registration belonged to
+   * @param score    score the registration had, or null
+   */
+  @Override
+  public void removeStats(Long recordId, Integer score) {
+    recordMapper.increaseStatsVersions(List.of(recordId));
+    recordMapper.removeStats(recordId, score);
+    recordCache.evict(List.of(recordId));
+  }
+
+  /**
+   * Recompute the score aggregates of records from their registrations.
+   *
+   * <p>
+   * Used when registrations change in bulk, by imports and cascading deletes. The record rows are
+   * locked first, like for single changes.
+   * </p>
+   *
+   * @param recordIds ids of the records whose registrations changed
+   */
+  @Override
+  public void refreshStats(Collection<Long> recordIds) {
+    if (recordIds.isEmpty()) {
+      return;
+    }
+    recordMapper.increaseStatsVersions(recordIds);
+    recordMapper.deleteStats(recordIds);
+    recordMapper.insertStats(recordIds);
+    recordCache.evict(recordIds);
   }
 
   /**
@@ -136,6 +280,7 @@ public class RecordServiceImpl extends ServiceImpl<RecordMapper, Record>
    * @return a Result object indicating success
    * @throws CustomException if no record is found with the given ID
    */
+  @Transactional
   @Override
   public Result<Object> delete(Long id) {
     Record record = this.getById(id);
@@ -143,6 +288,8 @@ public class RecordServiceImpl extends ServiceImpl<RecordMapper, Record>
       throw new CustomException("No such record!");
     }
     this.removeById(record);
+    recordCache.evict(List.of(id));
+    gradeSummaryCache.evictAll();
     return Result.success();
   }
 
@@ -162,6 +309,29 @@ public class RecordServiceImpl extends ServiceImpl<RecordMapper, Record>
     return Result.success(recordDetail);
   }
 
+  /**
+   * Entity tag of the details of a record.
+   *
+   * <p>
+   * The details show the score aggregates and the name of the module, so the tag holds the stats
+   * version and the module's version too. They are read from the entity caches, so a request
+   * whose tag still matches never reaches the database.
+   * </p>
+   *
+   * @param id record id
+   * @return entity tag, or null when there is no such record
+   */
+  @Override
+  public String getEtag(Long id) {
+    Record record = this.getById(id);
+    if (record == null) {
+      return null;
+    }
+    Module module = moduleService.getById(record.getModuleCode());
+    return "\"" + record.getVersion() + "." + record.getStatsVersion() + "."
+        + (module == null ? 0 : module.getVersion()) + "\"";
+  }
+
   /**
    * Import or update records using a CSV file.
    *
@@ -170,23 +340,37 @@ public class RecordServiceImpl extends ServiceImpl<RecordMapper, Record>
    */
   @Transactional
   public Result<Object> importRecordByCsv(MultipartFile file) {
-    List<CreateRecordDto> records = CsvUtils.readCsv(file, CreateRecordDto.class);
-    Set<String> existingModuleCodes = moduleService.list().stream()
-        .map(Module::getCode)
-        .collect(Collectors.toSet());
-    List<Record> newRecords = new ArrayList<>();
-    for (CreateRecordDto recordDto : records) {
-      if (recordDto.getModuleCode() == null || recordDto.getModuleCode().isBlank()
-          || recordDto.getDate() == null) {
-        throw new CustomException("Module code or date cannot be null.");
-      }
-      if (!existingModuleCodes.contains(recordDto.getModuleCode())) {
-        throw new CustomException("No such module!");
-      }
-      newRecords.add(new Record(recordDto));
-    }
-    this.saveBatch(newRecords);
+    importRecordByCsv(CsvUtils.openStream(file), null);
     return Result.success();
   }
 
+  /**
+   * Import records from a csv stream, reporting progress to an import job.
+   *
+   * @param inputStream csv content
+   * @param importJob   job to report progress to, or null
+   */
+  @Transactional
+  public void importRecordByCsv(InputStream inputStream, ImportJob importJob) {
+    // Only the codes of modules are needed, streamed without loading whole rows
+    Set<String> existingModuleCodes = new HashSet<>();
+    moduleMapper.listCodes(context -> existingModuleCodes.add(context.getResultObject()));
+    // Validate and flush the file chunk by chunk so only one chunk is held in memory
+    CsvUtils.readCsvInChunks(inputStream, CreateRecordDto.class, CsvUtils.DEFAULT_CHUNK_SIZE,
+        ImportJob.track(importJob, records -> {
+          List<Record> newRecords = new ArrayList<>();
+          for (CreateRecordDto recordDto : records) {
+            if (recordDto.getModuleCode() == null || recordDto.getModuleCode().isBlank()
+                || recordDto.getDate() == null) {
+              throw new CustomException("Module code or date cannot be null.");
+            }
+            if (!existingModuleCodes.contains(recordDto.getModuleCode())) {
+              throw new CustomException("No such module!");
+            }
+            newRecords.add(new Record(recordDto));
+          }
+          this.saveBatch(newRecords);
+        }));
+  }
+
 }
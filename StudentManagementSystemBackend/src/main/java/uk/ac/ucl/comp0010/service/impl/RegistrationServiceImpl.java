@@ -5,26 +5,39 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import jakarta.annotation.Resource;
+import jakarta.transaction.Transactional;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import uk.ac.ucl.comp0010.cache.AccountCache;
+import uk.ac.ucl.comp0010.cache.CountCache;
+import uk.ac.ucl.comp0010.cache.GradeSummaryCache;
 import uk.ac.ucl.comp0010.dto.CreateRegistrationDto;
 import uk.ac.ucl.comp0010.dto.EditRegistrationDto;
 import uk.ac.ucl.comp0010.entity.Record;
 import uk.ac.ucl.comp0010.entity.Registration;
 import uk.ac.ucl.comp0010.entity.Student;
+import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.enums.CountMode;
 import uk.ac.ucl.comp0010.exception.CustomException;
 import uk.ac.ucl.comp0010.mapper.RegistrationMapper;
+import uk.ac.ucl.comp0010.model.CursorPage;
+import uk.ac.ucl.comp0010.model.ImportJob;
 import uk.ac.ucl.comp0010.response.Result;
 import uk.ac.ucl.comp0010.service.RecordService;
 import uk.ac.ucl.comp0010.service.RegistrationService;
 import uk.ac.ucl.comp0010.service.StudentService;
 import uk.ac.ucl.comp0010.utils.CsvUtils;
+import uk.ac.ucl.comp0010.utils.CursorUtils;
+import uk.ac.ucl.comp0010.utils.LongLongHashMap;
 import uk.ac.ucl.comp0010.vo.RegistrationListVo;
 
 
@@ -51,12 +64,22 @@ public class RegistrationServiceImpl extends ServiceImpl<RegistrationMapper, Reg
   @Resource
   private RegistrationMapper registrationMapper;
 
+  @Resource
+  private CountCache countCache;
+
+  @Resource
+  private GradeSummaryCache gradeSummaryCache;
+
+  @Resource
+  private AccountCache accountCache;
+
   /**
    * create Registration.
    *
    * @param createRegistrationDto registration detail
    * @return success
    */
+  @Transactional
   @Override
   public Result<Object> addRegistration(CreateRegistrationDto createRegistrationDto) {
     // Integrity Check
@@ -67,8 +90,7 @@ public class RegistrationServiceImpl extends ServiceImpl<RegistrationMapper, Reg
       throw new CustomException("Record ID can't be null!");
     }
     // Student Check
-    Student studentForCheck = studentService.getById(createRegistrationDto.getStudentId());
-    if (studentForCheck == null) {
+    if (!studentExists(createRegistrationDto.getStudentId())) {
       throw new CustomException("No such student!");
     }
     // Record Check
@@ -83,16 +105,17 @@ public class RegistrationServiceImpl extends ServiceImpl<RegistrationMapper, Reg
       throw new CustomException("Score must between 0 and 100!");
     }
     // Unique Score Record Check
-    Registration registrationForCheck = this.getOne(new QueryWrapper<Registration>()
+    if (registrationMapper.exists(new QueryWrapper<Registration>()
         .eq("record_id", createRegistrationDto.getRecordId())
-        .eq("student_id", createRegistrationDto.getStudentId()));
-    if (registrationForCheck != null) {
+        .eq("student_id", createRegistrationDto.getStudentId()))) {
       throw new CustomException(
           "Another registration with same student ID and record ID has already exist!");
     }
     // Create registration
     Registration registration = new Registration(createRegistrationDto);
     this.save(registration);
+    recordService.addStats(registration.getRecordId(), registration.getScore());
+    gradeSummaryCache.evict(List.of(registration.getStudentId()));
     return Result.success();
   }
 
@@ -116,6 +139,7 @@ public class RegistrationServiceImpl extends ServiceImpl<RegistrationMapper, Reg
    *                                  the same student ID and record ID already exists</li>
    *                         </ul>
    */
+  @Transactional
   @Override
   public Result<Object> editRegistration(EditRegistrationDto editRegistrationDto, Long id) {
     // ID check
@@ -132,8 +156,7 @@ public class RegistrationServiceImpl extends ServiceImpl<RegistrationMapper, Reg
     }
     // Student Check
     if (editRegistrationDto.getStudentId() != null) {
-      Student studentForCheck = studentService.getById(editRegistrationDto.getStudentId());
-      if (studentForCheck == null) {
+      if (!studentExists(editRegistrationDto.getStudentId())) {
         throw new CustomException("No such student!");
       }
     }
@@ -146,27 +169,40 @@ public class RegistrationServiceImpl extends ServiceImpl<RegistrationMapper, Reg
     // Unique Score Registration Check
     if (editRegistrationDto.getStudentId() != null
         || editRegistrationDto.getRecordId() != null) {
-      QueryWrapper<Registration> wrapper = new QueryWrapper<>();
-      if (editRegistrationDto.getStudentId() == null) {
-        wrapper.eq("student_id", registration.getStudentId());
-      } else {
-        wrapper.eq("student_id", editRegistrationDto.getStudentId());
-      }
-      if (editRegistrationDto.getRecordId() == null) {
-        wrapper.eq("record_id", registration.getRecordId());
-      } else {
-        wrapper.eq("record_id", editRegistrationDto.getRecordId());
-      }
-      Registration registrationForCheck = this.getOne(wrapper);
-      if (registrationForCheck != null && !registrationForCheck.getId().equals(id)) {
+      Integer studentId = editRegistrationDto.getStudentId() == null
+          ? registration.getStudentId() : editRegistrationDto.getStudentId();
+      Long recordId = editRegistrationDto.getRecordId() == null
+          ? registration.getRecordId() : editRegistrationDto.getRecordId();
+      if (registrationMapper.exists(new QueryWrapper<Registration>()
+          .eq("record_id", recordId)
+          .eq("student_id", studentId)
+          .ne("id", id))) {
         throw new CustomException(
             "Another registration with same student ID and record ID has already exist!");
       }
     }
+    Long oldRecordId = registration.getRecordId();
+    Integer oldScore = registration.getScore();
+    // At most two ids, passed on as a collection to the cache
+    Set<Integer> affectedStudentIds = new HashSet<>();
+    affectedStudentIds.add(registration.getStudentId());
+    if (editRegistrationDto.getStudentId() != null) {
+      affectedStudentIds.add(editRegistrationDto.getStudentId());
+    }
     registration.setRecordId(editRegistrationDto.getRecordId());
     registration.setStudentId(editRegistrationDto.getStudentId());
     registration.setScore(editRegistrationDto.getScore());
     this.updateById(registration);
+    // Null fields are left unchanged by updateById
+    Long newRecordId = editRegistrationDto.getRecordId() == null
+        ? oldRecordId : editRegistrationDto.getRecordId();
+    Integer newScore = editRegistrationDto.getScore() == null
+        ? oldScore : editRegistrationDto.getScore();
+    if (!newRecordId.equals(oldRecordId) || !Objects.equals(newScore, oldScore)) {
+      recordService.removeStats(oldRecordId, oldScore);
+      recordService.addStats(newRecordId, newScore);
+    }
+    gradeSummaryCache.evict(affectedStudentIds);
     return Result.success();
   }
 
@@ -177,11 +213,13 @@ public class RegistrationServiceImpl extends ServiceImpl<RegistrationMapper, Reg
    * @param size      the number of records per page
    * @param studentId the ID of the student to filter by (optional)
    * @param recordId  the ID of the record to filter by (optional)
+   * @param after     cursor of the previous page for keyset paging, empty for the first page
+   * @param count     how the total is computed
    * @return a Result object containing a paginated list of {@code RegistrationListVo} objects
    */
   @Override
   public Result<IPage<RegistrationListVo>> list(Integer current, Integer size, Integer studentId,
-      Long recordId) {
+      Long recordId, String after, CountMode count) {
     QueryWrapper<RegistrationListVo> wrapper = new QueryWrapper<>();
     if (studentId != null) {
       wrapper.eq("student_id", studentId);
@@ -189,7 +227,17 @@ public class RegistrationServiceImpl extends ServiceImpl<RegistrationMapper, Reg
     if (recordId != null) {
       wrapper.eq("record_id", recordId);
     }
-    return Result.success(registrationMapper.list(new Page<>(current, size), wrapper));
+    if (after != null) {
+      CursorPage<RegistrationListVo> page = CursorPage.seek(wrapper, "registration.id",
+          CursorUtils.decodeLong(after), size);
+      registrationMapper.list(page, wrapper);
+      return Result.success(page.withNextCursor(RegistrationListVo::getId));
+    }
+    // Count registrations without joining records, modules and students
+    Page<RegistrationListVo> page = countCache.page(current, size, count, "registration",
+        "listCount", wrapper, () -> registrationMapper.listCount(wrapper),
+        registrationMapper::estimateCount);
+    return Result.success(registrationMapper.list(page, wrapper));
   }
 
   /**
@@ -199,6 +247,7 @@ public class RegistrationServiceImpl extends ServiceImpl<RegistrationMapper, Reg
    * @return a Result object indicating success
    * @throws CustomException if no registration is found with the given ID
    */
+  @Transactional
   @Override
   public Result<Object> delete(Long id) {
     Registration registration = this.getById(id);
@@ -206,6 +255,8 @@ public class RegistrationServiceImpl extends ServiceImpl<RegistrationMapper, Reg
       throw new CustomException("No such registration");
     }
     this.removeById(registration);
+    recordService.removeStats(registration.getRecordId(), registration.getScore());
+    gradeSummaryCache.evict(List.of(registration.getStudentId()));
     return Result.success();
   }
 
@@ -218,54 +269,107 @@ public class RegistrationServiceImpl extends ServiceImpl<RegistrationMapper, Reg
   @Transactional
   @Override
   public Result<Object> importRegistrationByCsv(MultipartFile file) {
-    List<CreateRegistrationDto> records = CsvUtils.readCsv(file, CreateRegistrationDto.class);
-    // Get existing student IDs
-    List<Integer> existingStudentIds = studentService.list().stream()
-        .map(Student::getId).toList();
-    // Get existing record IDs
-    List<Long> existingRecordIds = recordService.list().stream()
-        .map(Record::getId).toList();
-    // Get existing registrations (Key:of record ID and Student ID, Value: registration ID)
-    Map<String, Long> existingRegistration = new HashMap<>();
-    this.list().forEach(registration -> {
-      String key = registration.getRecordId().toString() + "-" + registration.getStudentId()
-          .toString();
-      Long value = registration.getId();
-      existingRegistration.put(key, value);
-    });
-
-    List<Registration> updatingRegistration = new ArrayList<>();
-    List<Registration> newRegistration = new ArrayList<>();
-    for (CreateRegistrationDto registrationDto : records) {
-      // Check Data
-      if (registrationDto.getRecordId() == null || registrationDto.getStudentId() == null) {
-        throw new CustomException("Record ID or Student ID can't be null!");
-      }
-      if (!existingStudentIds.contains(registrationDto.getStudentId())) {
-        throw new CustomException("No such student ID");
-      }
-      if (!existingRecordIds.contains(registrationDto.getRecordId())) {
-        throw new CustomException("No such record ID");
-      }
-      if (registrationDto.getScore() != null
-          && (registrationDto.getScore() < 0 || registrationDto.getScore() > 100)) {
-        throw new CustomException("Score must between 0 and 100!");
-      }
-      Registration registration = new Registration(registrationDto);
-      // If there is existing registration with same record ID and student ID, then update it,
-      // otherwise create a new one
-      Long registrationId = existingRegistration.get(registration.getRecordId().toString()
-          + "-" + registration.getStudentId().toString());
-      if (registrationId == null) {
-        newRegistration.add(registration);
-      } else {
-        registration.setId(registrationId);
-        updatingRegistration.add(registration);
-      }
-    }
-    this.saveBatch(newRegistration);
-    this.updateBatchById(updatingRegistration);
+    importRegistrationByCsv(CsvUtils.openStream(file), null);
     return Result.success();
   }
 
+  /**
+   * Import registrations from a csv stream, reporting progress to an import job.
+   *
+   * @param inputStream csv content
+   * @param importJob   job to report progress to, or null
+   */
+  @Transactional
+  @Override
+  public void importRegistrationByCsv(InputStream inputStream, ImportJob importJob) {
+    // Registration IDs keyed by packed record ID and student ID, reused for every chunk
+    LongLongHashMap existingRegistration = new LongLongHashMap(CsvUtils.DEFAULT_CHUNK_SIZE);
+    Set<Long> importedRecordIds = new HashSet<>();
+    // Validate and flush the file chunk by chunk so only one chunk is held in memory
+    CsvUtils.readCsvInChunks(inputStream, CreateRegistrationDto.class, CsvUtils.DEFAULT_CHUNK_SIZE,
+        ImportJob.track(importJob, records -> {
+          // Boxed sets, as they only end up in IN clauses and cache evictions which take boxed
+          // collections, and hold no more ids than the chunk has rows
+          Set<Integer> studentIds = new HashSet<>();
+          Set<Long> recordIds = new HashSet<>();
+          for (CreateRegistrationDto registrationDto : records) {
+            // Check Data
+            if (registrationDto.getRecordId() == null || registrationDto.getStudentId() == null) {
+              throw new CustomException("Record ID or Student ID can't be null!");
+            }
+            if (registrationDto.getScore() != null
+                && (registrationDto.getScore() < 0 || registrationDto.getScore() > 100)) {
+              throw new CustomException("Score must between 0 and 100!");
+            }
+            studentIds.add(registrationDto.getStudentId());
+            recordIds.add(registrationDto.getRecordId());
+          }
+          // Only look up the keys referenced by this chunk
+          Set<Integer> existingStudentIds = studentService.list(
+                  new QueryWrapper<Student>().select("id").in("id", studentIds)).stream()
+              .map(Student::getId)
+              .collect(Collectors.toSet());
+          Set<Long> existingRecordIds = recordService.list(
+                  new QueryWrapper<Record>().select("id").in("id", recordIds)).stream()
+              .map(Record::getId)
+              .collect(Collectors.toSet());
+          existingRegistration.clear();
+          loadRegistrationIds(recordIds, studentIds, existingRegistration);
+
+          List<Registration> updatingRegistration = new ArrayList<>();
+          List<Registration> newRegistration = new ArrayList<>();
+          for (CreateRegistrationDto registrationDto : records) {
+            if (!existingStudentIds.contains(registrationDto.getStudentId())) {
+              throw new CustomException("No such student ID");
+            }
+            if (!existingRecordIds.contains(registrationDto.getRecordId())) {
+              throw new CustomException("No such record ID");
+            }
+            Registration registration = new Registration(registrationDto);
+            // If there is existing registration with same record ID and student ID, then update
+            // it, otherwise create a new one
+            long registrationId = existingRegistration.get(LongLongHashMap.pack(
+                registration.getRecordId(), registration.getStudentId()), 0L);
+            if (registrationId == 0L) {
+              newRegistration.add(registration);
+            } else {
+              registration.setId(registrationId);
+              updatingRegistration.add(registration);
+            }
+          }
+          this.saveBatch(newRegistration);
+          this.updateBatchById(updatingRegistration);
+          importedRecordIds.addAll(recordIds);
+          gradeSummaryCache.evict(studentIds);
+        }));
+    // Records may get rows from several chunks, recompute their aggregates once
+    recordService.refreshStats(importedRecordIds);
+  }
+
+  /**
+   * Load the ids of existing registrations between the given records and students.
+   *
+   * @param recordIds       record ids
+   * @param studentIds      student ids
+   * @param registrationIds map filled with registration ids keyed by
+   *                        {@link LongLongHashMap#pack(long, int)} of record ID and student ID
+   */
+  private void loadRegistrationIds(Collection<Long> recordIds, Collection<Integer> studentIds,
+      LongLongHashMap registrationIds) {
+    registrationMapper.listKeys(new QueryWrapper<Registration>()
+            .in("record_id", recordIds)
+            .in("student_id", studentIds),
+        context -> {
+          Registration registration = context.getResultObject();
+          registrationIds.put(
+              LongLongHashMap.pack(registration.getRecordId(), registration.getStudentId()),
+              registration.getId());
+        });
+  }
+
+  private boolean studentExists(Integer studentId) {
+    return accountCache.exists(AccountType.student, studentId,
+        (accountType, id) -> studentService.getById(id) != null);
+  }
+
 }
@@ -0,0 +1,47 @@
+package uk.ac.ucl.comp0010.service.impl;
+
+import jakarta.annotation.Resource;
+import java.util.List;
+import org.springframework.stereotype.Service;
+import uk.ac.ucl.comp0010.exception.CustomException;
+import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.search.SearchIndex;
+import uk.ac.ucl.comp0010.service.SearchService;
+import uk.ac.ucl.comp0010.vo.SearchResultVo;
+
+/**
+ * <p>
+ * Implementation for Search Service.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+@Service
+public class SearchServiceImpl implements SearchService {
+
+  private static final int MAX_LIMIT = 50;
+
+  @Resource
+  private SearchIndex searchIndex;
+
+  /**
+   * Search students, staff and modules.
+   *
+   * @param q     search text
+   * @param limit maximum number of results
+   * @return best matches, best first
+   */
+  @Override
+  public Result<List<SearchResultVo>> search(String q, Integer limit) {
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new CustomException("Limit must between 1 and " + MAX_LIMIT + "!");
+    }
+    if (q == null || q.isBlank()) {
+      return Result.success(List.of());
+    }
+    return Result.success(searchIndex.search(q, limit).stream()
+        .map(SearchResultVo::new)
+        .toList());
+  }
+}
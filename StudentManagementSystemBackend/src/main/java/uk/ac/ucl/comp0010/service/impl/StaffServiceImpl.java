@@ -1,33 +1,49 @@
 package uk.ac.ucl.comp0010.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import jakarta.annotation.Resource;
 import jakarta.transaction.Transactional;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import uk.ac.ucl.comp0010.aspect.LoginAspect;
+import uk.ac.ucl.comp0010.cache.AccountCache;
+import uk.ac.ucl.comp0010.cache.GradeSummaryCache;
+import uk.ac.ucl.comp0010.cache.ModuleCache;
+import uk.ac.ucl.comp0010.cache.RecordCache;
+import uk.ac.ucl.comp0010.context.LoginContextHolder;
 import uk.ac.ucl.comp0010.dto.CreateStaffDto;
 import uk.ac.ucl.comp0010.dto.EditStaffDto;
 import uk.ac.ucl.comp0010.dto.LoginDto;
 import uk.ac.ucl.comp0010.dto.ResetPasswordDto;
 import uk.ac.ucl.comp0010.entity.Staff;
 import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.enums.FacetType;
 import uk.ac.ucl.comp0010.enums.JwtType;
 import uk.ac.ucl.comp0010.exception.CustomException;
+import uk.ac.ucl.comp0010.mapper.ModuleMapper;
 import uk.ac.ucl.comp0010.mapper.StaffMapper;
+import uk.ac.ucl.comp0010.model.CursorPage;
+import uk.ac.ucl.comp0010.model.ImportJob;
+import uk.ac.ucl.comp0010.model.NameTrigram;
 import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.search.FacetIndex;
+import uk.ac.ucl.comp0010.search.SearchIndex;
+import uk.ac.ucl.comp0010.service.PasswordService;
 import uk.ac.ucl.comp0010.service.StaffService;
 import uk.ac.ucl.comp0010.utils.CsvUtils;
+import uk.ac.ucl.comp0010.utils.CursorUtils;
 import uk.ac.ucl.comp0010.utils.JwtUtils;
-import uk.ac.ucl.comp0010.utils.PasswordEncoderUtils;
+import uk.ac.ucl.comp0010.utils.TrigramUtils;
 import uk.ac.ucl.comp0010.vo.LoginVo;
 import uk.ac.ucl.comp0010.vo.StaffListVo;
 import uk.ac.ucl.comp0010.vo.StaffVo;
@@ -48,6 +64,30 @@ public class StaffServiceImpl extends ServiceImpl<StaffMapper, Staff> implements
   @Resource
   private StaffMapper staffMapper;
 
+  @Resource
+  private ModuleMapper moduleMapper;
+
+  @Resource
+  private PasswordService passwordService;
+
+  @Resource
+  private SearchIndex searchIndex;
+
+  @Resource
+  private FacetIndex facetIndex;
+
+  @Resource
+  private AccountCache accountCache;
+
+  @Resource
+  private GradeSummaryCache gradeSummaryCache;
+
+  @Resource
+  private ModuleCache moduleCache;
+
+  @Resource
+  private RecordCache recordCache;
+
   /**
    * login staff account.
    *
@@ -63,9 +103,15 @@ public class StaffServiceImpl extends ServiceImpl<StaffMapper, Staff> implements
     if (staff == null) {
       throw new CustomException("No such username");
     }
-    if (!PasswordEncoderUtils.checkPassword(loginDto.getPassword(), staff.getPassword())) {
+    if (!passwordService.checkLogin(loginDto.getPassword(), staff.getPassword())) {
       throw new CustomException("Username or Password Incorrect");
     }
+    String rehashedPassword = passwordService.rehashIfNeeded(AccountType.staff,
+        loginDto.getPassword(), staff.getPassword());
+    if (rehashedPassword != null) {
+      this.update(new UpdateWrapper<Staff>().set("password", rehashedPassword)
+          .eq("id", staff.getId()));
+    }
     String accessToken = JwtUtils.generateJwtToken(staff.getId(), AccountType.staff,
         JwtType.access_token);
     String refreshToken = JwtUtils.generateJwtToken(staff.getId(), AccountType.staff,
@@ -86,6 +132,7 @@ public class StaffServiceImpl extends ServiceImpl<StaffMapper, Staff> implements
    *                           <li>A staff member with the same username already exists</li>
    *                         </ul>
    */
+  @Transactional
   @Override
   public Result<Object> addStaff(CreateStaffDto createStaffDto) {
     // Integrity Check
@@ -99,38 +146,97 @@ public class StaffServiceImpl extends ServiceImpl<StaffMapper, Staff> implements
     if (staff != null) {
       throw new CustomException("Username already exist!");
     }
-    createStaffDto.setPassword(PasswordEncoderUtils.encode(createStaffDto.getPassword()));
+    createStaffDto.setPassword(
+        passwordService.encode(AccountType.staff, createStaffDto.getPassword()));
     staff = new Staff(createStaffDto);
     this.save(staff);
+    refreshNameTrigrams(List.of(staff.getId()));
+    searchIndex.refreshStaffs(List.of(staff.getId()));
+    facetIndex.change(FacetType.department, null, staff.getDepartment());
+    facetIndex.change(FacetType.title, null, staff.getTitle());
     return Result.success();
   }
 
   /**
    * list staffs.
    *
+   * <p>
+   * When no name contains the fullName query, the first page lists the names most similar to it
+   * instead, so a misspelled name still finds the staff.
+   * </p>
+   *
    * @param current current page
    * @param size    size of the page
+   * @param after   cursor of the previous page for keyset paging, empty for the first page
    * @return data
    */
   @Override
   public Result<IPage<StaffListVo>> listStaffs(Integer current, Integer size, Integer id,
-      String fullName, String department, String title) {
+      String fullName, String department, String title, String after) {
+    QueryWrapper<StaffListVo> wrapper = filterStaffs(id, department, title);
+    String query = null;
+    String rank = null;
+    if (fullName != null && !fullName.isBlank()) {
+      query = TrigramUtils.normalize(fullName);
+      TrigramUtils.applyNameSearch(wrapper, "staff_name_trigram", "staff_id", query,
+          staffMapper::countNameTrigram);
+      rank = TrigramUtils.escapeLike(query);
+    }
+    if (after != null) {
+      CursorPage<StaffListVo> page = CursorPage.seek(wrapper, "id",
+          CursorUtils.decodeLong(after), size);
+      staffMapper.listStaffs(page, wrapper, null);
+      return Result.success(page.withNextCursor(StaffListVo::getId));
+    }
+    Page<StaffListVo> ipage = new Page<>(current, size);
+    // The ranking order takes parameters, so the count can't be derived from the list query
+    ipage.setCountId("listCount");
+    staffMapper.listStaffs(ipage, wrapper, rank);
+    if (ipage.getTotal() == 0 && query != null && current == 1) {
+      ipage.setRecords(listSimilarStaffs(query, filterStaffs(id, department, title), size));
+      ipage.setTotal(ipage.getRecords().size());
+    }
+    return Result.success(ipage);
+  }
+
+  private QueryWrapper<StaffListVo> filterStaffs(Integer id, String department, String title) {
     QueryWrapper<StaffListVo> wrapper = new QueryWrapper<>();
     if (id != null) {
       wrapper.eq("id", id);
     }
-    if (fullName != null && !fullName.isBlank()) {
-      wrapper.apply("CONCAT(first_name, ' ', last_name) LIKE {0}",
-          "%" + fullName + "%");
-    }
     if (department != null && !department.isBlank()) {
       wrapper.like("department", department);
     }
     if (title != null && !title.isBlank()) {
       wrapper.like("title", title);
     }
-    IPage<StaffListVo> ipage = new Page<>(current, size);
-    return Result.success(staffMapper.listStaffs(ipage, wrapper));
+    return wrapper;
+  }
+
+  /**
+   * List the staffs whose names are most similar to a query.
+   *
+   * @param query   normalised name query
+   * @param wrapper other filters of the listing
+   * @param size    most staffs returned
+   * @return staffs, most similar first
+   */
+  private List<StaffListVo> listSimilarStaffs(String query, QueryWrapper<StaffListVo> wrapper,
+      int size) {
+    Set<String> trigrams = TrigramUtils.trigrams(query);
+    if (trigrams.isEmpty()) {
+      return List.of();
+    }
+    List<Integer> ids = staffMapper.listSimilarNames(trigrams,
+        TrigramUtils.minSharedTrigrams(trigrams.size()), TrigramUtils.MAX_SIMILAR_CANDIDATES);
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    wrapper.in("id", ids);
+    List<StaffListVo> candidates = staffMapper.listStaffs(
+        new Page<>(1, ids.size(), false), wrapper, null).getRecords();
+    return TrigramUtils.rankBySimilarity(query, candidates,
+        staff -> TrigramUtils.fullName(staff.getFirstName(), staff.getLastName()), size);
   }
 
   /**
@@ -142,29 +248,68 @@ public class StaffServiceImpl extends ServiceImpl<StaffMapper, Staff> implements
   @Transactional
   @Override
   public Result<Object> importStaff(MultipartFile file) {
-    List<CreateStaffDto> records = CsvUtils.readCsv(file, CreateStaffDto.class);
-    Set<String> existingUsernames = this.list().stream()
-        .map(Staff::getUsername)
-        .collect(Collectors.toSet());
-    List<Staff> savingStaffList = new ArrayList<>();
-    List<Staff> updatingStaffList = new ArrayList<>();
-    for (CreateStaffDto record : records) {
-      // Integrity Check
-      if (record.getUsername() == null || record.getUsername().isBlank()
-          || record.getPassword() == null || record.getPassword().isBlank()) {
-        throw new CustomException("Username or password can't be null");
-      }
-      if (!existingUsernames.contains(record.getUsername())) {
-        savingStaffList.add(new Staff(record));
-      } else {
-        updatingStaffList.add(new Staff(record));
-      }
-    }
-    this.saveBatch(savingStaffList);
-    this.updateBatchById(updatingStaffList);
+    importStaff(CsvUtils.openStream(file), null);
     return Result.success();
   }
 
+  /**
+   * Import staff from a csv stream, reporting progress to an import job.
+   *
+   * @param inputStream csv content
+   * @param importJob   job to report progress to, or null
+   */
+  @Transactional
+  @Override
+  public void importStaff(InputStream inputStream, ImportJob importJob) {
+    // Ids of existing staff by username, streamed without loading whole rows
+    Map<String, Integer> existingIds = new HashMap<>();
+    staffMapper.listUsernames(context -> existingIds.put(
+        context.getResultObject().getUsername(), context.getResultObject().getId()));
+    // Validate and flush the file chunk by chunk so only one chunk is held in memory
+    CsvUtils.readCsvInChunks(inputStream, CreateStaffDto.class, CsvUtils.DEFAULT_CHUNK_SIZE,
+        ImportJob.track(importJob, records -> {
+          List<Staff> savingStaffList = new ArrayList<>();
+          List<Staff> updatingStaffList = new ArrayList<>();
+          for (CreateStaffDto record : records) {
+            // Integrity Check
+            if (record.getUsername() == null || record.getUsername().isBlank()
+                || record.getPassword() == null || record.getPassword().isBlank()) {
+              throw new CustomException("Username or password can't be null");
+            }
+          }
+          // Hash the passwords of the chunk on the worker pool, keeping the row order
+          List<String> encodedPasswords = passwordService.encodeAll(AccountType.staff,
+              records.stream().map(CreateStaffDto::getPassword).toList());
+          for (int i = 0; i < records.size(); i++) {
+            CreateStaffDto record = records.get(i);
+            record.setPassword(encodedPasswords.get(i));
+            Staff staff = new Staff(record);
+            Integer existingId = existingIds.get(staff.getUsername());
+            if (existingId == null) {
+              savingStaffList.add(staff);
+            } else {
+              staff.setId(existingId);
+              updatingStaffList.add(staff);
+            }
+          }
+          this.saveBatch(savingStaffList);
+          this.updateBatchById(updatingStaffList);
+          List<Integer> changedIds = new ArrayList<>();
+          for (Staff staff : savingStaffList) {
+            // Later rows with the same username update the staff just created
+            existingIds.put(staff.getUsername(), staff.getId());
+            changedIds.add(staff.getId());
+          }
+          updatingStaffList.forEach(staff -> changedIds.add(staff.getId()));
+          refreshNameTrigrams(changedIds);
+          // Only updated staff can already lead modules
+          increaseModuleVersions(updatingStaffList.stream().map(Staff::getId).toList());
+          searchIndex.refreshStaffs(changedIds);
+        }));
+    // Imported rows may move staff between departments and titles, recount them once
+    facetIndex.reload(FacetType.department, FacetType.title);
+  }
+
   /**
    * Edit staff.
    *
@@ -172,6 +317,7 @@ public class StaffServiceImpl extends ServiceImpl<StaffMapper, Staff> implements
    * @param id           id of the staff being edited.
    * @return success
    */
+  @Transactional
   @Override
   public Result<Object> edit(EditStaffDto editStaffDto, Integer id) {
     Staff staff = this.getById(id);
@@ -195,6 +341,12 @@ public class StaffServiceImpl extends ServiceImpl<StaffMapper, Staff> implements
         throw new CustomException("Username already exist!");
       }
     }
+    String oldDepartment = staff.getDepartment();
+    String oldTitle = staff.getTitle();
+    boolean nameChanged = editStaffDto.getFirstName() != null
+        && !editStaffDto.getFirstName().equals(staff.getFirstName())
+        || editStaffDto.getLastName() != null
+        && !editStaffDto.getLastName().equals(staff.getLastName());
     staff.setUsername(editStaffDto.getUsername());
     staff.setFirstName(editStaffDto.getFirstName());
     staff.setLastName(editStaffDto.getLastName());
@@ -202,12 +354,61 @@ public class StaffServiceImpl extends ServiceImpl<StaffMapper, Staff> implements
     staff.setTitle(editStaffDto.getTitle());
     staff.setDepartment(editStaffDto.getDepartment());
     if (editStaffDto.getPassword() != null) {
-      staff.setPassword(PasswordEncoderUtils.encode(editStaffDto.getPassword()));
+      staff.setPassword(passwordService.encode(AccountType.staff, editStaffDto.getPassword()));
     }
     this.updateById(staff);
+    refreshNameTrigrams(List.of(id));
+    if (nameChanged) {
+      increaseModuleVersions(List.of(id));
+    }
+    searchIndex.refreshStaffs(List.of(id));
+    // Null fields are left unchanged by updateById
+    if (staff.getDepartment() != null) {
+      facetIndex.change(FacetType.department, oldDepartment, staff.getDepartment());
+    }
+    if (staff.getTitle() != null) {
+      facetIndex.change(FacetType.title, oldTitle, staff.getTitle());
+    }
     return Result.success();
   }
 
+  /**
+   * Increase the version of modules led by staff, whose details show the name of their leader.
+   *
+   * @param ids ids of the staff
+   */
+  private void increaseModuleVersions(Collection<Integer> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    moduleMapper.increaseVersionsOfStaff(ids);
+    moduleCache.evictAll();
+  }
+
+  /**
+   * Rebuild the name trigrams of staff from their stored names.
+   *
+   * @param ids ids of the staff
+   */
+  private void refreshNameTrigrams(Collection<Integer> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    staffMapper.deleteNameTrigrams(ids);
+    List<NameTrigram> trigrams = new ArrayList<>();
+    for (Staff staff : this.list(new QueryWrapper<Staff>()
+        .select("id", "first_name", "last_name").in("id", ids))) {
+      for (String trigram : TrigramUtils.trigrams(
+          TrigramUtils.fullName(staff.getFirstName(), staff.getLastName()))) {
+        trigrams.add(new NameTrigram(staff.getId(), trigram));
+      }
+    }
+    for (int i = 0; i < trigrams.size(); i += CsvUtils.DEFAULT_CHUNK_SIZE) {
+      staffMapper.insertNameTrigrams(
+          trigrams.subList(i, Math.min(i + CsvUtils.DEFAULT_CHUNK_SIZE, trigrams.size())));
+    }
+  }
+
   /**
    * Delete staff.
    *
@@ -221,6 +422,14 @@ public class StaffServiceImpl extends ServiceImpl<StaffMapper, Staff> implements
       throw new CustomException("Staff not exist!");
     }
     this.removeById(id);
+    searchIndex.refreshStaffs(List.of(id));
+    accountCache.evict(AccountType.staff, List.of(id));
+    facetIndex.change(FacetType.department, staff.getDepartment(), null);
+    facetIndex.change(FacetType.title, staff.getTitle(), null);
+    // Modules led by the staff are deleted by cascade, with their records and registrations
+    moduleCache.evictAll();
+    recordCache.evictAll();
+    gradeSummaryCache.evictAll();
     return Result.success();
   }
 
@@ -235,11 +444,11 @@ public class StaffServiceImpl extends ServiceImpl<StaffMapper, Staff> implements
     if (staff == null) {
       throw new CustomException("Staff not found");
     }
-    if (!PasswordEncoderUtils.checkPassword(resetPasswordDto.getOldPassword(),
-        staff.getPassword())) {
+    if (!passwordService.matches(resetPasswordDto.getOldPassword(), staff.getPassword())) {
       throw new CustomException("Old password is incorrect");
     }
-    staff.setPassword(PasswordEncoderUtils.encode(resetPasswordDto.getNewPassword()));
+    staff.setPassword(
+        passwordService.encode(AccountType.staff, resetPasswordDto.getNewPassword()));
     this.updateById(staff);
   }
 
@@ -250,7 +459,7 @@ public class StaffServiceImpl extends ServiceImpl<StaffMapper, Staff> implements
    */
   @Override
   public Result<StaffVo> detail() {
-    Staff staff = this.getById(LoginAspect.threadLocal.get().getId());
+    Staff staff = this.getById(LoginContextHolder.get().getId());
     return Result.success(new StaffVo(staff));
   }
 
@@ -274,28 +483,24 @@ public class StaffServiceImpl extends ServiceImpl<StaffMapper, Staff> implements
 
   /**
    * Retrieves a list of unique department names associated with staff members.
-   * Ensures that duplicate department names are removed from the result.
+   * The departments are served from the facet index instead of reading every staff.
    *
-   * @return a Result object containing a list of unique department names
+   * @return a Result object containing a list of unique department names, sorted
    */
   @Override
   public Result<List<String>> listDepartments() {
-    List<String> departments = staffMapper.listDepartments();
-    departments = new ArrayList<>(new HashSet<>(departments));
-    return Result.success(departments);
+    return Result.success(facetIndex.values(FacetType.department));
   }
 
   /**
    * Retrieves a list of unique job titles associated with staff members.
-   * Ensures that duplicate job titles are removed from the result.
+   * The titles are served from the facet index instead of reading every staff.
    *
-   * @return a Result object containing a list of unique job titles
+   * @return a Result object containing a list of unique job titles, sorted
    */
   @Override
   public Result<List<String>> listTitles() {
-    List<String> titles = staffMapper.listTitles();
-    titles = new ArrayList<>(new HashSet<>(titles));
-    return Result.success(titles);
+    return Result.success(facetIndex.values(FacetType.title));
   }
 
 
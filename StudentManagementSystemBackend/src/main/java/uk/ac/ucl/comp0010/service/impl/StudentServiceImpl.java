@@ -1,34 +1,53 @@
 package uk.ac.ucl.comp0010.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import jakarta.annotation.Resource;
 import jakarta.transaction.Transactional;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import uk.ac.ucl.comp0010.aspect.LoginAspect;
+import uk.ac.ucl.comp0010.cache.AccountCache;
+import uk.ac.ucl.comp0010.cache.GradeSummaryCache;
+import uk.ac.ucl.comp0010.context.LoginContextHolder;
 import uk.ac.ucl.comp0010.dto.CreateStudentDto;
 import uk.ac.ucl.comp0010.dto.EditStudentDto;
 import uk.ac.ucl.comp0010.dto.LoginDto;
 import uk.ac.ucl.comp0010.dto.ResetPasswordDto;
+import uk.ac.ucl.comp0010.entity.Registration;
 import uk.ac.ucl.comp0010.entity.Student;
 import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.enums.FacetType;
 import uk.ac.ucl.comp0010.enums.JwtType;
 import uk.ac.ucl.comp0010.exception.CustomException;
 import uk.ac.ucl.comp0010.mapper.RegistrationMapper;
 import uk.ac.ucl.comp0010.mapper.StudentMapper;
+import uk.ac.ucl.comp0010.model.CursorPage;
+import uk.ac.ucl.comp0010.model.ImportJob;
+import uk.ac.ucl.comp0010.model.NameTrigram;
 import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.search.FacetIndex;
+import uk.ac.ucl.comp0010.search.SearchIndex;
+import uk.ac.ucl.comp0010.service.PasswordService;
+import uk.ac.ucl.comp0010.service.RecordService;
 import uk.ac.ucl.comp0010.service.StudentService;
 import uk.ac.ucl.comp0010.utils.CsvUtils;
+import uk.ac.ucl.comp0010.utils.CursorUtils;
+import uk.ac.ucl.comp0010.utils.GradeUtils;
 import uk.ac.ucl.comp0010.utils.JwtUtils;
-import uk.ac.ucl.comp0010.utils.PasswordEncoderUtils;
+import uk.ac.ucl.comp0010.utils.TrigramUtils;
+import uk.ac.ucl.comp0010.vo.GradeSummaryVo;
 import uk.ac.ucl.comp0010.vo.LoginVo;
 import uk.ac.ucl.comp0010.vo.StudentListVo;
 import uk.ac.ucl.comp0010.vo.StudentRegistrationListVo;
@@ -52,6 +71,25 @@ public class StudentServiceImpl extends ServiceImpl<StudentMapper, Student> impl
   @Resource
   private RegistrationMapper registrationMapper;
 
+  @Resource
+  private PasswordService passwordService;
+
+  @Resource
+  private SearchIndex searchIndex;
+
+  @Resource
+  private FacetIndex facetIndex;
+
+  @Resource
+  private AccountCache accountCache;
+
+  @Resource
+  private GradeSummaryCache gradeSummaryCache;
+
+  @Lazy
+  @Resource
+  private RecordService recordService;
+
   /**
    * Student login.
    *
@@ -65,9 +103,15 @@ public class StudentServiceImpl extends ServiceImpl<StudentMapper, Student> impl
     if (student == null) {
       throw new CustomException("No such username");
     }
-    if (!PasswordEncoderUtils.checkPassword(loginDto.getPassword(), student.getPassword())) {
+    if (!passwordService.checkLogin(loginDto.getPassword(), student.getPassword())) {
       throw new CustomException("Username or Password Incorrect");
     }
+    String rehashedPassword = passwordService.rehashIfNeeded(AccountType.student,
+        loginDto.getPassword(), student.getPassword());
+    if (rehashedPassword != null) {
+      this.update(new UpdateWrapper<Student>().set("password", rehashedPassword)
+          .eq("id", student.getId()));
+    }
     String accessToken = JwtUtils.generateJwtToken(student.getId(), AccountType.student,
         JwtType.access_token);
     String refreshToken = JwtUtils.generateJwtToken(student.getId(), AccountType.student,
@@ -81,6 +125,7 @@ public class StudentServiceImpl extends ServiceImpl<StudentMapper, Student> impl
    * @param createStudentDto student details
    * @return success
    */
+  @Transactional
   @Override
   public Result<Object> addStudent(CreateStudentDto createStudentDto) {
     // Integrity Check
@@ -94,38 +139,98 @@ public class StudentServiceImpl extends ServiceImpl<StudentMapper, Student> impl
     if (student != null) {
       throw new CustomException("Username already exist!");
     }
-    student = new Student(createStudentDto);
+    student = new Student(createStudentDto,
+        passwordService.encode(AccountType.student, createStudentDto.getPassword()));
     this.save(student);
+    refreshNameTrigrams(List.of(student.getId()));
+    searchIndex.refreshStudents(List.of(student.getId()));
+    facetIndex.change(FacetType.program, null, student.getProgramOfStudy());
     return Result.success();
   }
 
   /**
    * list students.
    *
+   * <p>
+   * When no name contains the fullName query, the first page lists the names most similar to it
+   * instead, so a misspelled name still finds the student.
+   * </p>
+   *
    * @param current current page
    * @param size    page size
+   * @param after   cursor of the previous page for keyset paging, empty for the first page
    * @return data
    */
   @Override
   public Result<IPage<StudentListVo>> listStudents(Integer current, Integer size, Integer id,
-      String fullName, String username, String programOfStudy) {
+      String fullName, String username, String programOfStudy, String after) {
+    QueryWrapper<StudentListVo> wrapper = filterStudents(id, username, programOfStudy);
+    String query = null;
+    String rank = null;
+    if (fullName != null && !fullName.isBlank()) {
+      query = TrigramUtils.normalize(fullName);
+      TrigramUtils.applyNameSearch(wrapper, "student_name_trigram", "student_id", query,
+          studentMapper::countNameTrigram);
+      rank = TrigramUtils.escapeLike(query);
+    }
+
+    if (after != null) {
+      CursorPage<StudentListVo> page = CursorPage.seek(wrapper, "id",
+          CursorUtils.decodeLong(after), size);
+      studentMapper.listStudents(page, wrapper, null);
+      return Result.success(page.withNextCursor(StudentListVo::getId));
+    }
+    Page<StudentListVo> ipage = new Page<>(current, size);
+    // The ranking order takes parameters, so the count can't be derived from the list query
+    ipage.setCountId("listCount");
+    studentMapper.listStudents(ipage, wrapper, rank);
+    if (ipage.getTotal() == 0 && query != null && current == 1) {
+      ipage.setRecords(listSimilarStudents(query,
+          filterStudents(id, username, programOfStudy), size));
+      ipage.setTotal(ipage.getRecords().size());
+    }
+    return Result.success(ipage);
+  }
+
+  private QueryWrapper<StudentListVo> filterStudents(Integer id, String username,
+      String programOfStudy) {
     QueryWrapper<StudentListVo> wrapper = new QueryWrapper<>();
     if (id != null) {
       wrapper.eq("id", id);
     }
-    if (fullName != null && !fullName.isBlank()) {
-      wrapper.apply("CONCAT(first_name, ' ', last_name) LIKE {0}",
-          "%" + fullName + "%");
-    }
     if (username != null && !username.isBlank()) {
       wrapper.like("username", username);
     }
     if (programOfStudy != null && !programOfStudy.isBlank()) {
       wrapper.like("program_of_study", programOfStudy);
     }
+    return wrapper;
+  }
 
-    IPage<StudentListVo> ipage = new Page<>(current, size);
-    return Result.success(studentMapper.listStudents(ipage, wrapper));
+  /**
+   * List the students whose names are most similar to a query.
+   *
+   * @param query   normalised name query
+   * @param wrapper other filters of the listing
+   * @param size    most students returned
+   * @return students, most similar first
+   */
+  private List<StudentListVo> listSimilarStudents(String query,
+      QueryWrapper<StudentListVo> wrapper, int size) {
+    Set<String> trigrams = TrigramUtils.trigrams(query);
+    if (trigrams.isEmpty()) {
+      return List.of();
+    }
+    List<Integer> ids = studentMapper.listSimilarNames(trigrams,
+        TrigramUtils.minSharedTrigrams(trigrams.size()), TrigramUtils.MAX_SIMILAR_CANDIDATES);
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    wrapper.in("id", ids);
+    List<StudentListVo> candidates = studentMapper.listStudents(
+        new Page<>(1, ids.size(), false), wrapper, null).getRecords();
+    return TrigramUtils.rankBySimilarity(query, candidates,
+        student -> TrigramUtils.fullName(student.getFirstName(), student.getLastName()), size);
   }
 
   /**
@@ -137,29 +242,64 @@ public class StudentServiceImpl extends ServiceImpl<StudentMapper, Student> impl
   @Transactional
   @Override
   public Result<Object> importStudent(MultipartFile file) {
-    List<CreateStudentDto> records = CsvUtils.readCsv(file, CreateStudentDto.class);
-    Set<String> existingUsernames = this.list().stream()
-        .map(Student::getUsername)
-        .collect(Collectors.toSet());
-    List<Student> savingStudentList = new ArrayList<>();
-    List<Student> updatingStudentList = new ArrayList<>();
-    for (CreateStudentDto record : records) {
-      // Integrity Check
-      if (record.getUsername() == null || record.getUsername().isBlank()
-          || record.getPassword() == null || record.getPassword().isBlank()) {
-        throw new CustomException("Username or password can't be null");
-      }
-      if (!existingUsernames.contains(record.getUsername())) {
-        savingStudentList.add(new Student(record));
-      } else {
-        updatingStudentList.add(new Student(record));
-      }
-    }
-    this.saveBatch(savingStudentList);
-    this.updateBatchById(updatingStudentList);
+    importStudent(CsvUtils.openStream(file), null);
     return Result.success();
   }
 
+  /**
+   * Import students from a csv stream, reporting progress to an import job.
+   *
+   * @param inputStream csv content
+   * @param importJob   job to report progress to, or null
+   */
+  @Transactional
+  @Override
+  public void importStudent(InputStream inputStream, ImportJob importJob) {
+    // Ids of existing students by username, streamed without loading whole rows
+    Map<String, Integer> existingIds = new HashMap<>();
+    studentMapper.listUsernames(context -> existingIds.put(
+        context.getResultObject().getUsername(), context.getResultObject().getId()));
+    // Validate and flush the file chunk by chunk so only one chunk is held in memory
+    CsvUtils.readCsvInChunks(inputStream, CreateStudentDto.class, CsvUtils.DEFAULT_CHUNK_SIZE,
+        ImportJob.track(importJob, records -> {
+          List<Student> savingStudentList = new ArrayList<>();
+          List<Student> updatingStudentList = new ArrayList<>();
+          for (CreateStudentDto record : records) {
+            // Integrity Check
+            if (record.getUsername() == null || record.getUsername().isBlank()
+                || record.getPassword() == null || record.getPassword().isBlank()) {
+              throw new CustomException("Username or password can't be null");
+            }
+          }
+          // Hash the passwords of the chunk on the worker pool, keeping the row order
+          List<String> encodedPasswords = passwordService.encodeAll(AccountType.student,
+              records.stream().map(CreateStudentDto::getPassword).toList());
+          for (int i = 0; i < records.size(); i++) {
+            Student student = new Student(records.get(i), encodedPasswords.get(i));
+            Integer existingId = existingIds.get(student.getUsername());
+            if (existingId == null) {
+              savingStudentList.add(student);
+            } else {
+              student.setId(existingId);
+              updatingStudentList.add(student);
+            }
+          }
+          this.saveBatch(savingStudentList);
+          this.updateBatchById(updatingStudentList);
+          List<Integer> changedIds = new ArrayList<>();
+          for (Student student : savingStudentList) {
+            // Later rows with the same username update the student just created
+            existingIds.put(student.getUsername(), student.getId());
+            changedIds.add(student.getId());
+          }
+          updatingStudentList.forEach(student -> changedIds.add(student.getId()));
+          refreshNameTrigrams(changedIds);
+          searchIndex.refreshStudents(changedIds);
+        }));
+    // Imported rows may move students between programs, recount them once
+    facetIndex.reload(FacetType.program);
+  }
+
   /**
    * Edit student information.
    *
@@ -169,6 +309,7 @@ public class StudentServiceImpl extends ServiceImpl<StudentMapper, Student> impl
    * @throws CustomException if the student does not exist or if there are validation errors
    * @author Wesley Xu
    */
+  @Transactional
   @Override
   public Result<Object> edit(EditStudentDto editStudentDto, Integer id) {
     Student student = this.getById(id);
@@ -192,10 +333,12 @@ public class StudentServiceImpl extends ServiceImpl<StudentMapper, Student> impl
         throw new CustomException("Username already exist!");
       }
     }
+    String oldProgramOfStudy = student.getProgramOfStudy();
     // Update student properties
     student.setUsername(editStudentDto.getUsername());
     if (editStudentDto.getPassword() != null) {
-      student.setPassword(PasswordEncoderUtils.encode(editStudentDto.getPassword()));
+      student.setPassword(
+          passwordService.encode(AccountType.student, editStudentDto.getPassword()));
     }
     student.setFirstName(editStudentDto.getFirstName());
     student.setLastName(editStudentDto.getLastName());
@@ -208,9 +351,39 @@ public class StudentServiceImpl extends ServiceImpl<StudentMapper, Student> impl
     student.setDepartment(editStudentDto.getDepartment());
 
     this.updateById(student);
+    refreshNameTrigrams(List.of(id));
+    searchIndex.refreshStudents(List.of(id));
+    // Null fields are left unchanged by updateById
+    if (student.getProgramOfStudy() != null) {
+      facetIndex.change(FacetType.program, oldProgramOfStudy, student.getProgramOfStudy());
+    }
     return Result.success();
   }
 
+  /**
+   * Rebuild the name trigrams of students from their stored names.
+   *
+   * @param ids ids of the students
+   */
+  private void refreshNameTrigrams(Collection<Integer> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    studentMapper.deleteNameTrigrams(ids);
+    List<NameTrigram> trigrams = new ArrayList<>();
+    for (Student student : this.list(new QueryWrapper<Student>()
+        .select("id", "first_name", "last_name").in("id", ids))) {
+      for (String trigram : TrigramUtils.trigrams(
+          TrigramUtils.fullName(student.getFirstName(), student.getLastName()))) {
+        trigrams.add(new NameTrigram(student.getId(), trigram));
+      }
+    }
+    for (int i = 0; i < trigrams.size(); i += CsvUtils.DEFAULT_CHUNK_SIZE) {
+      studentMapper.insertNameTrigrams(
+          trigrams.subList(i, Math.min(i + CsvUtils.DEFAULT_CHUNK_SIZE, trigrams.size())));
+    }
+  }
+
   /**
    * Delete a student by ID.
    *
@@ -219,13 +392,24 @@ public class StudentServiceImpl extends ServiceImpl<StudentMapper, Student> impl
    * @throws CustomException if the student does not exist
    * @author Wesley Xu
    */
+  @Transactional
   @Override
   public Result<Object> delete(Integer id) {
     Student student = this.getById(id);
     if (student == null) {
       throw new CustomException("Student not exist!");
     }
+    // Registrations of the student are removed by cascade, so refresh their records
+    Set<Long> recordIds = registrationMapper.selectList(new QueryWrapper<Registration>()
+            .select("record_id").eq("student_id", id)).stream()
+        .map(Registration::getRecordId)
+        .collect(Collectors.toSet());
     this.removeById(id);
+    recordService.refreshStats(recordIds);
+    searchIndex.refreshStudents(List.of(id));
+    accountCache.evict(AccountType.student, List.of(id));
+    gradeSummaryCache.evict(List.of(id));
+    facetIndex.change(FacetType.program, student.getProgramOfStudy(), null);
     return Result.success();
   }
 
@@ -247,11 +431,11 @@ public class StudentServiceImpl extends ServiceImpl<StudentMapper, Student> impl
     if (student == null) {
       throw new CustomException("Student not found");
     }
-    if (!PasswordEncoderUtils.checkPassword(resetPasswordDto.getOldPassword(),
-        student.getPassword())) {
+    if (!passwordService.matches(resetPasswordDto.getOldPassword(), student.getPassword())) {
       throw new CustomException("Old password is incorrect");
     }
-    student.setPassword(PasswordEncoderUtils.encode(resetPasswordDto.getNewPassword()));
+    student.setPassword(
+        passwordService.encode(AccountType.student, resetPasswordDto.getNewPassword()));
     this.updateById(student);
   }
 
@@ -262,7 +446,7 @@ public class StudentServiceImpl extends ServiceImpl<StudentMapper, Student> impl
    */
   @Override
   public Result<StudentVo> detail() {
-    Student student = this.getById(LoginAspect.threadLocal.get().getId());
+    Student student = this.getById(LoginContextHolder.get().getId());
     return Result.success(new StudentVo(student));
   }
 
@@ -295,20 +479,48 @@ public class StudentServiceImpl extends ServiceImpl<StudentMapper, Student> impl
   public Result<IPage<StudentRegistrationListVo>> listStudentRegistrations(Integer current,
       Integer size) {
     return Result.success(registrationMapper.listStudentRegistrations(new Page<>(current, size),
-        LoginAspect.threadLocal.get().getId()));
+        LoginContextHolder.get().getId()));
+  }
+
+  /**
+   * Student's own grade summary.
+   *
+   * @return credit weighted averages, classification and yearly breakdown
+   */
+  @Override
+  public Result<GradeSummaryVo> gradeSummary() {
+    return Result.success(loadGradeSummary(LoginContextHolder.get().getId()));
+  }
+
+  /**
+   * Staff and Admin get the grade summary of a student.
+   *
+   * @param id id of the student
+   * @return credit weighted averages, classification and yearly breakdown
+   */
+  @Override
+  public Result<GradeSummaryVo> getStudentGradeSummary(Integer id) {
+    if (!studentMapper.exists(new QueryWrapper<Student>().eq("id", id))) {
+      throw new CustomException("Student not found");
+    }
+    return Result.success(loadGradeSummary(id));
+  }
+
+  private GradeSummaryVo loadGradeSummary(Integer studentId) {
+    return gradeSummaryCache.get(studentId, key -> GradeUtils.summarize(
+        registrationMapper.listStudentRegistrations(new Page<>(1, -1, false), key)
+            .getRecords()));
   }
 
   /**
    * Retrieves a list of unique academic programs associated with students.
-   * Ensures that duplicate program names are removed from the result.
+   * The programs are served from the facet index instead of reading every student.
    *
-   * @return a Result object containing a list of unique program names
+   * @return a Result object containing a list of unique program names, sorted
    */
   @Override
   public Result<List<String>> listPrograms() {
-    List<String> programs = studentMapper.listPrograms();
-    programs = new ArrayList<>(new HashSet<>(programs));
-    return Result.success(programs);
+    return Result.success(facetIndex.values(FacetType.program));
   }
 
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package uk.ac.ucl.comp0010.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.springframework.stereotype.Service;
+import uk.ac.ucl.comp0010.context.LoginContextHolder;
+import uk.ac.ucl.comp0010.entity.Student;
+import uk.ac.ucl.comp0010.exception.CustomException;
+import uk.ac.ucl.comp0010.exception.ServerException;
+import uk.ac.ucl.comp0010.mapper.RegistrationMapper;
+import uk.ac.ucl.comp0010.mapper.StudentMapper;
+import uk.ac.ucl.comp0010.service.TranscriptService;
+import uk.ac.ucl.comp0010.utils.TranscriptPdfUtils;
+import uk.ac.ucl.comp0010.vo.StudentRegistrationListVo;
+
+/**
+ * <p>
+ * Implementation for Transcript Service.
+ * </p>
+ *
+ * <p>
+ * Transcripts are written straight to the response while they are generated. Everything that can
+ * fail with a client error is checked before the first byte is sent.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-12
+ */
+@Service
+public class TranscriptServiceImpl implements TranscriptService {
+
+  /**
+   * Students loaded at a time when exporting a whole program.
+   */
+  private static final int STUDENT_BATCH_SIZE = 100;
+
+  @Resource
+  private StudentMapper studentMapper;
+
+  @Resource
+  private RegistrationMapper registrationMapper;
+
+  /**
+   * Write the transcript of the logged-in student.
+   *
+   * @param response response the PDF is written to
+   */
+  @Override
+  public void exportTranscript(HttpServletResponse response) {
+    exportTranscript(LoginContextHolder.get().getId(), response);
+  }
+
+  /**
+   * Write the transcript of a student.
+   *
+   * @param studentId student id
+   * @param response  response the PDF is written to
+   * @throws CustomException if the student does not exist
+   */
+  @Override
+  public void exportTranscript(Integer studentId, HttpServletResponse response) {
+    Student student = studentMapper.selectById(studentId);
+    if (student == null) {
+      throw new CustomException("Student not found");
+    }
+    List<StudentRegistrationListVo> registrations = listRegistrations(studentId);
+    response.setContentType("application/pdf");
+    response.setHeader("Content-Disposition",
+        "attachment; filename=\"" + fileName(student) + "\"");
+    try (OutputStream outputStream = response.getOutputStream()) {
+      TranscriptPdfUtils.write(student, registrations, outputStream);
+    } catch (IOException e) {
+      throw new ServerException("Writing transcript error");
+    }
+  }
+
+  /**
+   * Write a ZIP archive with the transcript of every student in a program.
+   *
+   * <p>
+   * Students are loaded in batches and each transcript becomes one entry of the archive as soon
+   * as it is rendered, so memory use does not grow with the size of the program.
+   * </p>
+   *
+   * @param programOfStudy program of study
+   * @param response       response the archive is written to
+   * @throws CustomException if no student is in the program
+   */
+  @Override
+  public void exportProgramTranscripts(String programOfStudy, HttpServletResponse response) {
+    if (programOfStudy == null || programOfStudy.isBlank()) {
+      throw new CustomException("Program of study is required");
+    }
+    List<Student> students = listStudents(programOfStudy, 0);
+    if (students.isEmpty()) {
+      throw new CustomException("No student in this program");
+    }
+    response.setContentType("application/zip");
+    response.setHeader("Content-Disposition",
+        "attachment; filename=\"transcripts_" + sanitize(programOfStudy) + ".zip\"");
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(response.getOutputStream())) {
+      while (!students.isEmpty()) {
+        for (Student student : students) {
+          zipOutputStream.putNextEntry(new ZipEntry(fileName(student)));
+          TranscriptPdfUtils.write(student, listRegistrations(student.getId()),
+              zipOutputStream);
+          zipOutputStream.closeEntry();
+        }
+        students = students.size() < STUDENT_BATCH_SIZE ? List.of()
+            : listStudents(programOfStudy, students.get(students.size() - 1).getId());
+      }
+    } catch (IOException e) {
+      throw new ServerException("Writing transcript error");
+    }
+  }
+
+  private List<Student> listStudents(String programOfStudy, Integer afterId) {
+    return studentMapper.selectList(new QueryWrapper<Student>()
+        .select("id", "first_name", "last_name", "program_of_study", "graduation_year",
+            "department")
+        .eq("program_of_study", programOfStudy)
+        .gt("id", afterId)
+        .orderByAsc("id")
+        .last("LIMIT " + STUDENT_BATCH_SIZE));
+  }
+
+  private List<StudentRegistrationListVo> listRegistrations(Integer studentId) {
+    return registrationMapper.listStudentRegistrations(new Page<>(1, -1, false), studentId)
+        .getRecords();
+  }
+
+  private static String fileName(Student student) {
+    return "transcript_" + student.getId() + "_" + sanitize(student.getFirstName()) + "_"
+        + sanitize(student.getLastName()) + ".pdf";
+  }
+
+  private static String sanitize(String text) {
+    return text == null ? "" : text.replaceAll("[^A-Za-z0-9-]", "_");
+  }
+}
@@ -0,0 +1,45 @@
+package uk.ac.ucl.comp0010.utils;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+/**
+ * Bcrypt password hasher.
+ *
+ * <p>
+ * Hashes look like $2a$10$..., where 10 is the log2 of the number of rounds.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+
+public class BcryptPasswordHasher implements PasswordHasher {
+
+  public static final int MIN_COST = 4;
+
+  public static final int MAX_COST = 30;
+
+  @Override
+  public String hash(String plainPassword, int cost) {
+    return BCrypt.hashpw(plainPassword, BCrypt.gensalt(cost));
+  }
+
+  @Override
+  public boolean verify(String plainPassword, String hashedPassword) {
+    return BCrypt.checkpw(plainPassword, hashedPassword);
+  }
+
+  @Override
+  public int costOf(String hashedPassword) {
+    if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(0) != '$'
+        || hashedPassword.charAt(3) != '$' || hashedPassword.charAt(6) != '$') {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(hashedPassword.substring(4, 6));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+}
@@ -0,0 +1,184 @@
+package uk.ac.ucl.comp0010.utils;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import uk.ac.ucl.comp0010.exception.CustomException;
+import uk.ac.ucl.comp0010.exception.ServerException;
+
+/**
+ * Precompiled binder turning csv rows into data objects.
+ *
+ * <p>
+ * The no-args constructor and the setter of every supported field are linked once per class
+ * through {@link LambdaMetafactory}, so binding a row is a plain interface call per cell instead
+ * of a reflective {@code Field.set}. Binders are cached for the lifetime of the class.
+ * </p>
+ *
+ * @param <T> type of the data object
+ * @author Jack Pan
+ * @since 2024-12-10
+ */
+
+public final class CsvRowBinder<T> {
+
+  private static final ClassValue<CsvRowBinder<?>> BINDERS = new ClassValue<>() {
+    @Override
+    protected CsvRowBinder<?> computeValue(Class<?> type) {
+      return new CsvRowBinder<>(type);
+    }
+  };
+
+  private final Supplier<T> constructor;
+
+  /**
+   * Column setters by field name, null when the field type can't be parsed from csv.
+   */
+  private final Map<String, BiConsumer<T, String>> columnSetters = new HashMap<>();
+
+  private CsvRowBinder(Class<T> clazz) {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      this.constructor = linkConstructor(lookup, clazz);
+    } catch (Throwable e) {
+      throw new ServerException("Csv binding unavailable for " + clazz.getSimpleName());
+    }
+    for (Field field : clazz.getDeclaredFields()) {
+      if (Modifier.isStatic(field.getModifiers())) {
+        continue;
+      }
+      Function<String, Object> parser = parserFor(field.getType());
+      BiConsumer<T, Object> setter = null;
+      if (parser != null) {
+        try {
+          setter = linkSetter(lookup, clazz, field);
+        } catch (Throwable e) {
+          // Without a setter the column can't be bound
+        }
+      }
+      if (setter == null) {
+        columnSetters.put(field.getName(), null);
+      } else {
+        BiConsumer<T, Object> typedSetter = setter;
+        columnSetters.put(field.getName(),
+            (obj, value) -> typedSetter.accept(obj, parser.apply(value)));
+      }
+    }
+  }
+
+  /**
+   * Get the cached binder of a class.
+   *
+   * @param clazz class of the data object
+   * @return binder
+   */
+
+  @SuppressWarnings("unchecked")
+  public static <T> CsvRowBinder<T> of(Class<T> clazz) {
+    return (CsvRowBinder<T>) BINDERS.get(clazz);
+  }
+
+  /**
+   * Resolve the setters for a csv header.
+   *
+   * @param headers header row of the csv file
+   * @return setters in column order
+   */
+
+  @SuppressWarnings("unchecked")
+  public BiConsumer<T, String>[] bindHeader(String[] headers) {
+    BiConsumer<T, String>[] setters = new BiConsumer[headers.length];
+    for (int i = 0; i < headers.length; i++) {
+      if (!columnSetters.containsKey(headers[i])) {
+        throw new CustomException("Csv file data format invalid");
+      }
+      setters[i] = columnSetters.get(headers[i]);
+      if (setters[i] == null) {
+        throw new ServerException("Field not recognized");
+      }
+    }
+    return setters;
+  }
+
+  /**
+   * Create a data object from a csv row.
+   *
+   * @param setters setters returned by {@link #bindHeader(String[])}
+   * @param dataRow values of the row in column order
+   * @return data object
+   */
+
+  public T bindRow(BiConsumer<T, String>[] setters, String[] dataRow) {
+    T obj = constructor.get();
+    for (int i = 0; i < setters.length; i++) {
+      setters[i].accept(obj, dataRow[i]);
+    }
+    return obj;
+  }
+
+  /**
+   * Parser of the csv value for a field type.
+   *
+   * <p>
+   * Blank cells of boxed and date fields are bound as null, so optional columns can be left empty
+   * and the services report the missing value.
+   * </p>
+   */
+
+  private static Function<String, Object> parserFor(Class<?> fieldType) {
+    if (fieldType == int.class) {
+      return Integer::valueOf;
+    } else if (fieldType == Integer.class) {
+      return blankAsNull(Integer::valueOf);
+    } else if (fieldType == long.class) {
+      return Long::valueOf;
+    } else if (fieldType == Long.class) {
+      return blankAsNull(Long::valueOf);
+    } else if (fieldType == String.class) {
+      return value -> value;
+    } else if (fieldType == LocalDate.class) {
+      return blankAsNull(LocalDate::parse);
+    }
+    return null;
+  }
+
+  private static Function<String, Object> blankAsNull(Function<String, Object> parser) {
+    return value -> value.isBlank() ? null : parser.apply(value.trim());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Supplier<T> linkConstructor(MethodHandles.Lookup lookup, Class<T> clazz)
+      throws Throwable {
+    MethodHandle handle = lookup.findConstructor(clazz, MethodType.methodType(void.class));
+    CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+        MethodType.methodType(Supplier.class), MethodType.methodType(Object.class), handle,
+        MethodType.methodType(clazz));
+    return (Supplier<T>) site.getTarget().invoke();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> BiConsumer<T, Object> linkSetter(MethodHandles.Lookup lookup,
+      Class<T> clazz, Field field) throws Throwable {
+    String name = field.getName();
+    String setterName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    MethodHandle handle = lookup.findVirtual(clazz, setterName,
+        MethodType.methodType(void.class, field.getType()));
+    Class<?> boxedType = MethodType.methodType(field.getType()).wrap().returnType();
+    CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+        MethodType.methodType(BiConsumer.class),
+        MethodType.methodType(void.class, Object.class, Object.class), handle,
+        MethodType.methodType(void.class, clazz, boxedType));
+    return (BiConsumer<T, Object>) site.getTarget().invoke();
+  }
+
+}
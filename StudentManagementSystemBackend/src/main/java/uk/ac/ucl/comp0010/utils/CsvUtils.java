@@ -1,14 +1,23 @@
 package uk.ac.ucl.comp0010.utils;
 
 import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+import com.opencsv.exceptions.CsvValidationException;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.Field;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+import org.apache.ibatis.session.ResultHandler;
 import org.springframework.web.multipart.MultipartFile;
 import uk.ac.ucl.comp0010.exception.CustomException;
 import uk.ac.ucl.comp0010.exception.ServerException;
@@ -23,65 +32,159 @@ import uk.ac.ucl.comp0010.exception.ServerException;
 public class CsvUtils {
 
   /**
-   * Functions for reading csv files.
+   * Number of rows handed to the consumer at once when importing.
    */
+  public static final int DEFAULT_CHUNK_SIZE = 1000;
 
-  public static <T> List<T> readCsv(MultipartFile file, Class<T> clazz) {
+  private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Open the input stream of an uploaded csv file.
+   *
+   * @param file uploaded csv file
+   * @return input stream of the file
+   */
+
+  public static InputStream openStream(MultipartFile file) {
     if (file.isEmpty()) {
       throw new CustomException("The file is empty!");
     }
-    List<T> resultList = new ArrayList<>();
-    try (CSVReader csvReader = new CSVReader(new InputStreamReader(file.getInputStream(),
-        StandardCharsets.UTF_8))) {
+    try {
+      return file.getInputStream();
+    } catch (IOException e) {
+      throw new ServerException("Reading csv file error");
+    }
+  }
+
+  /**
+   * Functions for reading csv files chunk by chunk.
+   *
+   * <p>
+   * Only one chunk of rows is held in memory at a time, so the heap used by an import does not
+   * grow with the size of the uploaded file. Exceptions thrown by the consumer are propagated
+   * unchanged.
+   * </p>
+   *
+   * @param inputStream   csv content, closed once read
+   * @param clazz         class each row is bound to
+   * @param chunkSize     maximum number of rows passed to the consumer at once
+   * @param chunkConsumer consumer handling each chunk of rows
+   */
+
+  public static <T> void readCsvInChunks(InputStream inputStream, Class<T> clazz, int chunkSize,
+      Consumer<List<T>> chunkConsumer) {
+    CsvRowBinder<T> binder = CsvRowBinder.of(clazz);
+    try (CSVReader csvReader = new CSVReader(
+        new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
       // Reading Csv Header
-      String[] headers = csvReader.readNext();
+      BiConsumer<T, String>[] setters = binder.bindHeader(readHeader(csvReader));
+      List<T> chunk;
+      while (!(chunk = readChunk(csvReader, binder, setters, chunkSize)).isEmpty()) {
+        chunkConsumer.accept(chunk);
+      }
+    } catch (IOException e) {
+      throw new ServerException("Reading csv file error");
+    }
+  }
 
-      // Save Fields
-      Map<String, Field> fieldMap = new HashMap<>();
-      for (String header : headers) {
-        Field field = clazz.getDeclaredField(header);
-        field.setAccessible(true);
-        fieldMap.put(header, field);
+  /**
+   * Count the data rows of a csv file, excluding the header.
+   *
+   * @param inputStream csv content, closed once read
+   * @return number of data rows
+   */
+
+  public static long countRows(InputStream inputStream) {
+    try (CSVReader csvReader = new CSVReader(
+        new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+      long rows = 0;
+      while (csvReader.readNext() != null) {
+        rows++;
       }
+      return Math.max(rows - 1, 0);
+    } catch (CsvValidationException | IOException e) {
+      throw new ServerException("Reading csv file error");
+    }
+  }
 
-      String[] dataRow;
-      while ((dataRow = csvReader.readNext()) != null) {
-        T obj = clazz.getDeclaredConstructor().newInstance();
-        for (int i = 0; i < headers.length; i++) {
-          String header = headers[i];
-          String value = dataRow[i];
-          Field field = fieldMap.get(header);
-          setFieldValue(obj, field, value);
+  /**
+   * Write the rows of a query to the response as a csv file.
+   *
+   * <p>
+   * Rows are written as the query hands them over, so the file is never held in memory. The
+   * query stops early if the client goes away.
+   * </p>
+   *
+   * @param response response the file is written to
+   * @param fileName name of the downloaded file, without extension
+   * @param gzip     compress the file
+   * @param header   header row
+   * @param row      values of a row, in header order
+   * @param query    runs the query with the handler receiving each row
+   */
+
+  public static <T> void writeCsv(HttpServletResponse response, String fileName, boolean gzip,
+      String[] header, Function<T, Object[]> row, Consumer<ResultHandler<T>> query) {
+    response.setContentType(gzip ? "application/gzip" : "text/csv;charset=UTF-8");
+    response.setHeader("Content-Disposition",
+        "attachment; filename=\"" + fileName + (gzip ? ".csv.gz" : ".csv") + "\"");
+    try (OutputStream outputStream = gzip
+        ? new GZIPOutputStream(response.getOutputStream(), WRITE_BUFFER_SIZE)
+        : response.getOutputStream();
+        CSVWriter csvWriter = new CSVWriter(new BufferedWriter(
+            new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE))) {
+      csvWriter.writeNext(header, false);
+      String[] line = new String[header.length];
+      query.accept(context -> {
+        Object[] values = row.apply(context.getResultObject());
+        for (int i = 0; i < line.length; i++) {
+          line[i] = values[i] == null ? "" : values[i].toString();
+        }
+        csvWriter.writeNext(line, false);
+        if (csvWriter.getException() != null) {
+          context.stop();
         }
-        resultList.add(obj);
+      });
+      if (csvWriter.getException() != null) {
+        throw csvWriter.getException();
       }
-    } catch (NoSuchFieldException e) {
-      throw new CustomException("Csv file data format invalid");
-    } catch (Exception e) {
-      throw new ServerException("Reading csv file error");
+    } catch (IOException e) {
+      throw new ServerException("Writing csv file error");
     }
+  }
 
-    return resultList;
+  /**
+   * Read the header row.
+   */
+
+  private static String[] readHeader(CSVReader csvReader) {
+    try {
+      String[] headers = csvReader.readNext();
+      if (headers == null) {
+        throw new ServerException("Reading csv file error");
+      }
+      return headers;
+    } catch (CsvValidationException | IOException e) {
+      throw new ServerException("Reading csv file error");
+    }
   }
 
   /**
-   * Parse the value and set value to the object.
+   * Read at most chunkSize rows, returning an empty list once the file is exhausted.
    */
 
-  private static <T> void setFieldValue(T obj, Field field, String value)
-      throws IllegalAccessException {
-    Class<?> fieldType = field.getType();
-    if (fieldType == int.class || fieldType == Integer.class) {
-      field.set(obj, Integer.parseInt(value));
-    } else if (fieldType == Long.class) {
-      field.set(obj, Long.parseLong(value));
-    } else if (fieldType == String.class) {
-      field.set(obj, value);
-    } else if (fieldType == LocalDate.class) {
-      field.set(obj, LocalDate.parse(value));
-    } else {
-      throw new ServerException("Field not recognized");
+  private static <T> List<T> readChunk(CSVReader csvReader, CsvRowBinder<T> binder,
+      BiConsumer<T, String>[] setters, int chunkSize) {
+    List<T> chunk = new ArrayList<>(chunkSize);
+    try {
+      String[] dataRow;
+      while (chunk.size() < chunkSize && (dataRow = csvReader.readNext()) != null) {
+        chunk.add(binder.bindRow(setters, dataRow));
+      }
+    } catch (CsvValidationException | IOException | RuntimeException e) {
+      throw new ServerException("Reading csv file error");
     }
+    return chunk;
   }
 
 }
@@ -0,0 +1,69 @@
+package uk.ac.ucl.comp0010.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import uk.ac.ucl.comp0010.exception.CustomException;
+
+/**
+ * Utilities for the opaque cursors used by keyset pagination.
+ *
+ * <p>
+ * A cursor is the url safe Base64 form of the sort key of the last row on a page.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-10
+ */
+
+public class CursorUtils {
+
+  /**
+   * Encode the sort key of a row into a cursor.
+   *
+   * @param key sort key
+   * @return cursor
+   */
+
+  public static String encode(Object key) {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(key.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decode a cursor into a string key.
+   *
+   * @param cursor cursor, empty for the first page
+   * @return sort key, null for the first page
+   */
+
+  public static String decode(String cursor) {
+    if (cursor == null || cursor.isEmpty()) {
+      return null;
+    }
+    try {
+      return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new CustomException("Invalid cursor");
+    }
+  }
+
+  /**
+   * Decode a cursor into a numeric key.
+   *
+   * @param cursor cursor, empty for the first page
+   * @return sort key, null for the first page
+   */
+
+  public static Long decodeLong(String cursor) {
+    String key = decode(cursor);
+    if (key == null) {
+      return null;
+    }
+    try {
+      return Long.valueOf(key);
+    } catch (NumberFormatException e) {
+      throw new CustomException("Invalid cursor");
+    }
+  }
+
+}
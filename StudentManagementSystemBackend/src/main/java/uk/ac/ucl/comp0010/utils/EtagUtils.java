@@ -0,0 +1,42 @@
+package uk.ac.ucl.comp0010.utils;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Utilities for conditional GET requests.
+ *
+ * @author Jack Pan
+ * @since 2024-12-13
+ */
+
+public class EtagUtils {
+
+  /**
+   * Check the entity tag of a response against the If-None-Match header of the request.
+   *
+   * <p>
+   * The tag is sent with every response, and clients are told to revalidate their copy on each
+   * use instead of keeping it blindly. When the client copy is current the response is set to
+   * 304 Not Modified and the handler should return null without loading the body.
+   * </p>
+   *
+   * @param request current request
+   * @param etag    strong entity tag of the resource, or null when it doesn't exist
+   * @return True if the client copy is current
+   */
+
+  public static boolean checkNotModified(ServletWebRequest request, String etag) {
+    if (etag == null) {
+      return false;
+    }
+    HttpServletResponse response = request.getResponse();
+    if (response != null) {
+      response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+    }
+    return request.checkNotModified(etag);
+  }
+
+}
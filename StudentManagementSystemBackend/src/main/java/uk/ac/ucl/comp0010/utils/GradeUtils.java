@@ -0,0 +1,193 @@
+package uk.ac.ucl.comp0010.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import uk.ac.ucl.comp0010.vo.GradeSummaryVo;
+import uk.ac.ucl.comp0010.vo.StudentRegistrationListVo;
+import uk.ac.ucl.comp0010.vo.YearGradeSummaryVo;
+
+/**
+ * UK grade bands for module scores.
+ *
+ * @author Jack Pan
+ * @since 2024-12-12
+ */
+
+public class GradeUtils {
+
+  /**
+   * Lowest passing score.
+   */
+  public static final int PASS_SCORE = 40;
+
+  private static final List<String> GRADES = List.of("A", "B", "C", "D", "F");
+
+  /**
+   * Grade of a score, the same bands as the transcripts of the frontend.
+   *
+   * @param score module score, null when not marked yet
+   * @return A, B, C, D or F, "-" when not marked
+   */
+
+  public static String grade(Integer score) {
+    if (score == null) {
+      return "-";
+    }
+    if (score >= 70) {
+      return "A";
+    }
+    if (score >= 60) {
+      return "B";
+    }
+    if (score >= 50) {
+      return "C";
+    }
+    if (score >= PASS_SCORE) {
+      return "D";
+    }
+    return "F";
+  }
+
+  public static boolean isPass(Integer score) {
+    return score != null && score >= PASS_SCORE;
+  }
+
+  /**
+   * Degree classification of an average score.
+   *
+   * @param average average score, null when nothing is marked
+   * @return classification, null when nothing is marked
+   */
+
+  public static String classification(BigDecimal average) {
+    if (average == null) {
+      return null;
+    }
+    if (average.compareTo(BigDecimal.valueOf(70)) >= 0) {
+      return "First";
+    }
+    if (average.compareTo(BigDecimal.valueOf(60)) >= 0) {
+      return "Upper Second (2:1)";
+    }
+    if (average.compareTo(BigDecimal.valueOf(50)) >= 0) {
+      return "Lower Second (2:2)";
+    }
+    if (average.compareTo(BigDecimal.valueOf(PASS_SCORE)) >= 0) {
+      return "Third";
+    }
+    return "Fail";
+  }
+
+  /**
+   * Summarize the registrations of a student.
+   *
+   * <p>
+   * Averages only count marked modules. The weighted average weighs every score by the credits of
+   * its module, and registrations without an exam date are left out of the yearly breakdown.
+   * </p>
+   *
+   * @param registrations registrations of the student
+   * @return grade summary
+   */
+
+  public static GradeSummaryVo summarize(List<StudentRegistrationListVo> registrations) {
+    Tally overall = new Tally();
+    Map<Integer, Tally> years = new TreeMap<>();
+    Map<String, Integer> gradeDistribution = new LinkedHashMap<>();
+    for (String grade : GRADES) {
+      gradeDistribution.put(grade, 0);
+    }
+    for (StudentRegistrationListVo registration : registrations) {
+      Integer score = registration.getScore();
+      if (score == null) {
+        continue;
+      }
+      int credits = registration.getCredits() == null ? 0 : registration.getCredits();
+      overall.add(score, credits);
+      gradeDistribution.merge(grade(score), 1, Integer::sum);
+      if (registration.getExamDate() != null) {
+        years.computeIfAbsent(registration.getExamDate().getYear(), year -> new Tally())
+            .add(score, credits);
+      }
+    }
+
+    GradeSummaryVo summary = new GradeSummaryVo();
+    summary.setTotalModules(registrations.size());
+    summary.setMarkedModules(overall.marked);
+    summary.setTotalCredits(overall.credits);
+    summary.setCreditsEarned(overall.creditsEarned);
+    summary.setPassedModules(overall.passed);
+    summary.setAverageScore(overall.average());
+    summary.setWeightedAverage(overall.weightedAverage());
+    summary.setPassRate(overall.passRate());
+    summary.setClassification(classification(summary.getWeightedAverage()));
+    summary.setGradeDistribution(gradeDistribution);
+    List<YearGradeSummaryVo> yearSummaries = new ArrayList<>();
+    for (Map.Entry<Integer, Tally> year : years.entrySet()) {
+      Tally tally = year.getValue();
+      YearGradeSummaryVo yearSummary = new YearGradeSummaryVo();
+      yearSummary.setYear(year.getKey());
+      yearSummary.setMarkedModules(tally.marked);
+      yearSummary.setTotalCredits(tally.credits);
+      yearSummary.setCreditsEarned(tally.creditsEarned);
+      yearSummary.setAverageScore(tally.average());
+      yearSummary.setWeightedAverage(tally.weightedAverage());
+      yearSummary.setPassRate(tally.passRate());
+      yearSummary.setClassification(classification(yearSummary.getWeightedAverage()));
+      yearSummaries.add(yearSummary);
+    }
+    summary.setYears(yearSummaries);
+    return summary;
+  }
+
+  /**
+   * Running totals of marked modules.
+   */
+  private static class Tally {
+
+    private int marked;
+
+    private int passed;
+
+    private int credits;
+
+    private int creditsEarned;
+
+    private long scoreSum;
+
+    private long weightedScoreSum;
+
+    private void add(int score, int moduleCredits) {
+      marked++;
+      credits += moduleCredits;
+      scoreSum += score;
+      weightedScoreSum += (long) score * moduleCredits;
+      if (isPass(score)) {
+        passed++;
+        creditsEarned += moduleCredits;
+      }
+    }
+
+    private BigDecimal average() {
+      return marked == 0 ? null : BigDecimal.valueOf(scoreSum)
+          .divide(BigDecimal.valueOf(marked), 2, RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal weightedAverage() {
+      // Modules without credits carry no weight, fall back to the plain average
+      return credits == 0 ? average() : BigDecimal.valueOf(weightedScoreSum)
+          .divide(BigDecimal.valueOf(credits), 2, RoundingMode.HALF_UP);
+    }
+
+    private BigDecimal passRate() {
+      return marked == 0 ? null : BigDecimal.valueOf(passed)
+          .divide(BigDecimal.valueOf(marked), 4, RoundingMode.HALF_UP);
+    }
+  }
+
+}
@@ -1,11 +1,19 @@
 package uk.ac.ucl.comp0010.utils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
-import io.jsonwebtoken.security.SignatureException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -31,6 +39,37 @@ public class JwtUtils {
   private static final SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(
       "jsdjkahkjhakdkashkdkashdkjxkjkkdjkaskjdjjkashkdkajhsdkkasdhakjdasdas"));
 
+  /**
+   * Parser verifying tokens with the private key, immutable and shared by all threads.
+   */
+  private static final JwtParser parser = Jwts.parser().verifyWith(key).build();
+
+  /**
+   * Payloads of verified tokens by the hash of the token, each kept until its token expires.
+   */
+  private static final Cache<String, VerifiedToken> verifiedTokens = Caffeine.newBuilder()
+      .maximumSize(10_000)
+      .expireAfter(new Expiry<String, VerifiedToken>() {
+        @Override
+        public long expireAfterCreate(String tokenHash, VerifiedToken verifiedToken,
+            long currentTime) {
+          return Math.max(verifiedToken.expiresAt() - System.currentTimeMillis(), 0) * 1_000_000;
+        }
+
+        @Override
+        public long expireAfterUpdate(String tokenHash, VerifiedToken verifiedToken,
+            long currentTime, long currentDuration) {
+          return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String tokenHash, VerifiedToken verifiedToken,
+            long currentTime, long currentDuration) {
+          return currentDuration;
+        }
+      })
+      .build();
+
 
   /**
    * Generating JWT.
@@ -71,20 +110,59 @@ public class JwtUtils {
   /**
    * Decode and Get Information from JWT.
    *
+   * <p>
+   * A token is verified once, then its payload is served from the cache until the token expires.
+   * Only the hash of the token is kept, not the token itself, so a token changed in any way misses
+   * the cache and is verified again. Every token that fails verification is reported as invalid.
+   * </p>
+   *
    * @return payload
    */
   public static Payload getPayloadFromJwt(String jwt) throws ServerException {
     if (jwt == null || jwt.isEmpty()) {
       throw new ServerException("Token not Provided");
     }
-    Claims claims;
-    try {
-      claims = Jwts.parser().verifyWith(key).build().parseSignedClaims(jwt).getPayload();
-    } catch (io.jsonwebtoken.ExpiredJwtException e) {
+    String tokenHash = hash(jwt);
+    VerifiedToken verifiedToken = verifiedTokens.getIfPresent(tokenHash);
+    if (verifiedToken != null && verifiedToken.expiresAt() <= System.currentTimeMillis()) {
+      // The cache may not have dropped the token yet
+      verifiedTokens.invalidate(tokenHash);
       throw new ServerException("Token Expired");
-    } catch (MalformedJwtException | SignatureException e) {
-      throw new ServerException("Token Invalid");
     }
-    return new Payload(claims);
+    if (verifiedToken == null) {
+      Claims claims;
+      try {
+        claims = parser.parseSignedClaims(jwt).getPayload();
+      } catch (ExpiredJwtException e) {
+        throw new ServerException("Token Expired");
+      } catch (JwtException | IllegalArgumentException e) {
+        // Malformed, unsigned, unsupported or wrongly signed tokens, and blank ones
+        throw new ServerException("Token Invalid");
+      }
+      if (claims.getExpiration() == null) {
+        // Tokens without expiry are never cached
+        return new Payload(claims);
+      }
+      verifiedToken = new VerifiedToken(new Payload(claims), claims.getExpiration().getTime());
+      verifiedTokens.put(tokenHash, verifiedToken);
+    }
+    Payload payload = verifiedToken.payload();
+    // Payload is mutable, so callers get their own copy
+    return new Payload(payload.getAccountId(), payload.getAccountType(), payload.getJwtType());
+  }
+
+  private static String hash(String jwt) {
+    try {
+      return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256")
+          .digest(jwt.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new ServerException("Hashing token error");
+    }
+  }
+
+  /**
+   * Payload of a verified token and the time it expires, in epoch milliseconds.
+   */
+  private record VerifiedToken(Payload payload, long expiresAt) {
   }
 }
@@ -0,0 +1,178 @@
+package uk.ac.ucl.comp0010.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from long to long.
+ *
+ * <p>
+ * Keys and values are stored in parallel primitive arrays with linear probing, so lookups and
+ * inserts don't allocate. Clearing keeps the arrays, so one map can be reused for every chunk of an
+ * import. The key 0 is kept outside the table because it marks empty slots.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-10
+ */
+
+public class LongLongHashMap {
+
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] keys;
+
+  private long[] values;
+
+  private int size;
+
+  private boolean hasZeroKey;
+
+  private long zeroValue;
+
+  public LongLongHashMap() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Constructor for LongLongHashMap.
+   *
+   * @param expectedSize number of entries the map holds without resizing
+   */
+
+  public LongLongHashMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(expectedSize * 2, MIN_CAPACITY) - 1) << 1;
+    this.keys = new long[capacity];
+    this.values = new long[capacity];
+  }
+
+  /**
+   * Pack a record id and a student id into one key.
+   *
+   * @param recordId  record id, below 2^32
+   * @param studentId student id
+   * @return packed key
+   */
+
+  public static long pack(long recordId, int studentId) {
+    if (recordId >>> 32 != 0) {
+      throw new IllegalArgumentException("Record id out of range: " + recordId);
+    }
+    return recordId << 32 | (studentId & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Get the value of a key.
+   *
+   * @param key          key
+   * @param defaultValue value returned when the key is absent
+   * @return value of the key, or defaultValue
+   */
+
+  public long get(long key, long defaultValue) {
+    if (key == 0) {
+      return hasZeroKey ? zeroValue : defaultValue;
+    }
+    int mask = keys.length - 1;
+    for (int i = mix(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return values[i];
+      }
+    }
+    return defaultValue;
+  }
+
+  /**
+   * Check if the map contains a key.
+   *
+   * @param key key
+   * @return True if the key is present
+   */
+
+  public boolean containsKey(long key) {
+    if (key == 0) {
+      return hasZeroKey;
+    }
+    int mask = keys.length - 1;
+    for (int i = mix(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Associate a value with a key, replacing any previous value.
+   *
+   * @param key   key
+   * @param value value
+   */
+
+  public void put(long key, long value) {
+    if (key == 0) {
+      if (!hasZeroKey) {
+        hasZeroKey = true;
+        size++;
+      }
+      zeroValue = value;
+      return;
+    }
+    int mask = keys.length - 1;
+    int i = mix(key) & mask;
+    while (keys[i] != 0) {
+      if (keys[i] == key) {
+        values[i] = value;
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = value;
+    // Keep the load factor at most 1/2
+    if (++size * 2 > keys.length) {
+      resize(keys.length << 1);
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Remove every entry, keeping the allocated table.
+   */
+
+  public void clear() {
+    Arrays.fill(keys, 0);
+    size = 0;
+    hasZeroKey = false;
+  }
+
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    long[] oldValues = values;
+    keys = new long[capacity];
+    values = new long[capacity];
+    int mask = capacity - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldKeys[j] != 0) {
+        int i = mix(oldKeys[j]) & mask;
+        while (keys[i] != 0) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  /**
+   * Spread the bits of a key so packed ids don't cluster.
+   */
+
+  private static int mix(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+}
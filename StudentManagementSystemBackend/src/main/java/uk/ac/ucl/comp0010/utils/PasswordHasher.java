@@ -0,0 +1,38 @@
+package uk.ac.ucl.comp0010.utils;
+
+/**
+ * Algorithm hashing and verifying passwords.
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+
+public interface PasswordHasher {
+
+  /**
+   * Hash a password with a new salt.
+   *
+   * @param plainPassword raw password
+   * @param cost          work factor of the algorithm
+   * @return hashed password
+   */
+  String hash(String plainPassword, int cost);
+
+  /**
+   * Check a password against a hash.
+   *
+   * @param plainPassword  raw password
+   * @param hashedPassword stored hash
+   * @return True if the password is correct
+   */
+  boolean verify(String plainPassword, String hashedPassword);
+
+  /**
+   * Read the work factor a hash was made with.
+   *
+   * @param hashedPassword stored hash
+   * @return cost, or -1 when the hash wasn't made by this algorithm
+   */
+  int costOf(String hashedPassword);
+
+}
@@ -0,0 +1,63 @@
+package uk.ac.ucl.comp0010.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utilities for work tied to the current transaction.
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+
+public class TransactionUtils {
+
+  /**
+   * Run an action after the current transaction commits, or at once outside of one.
+   *
+   * <p>
+   * In-memory state derived from the database is updated this way, so it never reflects writes
+   * that are later rolled back.
+   * </p>
+   *
+   * @param action action to run
+   */
+
+  public static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+
+  /**
+   * Run an action once the current transaction commits or rolls back, or at once outside of one.
+   *
+   * <p>
+   * Caches are invalidated this way, so an entry loaded while the transaction was running, even
+   * one holding its uncommitted writes, never outlives it.
+   * </p>
+   *
+   * @param action action to run
+   */
+
+  public static void afterCompletion(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        action.run();
+      }
+    });
+  }
+
+}
@@ -0,0 +1,223 @@
+package uk.ac.ucl.comp0010.utils;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.FontFactory;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.ColumnText;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfPageEventHelper;
+import com.lowagie.text.pdf.PdfWriter;
+import java.awt.Color;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import uk.ac.ucl.comp0010.entity.Student;
+import uk.ac.ucl.comp0010.exception.ServerException;
+import uk.ac.ucl.comp0010.vo.GradeSummaryVo;
+import uk.ac.ucl.comp0010.vo.StudentRegistrationListVo;
+
+/**
+ * Renders academic transcripts as PDF.
+ *
+ * <p>
+ * The layout follows the transcripts the frontend used to build. Pages are written to the output
+ * as soon as they are complete, and the module table is flushed every few rows, so a document is
+ * never held in memory as a whole.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-12
+ */
+
+public class TranscriptPdfUtils {
+
+  private static final Color ACCENT = new Color(41, 128, 185);
+
+  private static final Color ALTERNATE_ROW = new Color(245, 245, 245);
+
+  private static final int ROWS_PER_FLUSH = 50;
+
+  private static final String UNIVERSITY = "Awesome University";
+
+  /**
+   * Write the transcript of a student.
+   *
+   * <p>
+   * The output stream is left open, so several transcripts can be written to one archive.
+   * </p>
+   *
+   * @param student       student
+   * @param registrations registrations of the student
+   * @param outputStream  stream the PDF is written to
+   */
+
+  public static void write(Student student, List<StudentRegistrationListVo> registrations,
+      OutputStream outputStream) {
+    Document document = new Document(PageSize.A4, 50, 50, 50, 70);
+    try {
+      PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+      writer.setCloseStream(false);
+      writer.setPageEvent(new FooterEvent());
+      document.open();
+
+      Paragraph university = new Paragraph(UNIVERSITY,
+          FontFactory.getFont(FontFactory.HELVETICA_BOLD, 24, ACCENT));
+      university.setAlignment(Element.ALIGN_CENTER);
+      document.add(university);
+      Paragraph title = new Paragraph("Official Academic Transcript",
+          FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18));
+      title.setAlignment(Element.ALIGN_CENTER);
+      title.setSpacingAfter(10);
+      document.add(title);
+
+      Map<String, String> studentInfo = new LinkedHashMap<>();
+      studentInfo.put("Student ID", student.getId().toString());
+      studentInfo.put("Name", text(student.getFirstName()) + " " + text(student.getLastName()));
+      studentInfo.put("Programme", text(student.getProgramOfStudy()));
+      studentInfo.put("Department", text(student.getDepartment()));
+      studentInfo.put("Expected Graduation", text(student.getGraduationYear()));
+      addSection(document, "Student Information", studentInfo);
+
+      addSection(document, "Academic Summary", summary(registrations));
+
+      document.add(heading("Module Records"));
+      writeModuleTable(document, registrations);
+
+      document.close();
+    } catch (DocumentException e) {
+      throw new ServerException("Writing transcript error");
+    }
+  }
+
+  private static void writeModuleTable(Document document,
+      List<StudentRegistrationListVo> registrations) {
+    PdfPTable table = new PdfPTable(new float[] {25, 60, 25, 20, 20, 20});
+    table.setWidthPercentage(100);
+    table.setSpacingBefore(5);
+    table.setHeaderRows(1);
+    // Rows are added in batches, each batch is laid out and released before the next
+    table.setComplete(false);
+    Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10, Color.WHITE);
+    for (String header : List.of("Module Code", "Module Name", "Date", "Credits", "Score",
+        "Grade")) {
+      PdfPCell cell = new PdfPCell(new Phrase(header, headerFont));
+      cell.setBackgroundColor(ACCENT);
+      cell.setHorizontalAlignment(Element.ALIGN_CENTER);
+      cell.setPadding(4);
+      table.addCell(cell);
+    }
+    Font cellFont = FontFactory.getFont(FontFactory.HELVETICA, 9);
+    List<StudentRegistrationListVo> sorted = registrations.stream()
+        .sorted(Comparator.comparing(StudentRegistrationListVo::getExamDate,
+            Comparator.nullsLast(Comparator.<LocalDate>naturalOrder())))
+        .toList();
+    for (int i = 0; i < sorted.size(); i++) {
+      StudentRegistrationListVo registration = sorted.get(i);
+      Color background = i % 2 == 1 ? ALTERNATE_ROW : null;
+      addCell(table, text(registration.getModuleCode()), cellFont, background,
+          Element.ALIGN_CENTER);
+      addCell(table, text(registration.getModuleName()), cellFont, background,
+          Element.ALIGN_LEFT);
+      addCell(table, text(registration.getExamDate()), cellFont, background,
+          Element.ALIGN_CENTER);
+      addCell(table, text(registration.getCredits()), cellFont, background,
+          Element.ALIGN_CENTER);
+      addCell(table, registration.getScore() == null ? "-" : registration.getScore() + "%",
+          cellFont, background, Element.ALIGN_CENTER);
+      addCell(table, GradeUtils.grade(registration.getScore()), cellFont, background,
+          Element.ALIGN_CENTER);
+      if ((i + 1) % ROWS_PER_FLUSH == 0) {
+        document.add(table);
+      }
+    }
+    table.setComplete(true);
+    document.add(table);
+  }
+
+  private static Map<String, String> summary(List<StudentRegistrationListVo> registrations) {
+    GradeSummaryVo gradeSummary = GradeUtils.summarize(registrations);
+    Map<String, String> summary = new LinkedHashMap<>();
+    summary.put("Overall Average", percentage(gradeSummary.getAverageScore()));
+    summary.put("Pass Rate", percentage(gradeSummary.getPassRate() == null ? null
+        : gradeSummary.getPassRate().movePointRight(2)));
+    summary.put("Total Credits Completed", gradeSummary.getCreditsEarned().toString());
+    summary.put("Total Modules Completed", gradeSummary.getPassedModules().toString());
+    return summary;
+  }
+
+  private static String percentage(BigDecimal value) {
+    return String.format("%.1f%%", value == null ? BigDecimal.ZERO : value);
+  }
+
+  private static void addSection(Document document, String title, Map<String, String> rows) {
+    document.add(heading(title));
+    PdfPTable table = new PdfPTable(new float[] {50, 120});
+    table.setWidthPercentage(100);
+    Font labelFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11);
+    Font valueFont = FontFactory.getFont(FontFactory.HELVETICA, 11);
+    for (Map.Entry<String, String> row : rows.entrySet()) {
+      PdfPCell label = new PdfPCell(new Phrase(row.getKey() + ":", labelFont));
+      label.setBorder(Rectangle.NO_BORDER);
+      table.addCell(label);
+      PdfPCell value = new PdfPCell(new Phrase(row.getValue(), valueFont));
+      value.setBorder(Rectangle.NO_BORDER);
+      table.addCell(value);
+    }
+    document.add(table);
+  }
+
+  private static Paragraph heading(String text) {
+    Paragraph heading = new Paragraph(text,
+        FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14, ACCENT));
+    heading.setSpacingBefore(12);
+    heading.setSpacingAfter(6);
+    return heading;
+  }
+
+  private static void addCell(PdfPTable table, String text, Font font, Color background,
+      int alignment) {
+    PdfPCell cell = new PdfPCell(new Phrase(text, font));
+    cell.setHorizontalAlignment(alignment);
+    cell.setPadding(3);
+    if (background != null) {
+      cell.setBackgroundColor(background);
+    }
+    table.addCell(cell);
+  }
+
+  private static String text(Object value) {
+    return value == null ? "-" : value.toString();
+  }
+
+  /**
+   * Footer written on every page as it is finished.
+   */
+  private static class FooterEvent extends PdfPageEventHelper {
+
+    private final String generatedOn = "Generated on " + LocalDate.now();
+
+    @Override
+    public void onEndPage(PdfWriter writer, Document document) {
+      Font font = FontFactory.getFont(FontFactory.HELVETICA, 8, Color.GRAY);
+      float center = (document.left() + document.right()) / 2;
+      ColumnText.showTextAligned(writer.getDirectContent(), Element.ALIGN_CENTER,
+          new Phrase("This is an official transcript from " + UNIVERSITY, font), center,
+          document.bottom() - 30, 0);
+      ColumnText.showTextAligned(writer.getDirectContent(), Element.ALIGN_CENTER,
+          new Phrase(generatedOn + " - Page " + writer.getPageNumber(), font), center,
+          document.bottom() - 42, 0);
+    }
+  }
+
+}
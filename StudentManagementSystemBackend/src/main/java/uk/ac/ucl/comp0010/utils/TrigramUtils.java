@@ -0,0 +1,199 @@
+package uk.ac.ucl.comp0010.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Utilities for the trigram index on student and staff names.
+ *
+ * <p>
+ * A full name is indexed as every run of three characters of its lower case form, so a name
+ * containing the query contains all of the query's trigrams. Searches take the candidates from
+ * the rarest trigram of the query and then check them against the full_name column. When even
+ * the rarest trigram is held by too many names, looking them up costs more than scanning
+ * full_name, so the search scans instead.
+ * </p>
+ *
+ * <p>
+ * When no name contains the query, for instance because it is misspelled, listings fall back to
+ * the names sharing the most trigrams with it, ranked by {@link #similarity(String, String)}.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+
+public class TrigramUtils {
+
+  public static final int GRAM_SIZE = 3;
+
+  /**
+   * Least similarity of a name to be listed as a near match.
+   */
+  public static final double MIN_SIMILARITY = 0.3;
+
+  /**
+   * Most names sharing trigrams with a query that are ranked, the ones sharing the most first.
+   */
+  public static final int MAX_SIMILAR_CANDIDATES = 200;
+
+  /**
+   * Most names a trigram may be held by to be used as the candidates of a search.
+   */
+  public static final int MAX_TRIGRAM_CANDIDATES = 5000;
+
+  /**
+   * Normalise a full name the same way as the generated full_name column.
+   *
+   * @param firstName first name, may be null
+   * @param lastName  last name, may be null
+   * @return lower case full name
+   */
+
+  public static String fullName(String firstName, String lastName) {
+    return normalize((firstName == null ? "" : firstName) + " "
+        + (lastName == null ? "" : lastName));
+  }
+
+  public static String normalize(String text) {
+    return text.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Split a normalised text into its distinct trigrams.
+   *
+   * @param text normalised text
+   * @return trigrams in order of first appearance, empty when the text is too short
+   */
+
+  public static Set<String> trigrams(String text) {
+    Set<String> trigrams = new LinkedHashSet<>();
+    for (int i = 0; i + GRAM_SIZE <= text.length(); i++) {
+      trigrams.add(text.substring(i, i + GRAM_SIZE));
+    }
+    return trigrams;
+  }
+
+  /**
+   * Filter a query by full name.
+   *
+   * <p>
+   * The names holding the rarest trigram of the query are the candidates, as long as there are at
+   * most {@link #MAX_TRIGRAM_CANDIDATES} of them. Otherwise, and for queries shorter than three
+   * characters, full_name is matched directly.
+   * </p>
+   *
+   * @param wrapper      query wrapper on the owner table
+   * @param trigramTable trigram table of the owner
+   * @param ownerColumn  column of the trigram table referencing the owner
+   * @param query        normalised query
+   * @param postings     number of names holding a trigram, counted up to the given limit
+   */
+
+  public static <T> void applyNameSearch(QueryWrapper<T> wrapper, String trigramTable,
+      String ownerColumn, String query, ToIntBiFunction<String, Integer> postings) {
+    String rarest = null;
+    int fewest = MAX_TRIGRAM_CANDIDATES + 1;
+    for (String trigram : trigrams(query)) {
+      // Counting stops at the rarest trigram so far, a common one costs no more to probe
+      int count = postings.applyAsInt(trigram, fewest);
+      if (count < fewest) {
+        rarest = trigram;
+        fewest = count;
+        if (count == 0) {
+          break;
+        }
+      }
+    }
+    if (rarest != null) {
+      wrapper.apply("id IN (SELECT " + ownerColumn + " FROM " + trigramTable
+          + " WHERE trigram = {0})", rarest);
+    }
+    wrapper.apply("full_name LIKE {0}", "%" + escapeLike(query) + "%");
+  }
+
+  /**
+   * Similarity of two normalised texts, as the share of their distinct trigrams they have in
+   * common.
+   *
+   * @param query normalised query
+   * @param text  normalised text
+   * @return similarity from 0 to 1, 1 when both have the same trigrams
+   */
+
+  public static double similarity(String query, String text) {
+    Set<String> queryTrigrams = trigrams(query);
+    Set<String> textTrigrams = trigrams(text);
+    if (queryTrigrams.isEmpty() || textTrigrams.isEmpty()) {
+      return 0;
+    }
+    int shared = 0;
+    for (String trigram : queryTrigrams) {
+      if (textTrigrams.contains(trigram)) {
+        shared++;
+      }
+    }
+    return (double) shared / (queryTrigrams.size() + textTrigrams.size() - shared);
+  }
+
+  /**
+   * Least number of trigrams a name shares with a query of this many trigrams to have a chance
+   * of reaching {@link #MIN_SIMILARITY}.
+   *
+   * @param queryTrigrams number of distinct trigrams of the query
+   * @return number of shared trigrams
+   */
+
+  public static int minSharedTrigrams(int queryTrigrams) {
+    return Math.max(1, (int) Math.ceil(queryTrigrams * MIN_SIMILARITY));
+  }
+
+  /**
+   * Rank candidates by the similarity of their full name to a query.
+   *
+   * @param query      normalised query
+   * @param candidates candidates to rank
+   * @param fullName   normalised full name of a candidate
+   * @param limit      most candidates returned
+   * @return candidates at least {@link #MIN_SIMILARITY} similar, most similar first, then by name
+   */
+
+  public static <T> List<T> rankBySimilarity(String query, List<T> candidates,
+      Function<T, String> fullName, int limit) {
+    return candidates.stream()
+        .map(candidate -> {
+          String name = fullName.apply(candidate);
+          return new Ranked<>(candidate, name, similarity(query, name));
+        })
+        .filter(ranked -> ranked.similarity() >= MIN_SIMILARITY)
+        .sorted(Comparator.comparingDouble((Ranked<T> ranked) -> -ranked.similarity())
+            .thenComparing(Ranked::fullName))
+        .limit(limit)
+        .map(Ranked::candidate)
+        .toList();
+  }
+
+  /**
+   * Escape the wildcards of a LIKE pattern.
+   *
+   * @param text text to match literally
+   * @return escaped text
+   */
+
+  public static String escapeLike(String text) {
+    return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+
+  /**
+   * Candidate with the similarity of its full name.
+   */
+  private record Ranked<T>(T candidate, String fullName, double similarity) {
+  }
+
+}
@@ -0,0 +1,84 @@
+package uk.ac.ucl.comp0010.vo;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import lombok.Data;
+
+/**
+ * Value Object for the overall grades of a student.
+ *
+ * @author Jack Pan
+ * @since 2024-12-13
+ */
+
+@Data
+public class GradeSummaryVo {
+
+  /**
+   * Number of Registered Modules.
+   */
+
+  private Integer totalModules;
+
+  /**
+   * Number of Marked Modules.
+   */
+
+  private Integer markedModules;
+
+  /**
+   * Credits of Marked Modules.
+   */
+
+  private Integer totalCredits;
+
+  /**
+   * Credits of Passed Modules.
+   */
+
+  private Integer creditsEarned;
+
+  /**
+   * Number of Passed Modules.
+   */
+
+  private Integer passedModules;
+
+  /**
+   * Average Score.
+   */
+
+  private BigDecimal averageScore;
+
+  /**
+   * Credit Weighted Average Score.
+   */
+
+  private BigDecimal weightedAverage;
+
+  /**
+   * Pass Rate.
+   */
+
+  private BigDecimal passRate;
+
+  /**
+   * Classification of the Weighted Average.
+   */
+
+  private String classification;
+
+  /**
+   * Number of Modules by Grade.
+   */
+
+  private Map<String, Integer> gradeDistribution;
+
+  /**
+   * Breakdown by Exam Year, oldest first.
+   */
+
+  private List<YearGradeSummaryVo> years;
+
+}
@@ -0,0 +1,97 @@
+package uk.ac.ucl.comp0010.vo;
+
+import java.time.LocalDateTime;
+import lombok.Data;
+import uk.ac.ucl.comp0010.enums.ImportJobStatus;
+import uk.ac.ucl.comp0010.enums.ImportType;
+import uk.ac.ucl.comp0010.model.ImportJob;
+
+/**
+ * Data Object for the progress of an import job.
+ *
+ * @author Jack Pan
+ * @since 2024-12-10
+ */
+
+@Data
+public class ImportJobVo {
+
+  /**
+   * id.
+   */
+  private String id;
+
+  /**
+   * Import Type.
+   */
+  private ImportType type;
+
+  /**
+   * Status.
+   */
+  private ImportJobStatus status;
+
+  /**
+   * Number of data rows in the file.
+   */
+  private Long totalRows;
+
+  /**
+   * Rows processed.
+   */
+  private Long processedRows;
+
+  /**
+   * Rows failed.
+   */
+  private Long failedRows;
+
+  /**
+   * Rows processed before a failure and rolled back with it.
+   */
+  private Long rolledBackRows;
+
+  /**
+   * Rows processed per second.
+   */
+  private Double throughput;
+
+  /**
+   * Estimated seconds left.
+   */
+  private Long etaSeconds;
+
+  /**
+   * Failure message.
+   */
+  private String message;
+
+  private LocalDateTime createdAt;
+
+  private LocalDateTime startedAt;
+
+  private LocalDateTime finishedAt;
+
+  /**
+   * Constructor for ImportJobVo.
+   *
+   * @param importJob import job
+   */
+
+  public ImportJobVo(ImportJob importJob) {
+    this.id = importJob.getId();
+    this.type = importJob.getType();
+    this.status = importJob.getStatus();
+    this.totalRows = importJob.getTotalRows();
+    this.processedRows = importJob.getProcessedRows().get();
+    this.failedRows = importJob.getFailedRows().get();
+    this.rolledBackRows = importJob.getRolledBackRows();
+    this.throughput = importJob.getThroughput();
+    this.etaSeconds = importJob.getEtaSeconds();
+    this.message = importJob.getMessage();
+    this.createdAt = importJob.getCreatedAt();
+    this.startedAt = importJob.getStartedAt();
+    this.finishedAt = importJob.getFinishedAt();
+  }
+
+}
@@ -35,6 +35,12 @@ public class ModuleListVo {
    */
   private Integer credits;
 
+  /**
+   * Teaching Staff ID.
+   */
+
+  private Integer staffId;
+
   /**
    * Teaching Staff First Name.
    */
@@ -55,4 +55,16 @@ public class RecordDetailVo {
 
   private BigDecimal passRate;
 
+  /**
+   * Lowest Score.
+   */
+
+  private Integer minScore;
+
+  /**
+   * Highest Score.
+   */
+
+  private Integer maxScore;
+
 }
@@ -19,6 +19,11 @@ public class RegistrationListVo {
    */
   private Long id;
 
+  /**
+   * Record ID.
+   */
+  private Long recordId;
+
   /**
    * Module Code.
    */
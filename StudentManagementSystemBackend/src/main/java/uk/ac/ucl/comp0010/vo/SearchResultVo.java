@@ -0,0 +1,47 @@
+package uk.ac.ucl.comp0010.vo;
+
+import lombok.Data;
+import uk.ac.ucl.comp0010.enums.SearchType;
+import uk.ac.ucl.comp0010.model.SearchDocument;
+
+/**
+ * Data Object for a type-ahead search result.
+ *
+ * @author Jack Pan
+ * @since 2024-12-11
+ */
+
+@Data
+public class SearchResultVo {
+
+  private SearchType type;
+
+  /**
+   * id of the student or staff, or code of the module.
+   */
+  private String id;
+
+  /**
+   * Full name, or module code and name.
+   */
+  private String title;
+
+  /**
+   * Program of study, department, or module leader.
+   */
+  private String subtitle;
+
+  /**
+   * Constructor for SearchResultVo.
+   *
+   * @param searchDocument indexed document
+   */
+
+  public SearchResultVo(SearchDocument searchDocument) {
+    this.type = searchDocument.getType();
+    this.id = searchDocument.getId();
+    this.title = searchDocument.getTitle();
+    this.subtitle = searchDocument.getSubtitle();
+  }
+
+}
@@ -0,0 +1,64 @@
+package uk.ac.ucl.comp0010.vo;
+
+import java.math.BigDecimal;
+import lombok.Data;
+
+/**
+ * Value Object for the grades of a student in one exam year.
+ *
+ * @author Jack Pan
+ * @since 2024-12-13
+ */
+
+@Data
+public class YearGradeSummaryVo {
+
+  /**
+   * Exam Year.
+   */
+
+  private Integer year;
+
+  /**
+   * Number of Marked Modules.
+   */
+
+  private Integer markedModules;
+
+  /**
+   * Credits of Marked Modules.
+   */
+
+  private Integer totalCredits;
+
+  /**
+   * Credits of Passed Modules.
+   */
+
+  private Integer creditsEarned;
+
+  /**
+   * Average Score.
+   */
+
+  private BigDecimal averageScore;
+
+  /**
+   * Credit Weighted Average Score.
+   */
+
+  private BigDecimal weightedAverage;
+
+  /**
+   * Pass Rate.
+   */
+
+  private BigDecimal passRate;
+
+  /**
+   * Classification of the Weighted Average.
+   */
+
+  private String classification;
+
+}
@@ -1,3 +1,6 @@
+DROP TABLE IF EXISTS record_stats;
+DROP TABLE IF EXISTS student_name_trigram;
+DROP TABLE IF EXISTS staff_name_trigram;
 DROP TABLE IF EXISTS registration;
 DROP TABLE IF EXISTS record;
 DROP TABLE IF EXISTS module;
@@ -24,8 +27,17 @@ CREATE TABLE student
     birth_date       date,
     program_of_study VARCHAR(30),
     graduation_year  INT,
-    department       VARCHAR(256)
+    department       VARCHAR(256),
+    full_name        VARCHAR(61) GENERATED ALWAYS AS (LOWER(CONCAT(first_name, ' ', last_name)))
 );
+CREATE TABLE student_name_trigram
+(
+    student_id INT        NOT NULL,
+    trigram    VARCHAR(3) NOT NULL,
+    PRIMARY KEY (trigram, student_id),
+    FOREIGN KEY (student_id) REFERENCES student (id) ON DELETE CASCADE
+);
+CREATE INDEX idx_student_name_trigram_student_id ON student_name_trigram (student_id);
 
 CREATE TABLE staff
 (
@@ -36,8 +48,17 @@ CREATE TABLE staff
     password   VARCHAR(256)       NOT NULL,
     email      VARCHAR(50),
     title      VARCHAR(30),
-    department VARCHAR(256)
+    department VARCHAR(256),
+    full_name  VARCHAR(61) GENERATED ALWAYS AS (LOWER(CONCAT(first_name, ' ', last_name)))
 );
+CREATE TABLE staff_name_trigram
+(
+    staff_id INT        NOT NULL,
+    trigram  VARCHAR(3) NOT NULL,
+    PRIMARY KEY (trigram, staff_id),
+    FOREIGN KEY (staff_id) REFERENCES staff (id) ON DELETE CASCADE
+);
+CREATE INDEX idx_staff_name_trigram_staff_id ON staff_name_trigram (staff_id);
 
 CREATE TABLE module
 (
@@ -46,6 +67,7 @@ CREATE TABLE module
     mnc      BOOLEAN DEFAULT FALSE,
     credits INT DEFAULT 0,
     staff_id INT NOT NULL,
+    version  BIGINT NOT NULL DEFAULT 0,
     FOREIGN KEY (staff_id)
         REFERENCES staff (id)
         ON DELETE CASCADE
@@ -56,10 +78,15 @@ CREATE TABLE record
     id BIGSERIAL PRIMARY KEY,
     module_code VARCHAR(20) NOT NULL,
     date        date        NOT NULL,
+    version     BIGINT      NOT NULL DEFAULT 0,
+    -- Increased by every change to the registrations of the record, apart from the edit version
+    stats_version BIGINT    NOT NULL DEFAULT 0,
     FOREIGN KEY (module_code)
         REFERENCES module (code) ON DELETE CASCADE
 );
 
+CREATE INDEX idx_record_date ON record (date);
+
 CREATE TABLE registration
 (
     id                BIGSERIAL PRIMARY KEY,
@@ -74,3 +101,18 @@ CREATE TABLE registration
     CONSTRAINT unique_student_record UNIQUE (student_id, record_id)
 );
 
+CREATE INDEX idx_registration_record_id ON registration (record_id);
+
+-- Score aggregates per record, updated whenever its registrations change
+CREATE TABLE record_stats
+(
+    record_id       BIGINT PRIMARY KEY,
+    score_sum       BIGINT NOT NULL,
+    scored_count    INT    NOT NULL,
+    candidate_count INT    NOT NULL,
+    pass_count      INT    NOT NULL,
+    min_score       INT,
+    max_score       INT,
+    FOREIGN KEY (record_id)
+        REFERENCES record (id) ON DELETE CASCADE
+);
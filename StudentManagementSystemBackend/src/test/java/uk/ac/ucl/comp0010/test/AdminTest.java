@@ -1,30 +1,73 @@
 package uk.ac.ucl.comp0010.test;
 
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static uk.ac.ucl.comp0010.test.TestUtils.getCsvMockMultipartFile;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import uk.ac.ucl.comp0010.annotation.LoginRequired;
+import uk.ac.ucl.comp0010.context.LoginContextHolder;
 import uk.ac.ucl.comp0010.dto.CreateModuleDto;
+import uk.ac.ucl.comp0010.dto.CreateRegistrationDto;
 import uk.ac.ucl.comp0010.dto.CreateStaffDto;
 import uk.ac.ucl.comp0010.dto.CreateStudentDto;
 import uk.ac.ucl.comp0010.dto.EditModuleDto;
+import uk.ac.ucl.comp0010.dto.EditRecordDto;
+import uk.ac.ucl.comp0010.dto.EditRegistrationDto;
 import uk.ac.ucl.comp0010.dto.EditStaffDto;
 import uk.ac.ucl.comp0010.dto.EditStudentDto;
 import uk.ac.ucl.comp0010.dto.LoginDto;
 import uk.ac.ucl.comp0010.dto.ResetPasswordDto;
+import uk.ac.ucl.comp0010.entity.Student;
+import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.mapper.RecordMapper;
+import uk.ac.ucl.comp0010.mapper.StudentMapper;
 import uk.ac.ucl.comp0010.response.Result;
+import uk.ac.ucl.comp0010.service.ModuleService;
+import uk.ac.ucl.comp0010.service.RecordService;
+import uk.ac.ucl.comp0010.service.RegistrationService;
 import uk.ac.ucl.comp0010.vo.LoginVo;
 import uk.ac.ucl.comp0010.vo.StudentVo;
 
@@ -35,12 +78,47 @@ import uk.ac.ucl.comp0010.vo.StudentVo;
 @AutoConfigureMockMvc
 public class AdminTest {
 
+  private static final long ETAG_SEED_ID = 900101;
+
+  private static final long CACHE_SEED_ID = 900201;
+
+  private static final long TRANSCRIPT_SEED_ID = 900301;
+
+  private static final long STATS_SEED_ID = 900601;
+
   @Autowired
   protected MockMvc mockMvc;
 
   @Autowired
   protected ObjectMapper objectMapper;
 
+  @Autowired
+  private ApplicationContext applicationContext;
+
+  @Autowired
+  private RequestMappingHandlerMapping requestMappingHandlerMapping;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private ModuleService moduleService;
+
+  @Autowired
+  private RecordMapper recordMapper;
+
+  @Autowired
+  private RecordService recordService;
+
+  @Autowired
+  private RegistrationService registrationService;
+
+  @Autowired
+  private StudentMapper studentMapper;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
   private String accessToken;
 
   /**
@@ -630,6 +708,23 @@ public class AdminTest {
     testRetrieveStudentDetailsByIdSuccess(accessToken);
     // Test Retrieve Student Details Fail
     testRetrieveStudentDetailsByIdNotFound(accessToken);
+    // Test List Totals
+    testListCountModes(accessToken);
+    // Test Export Students
+    testExportStudents(accessToken);
+
+    // Test Record Date Range
+    testRecordDateRange(accessToken);
+    // Test Async Login Context
+    testAsyncLoginContext(accessToken);
+    // Test Module and Record ETags
+    testEtagRoundTrip(accessToken);
+    // Test Module and Record Caches
+    testEntityCaches();
+    // Test Program Transcripts
+    testProgramTranscripts(accessToken);
+    // Test Record Stats
+    testRecordStats();
 
     // Test Add Staff
     testAddStaff(accessToken);
@@ -681,4 +776,381 @@ public class AdminTest {
     testResetPasswordFail(accessToken);
   }
 
+  private void testListCountModes(String accessToken) throws Exception {
+    // Every count mode gives the same total while nothing changes, and none skips it
+    for (String url : List.of("/api/record", "/api/registration")) {
+      long exact = getListTotal(accessToken, url, "exact", null);
+      assertEquals(0, getListTotal(accessToken, url, "none", null));
+      assertEquals(exact, getListTotal(accessToken, url, "cached", null));
+      assertEquals(exact, getListTotal(accessToken, url, "estimate", null));
+    }
+    // The H2 statistics statement is picked, not the fallback without statistics
+    assertNotNull(recordMapper.estimateCount());
+    // Filtered estimates fall back to the cached count
+    long exact = getListTotal(accessToken, "/api/registration", "exact", "1");
+    assertEquals(exact, getListTotal(accessToken, "/api/registration", "estimate", "1"));
+  }
+
+  private void testExportStudents(String accessToken) throws Exception {
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/student/export")
+            .header("Authorization", accessToken))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+        .andExpect(header().string("Content-Disposition",
+            "attachment; filename=\"students.csv\""))
+        .andReturn();
+    byte[] csv = result.getResponse().getContentAsByteArray();
+    List<String> lines = new String(csv, StandardCharsets.UTF_8).lines().toList();
+    // A header without the password, then one row per student in id order
+    assertEquals("id,username,firstName,lastName,email,birthDate,programOfStudy,graduationYear,"
+        + "department", lines.get(0));
+    assertEquals(studentMapper.selectCount(null) + 1, lines.size());
+    List<Student> students = studentMapper.selectList(
+        new QueryWrapper<Student>().orderByAsc("id").last("LIMIT 1"));
+    assertTrue(lines.get(1).startsWith(
+        students.get(0).getId() + "," + students.get(0).getUsername() + ","));
+
+    // The compressed file holds the same csv
+    result = mockMvc.perform(MockMvcRequestBuilders.get("/api/student/export")
+            .header("Authorization", accessToken)
+            .param("gzip", "true"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "application/gzip"))
+        .andExpect(header().string("Content-Disposition",
+            "attachment; filename=\"students.csv.gz\""))
+        .andReturn();
+    try (GZIPInputStream inputStream = new GZIPInputStream(
+        new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+      assertArrayEquals(csv, inputStream.readAllBytes());
+    }
+  }
+
+  private void testEtagRoundTrip(String accessToken) throws Exception {
+    // Seed rows with ids above the sequences, so the ids later tests expect stay free
+    jdbcTemplate.update("INSERT INTO staff (id, username, password) VALUES (?, ?, ?)",
+        ETAG_SEED_ID, "etagStaff", "etagStaff");
+    jdbcTemplate.update("INSERT INTO module (code, name, staff_id) VALUES (?, ?, ?)",
+        "ETAG0001", "ETag Module", ETAG_SEED_ID);
+    jdbcTemplate.update("INSERT INTO record (id, module_code, date) VALUES (?, ?, ?)",
+        ETAG_SEED_ID, "ETAG0001", LocalDate.of(2024, 1, 1));
+    try {
+      // Test Record ETag
+      String recordUrl = "/api/record/" + ETAG_SEED_ID;
+      String recordEtag = assertEtagRoundTrip(recordUrl, null);
+      EditRecordDto editRecordDto = new EditRecordDto("ETAG0001", LocalDate.of(2024, 1, 2));
+      mockMvc.perform(MockMvcRequestBuilders.put(recordUrl)
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(objectMapper.writeValueAsString(editRecordDto))
+              .header("Authorization", accessToken))
+          .andExpect(status().isOk());
+      assertEtagRoundTrip(recordUrl, recordEtag);
+
+      // Test Module ETag
+      String moduleUrl = "/api/module/ETAG0001";
+      String moduleEtag = assertEtagRoundTrip(moduleUrl, null);
+      EditModuleDto editModuleDto = new EditModuleDto("ETag Module Renamed", null, 20, null);
+      mockMvc.perform(MockMvcRequestBuilders.put("/api/module/edit/ETAG0001")
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(objectMapper.writeValueAsString(editModuleDto))
+              .header("Authorization", accessToken))
+          .andExpect(status().isOk());
+      assertEtagRoundTrip(moduleUrl, moduleEtag);
+    } finally {
+      // Deleting the staff cascades to the module and its record
+      jdbcTemplate.update("DELETE FROM staff WHERE id = ?", ETAG_SEED_ID);
+    }
+  }
+
+  /**
+   * Get a resource, then get it again with the entity tag it answered with.
+   *
+   * @param url     url of the resource
+   * @param oldEtag entity tag the resource had before it was edited, null if it wasn't
+   * @return current entity tag of the resource
+   * @throws Exception if any error occurs during get request
+   */
+  private String assertEtagRoundTrip(String url, String oldEtag) throws Exception {
+    MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(url)
+        .header("Authorization", accessToken);
+    if (oldEtag != null) {
+      // An edited resource is sent in full again, with a new tag
+      request.header(HttpHeaders.IF_NONE_MATCH, oldEtag);
+    }
+    String etag = mockMvc.perform(request)
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data").exists())
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertNotNull(etag);
+    assertNotEquals(oldEtag, etag);
+    mockMvc.perform(MockMvcRequestBuilders.get(url)
+            .header("Authorization", accessToken)
+            .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+    return etag;
+  }
+
+
+  private void testEntityCaches() {
+    // Seed rows with ids above the sequences, so the ids later tests expect stay free
+    jdbcTemplate.update("INSERT INTO staff (id, username, password) VALUES (?, ?, ?)",
+        CACHE_SEED_ID, "cacheStaff", "cacheStaff");
+    jdbcTemplate.update("INSERT INTO module (code, name, staff_id) VALUES (?, ?, ?)",
+        "CACHE0001", "Cache Module", CACHE_SEED_ID);
+    jdbcTemplate.update("INSERT INTO record (id, module_code, date) VALUES (?, ?, ?)",
+        CACHE_SEED_ID, "CACHE0001", LocalDate.of(2024, 1, 1));
+    try {
+      // Test Cache Hit, a write behind the services' back isn't seen
+      assertEquals("Cache Module", moduleService.getById("CACHE0001").getName());
+      assertEquals(LocalDate.of(2024, 1, 1), recordService.getById(CACHE_SEED_ID).getDate());
+      jdbcTemplate.update("UPDATE module SET name = ? WHERE code = ?", "Stale", "CACHE0001");
+      jdbcTemplate.update("UPDATE record SET date = ? WHERE id = ?", LocalDate.of(2024, 1, 9),
+          CACHE_SEED_ID);
+      assertEquals("Cache Module", moduleService.getById("CACHE0001").getName());
+      assertEquals(LocalDate.of(2024, 1, 1), recordService.getById(CACHE_SEED_ID).getDate());
+
+      // Test Returned Copy, changing it leaves the cached entity alone
+      moduleService.getById("CACHE0001").setName("Changed Copy");
+      recordService.getById(CACHE_SEED_ID).setDate(LocalDate.of(2024, 1, 8));
+      assertEquals("Cache Module", moduleService.getById("CACHE0001").getName());
+      assertEquals(LocalDate.of(2024, 1, 1), recordService.getById(CACHE_SEED_ID).getDate());
+
+      // Test Eviction on Edit
+      moduleService.edit(new EditModuleDto("Edited Module", null, 20, null), "CACHE0001");
+      recordService.edit(new EditRecordDto(null, LocalDate.of(2024, 1, 2)), CACHE_SEED_ID);
+      assertEquals("Edited Module", moduleService.getById("CACHE0001").getName());
+      assertEquals(LocalDate.of(2024, 1, 2), recordService.getById(CACHE_SEED_ID).getDate());
+
+      // Test Eviction on Rollback, the row read inside the transaction isn't kept
+      transactionTemplate.executeWithoutResult(status -> {
+        moduleService.edit(new EditModuleDto("Rolled Back", null, 20, null), "CACHE0001");
+        recordService.edit(new EditRecordDto(null, LocalDate.of(2024, 1, 3)), CACHE_SEED_ID);
+        assertEquals("Rolled Back", moduleService.getById("CACHE0001").getName());
+        assertEquals(LocalDate.of(2024, 1, 3), recordService.getById(CACHE_SEED_ID).getDate());
+        status.setRollbackOnly();
+      });
+      assertEquals("Edited Module", moduleService.getById("CACHE0001").getName());
+      assertEquals(LocalDate.of(2024, 1, 2), recordService.getById(CACHE_SEED_ID).getDate());
+
+      // Test Eviction on Delete
+      recordService.delete(CACHE_SEED_ID);
+      assertNull(recordService.getById(CACHE_SEED_ID));
+      moduleService.delete("CACHE0001");
+      assertNull(moduleService.getById("CACHE0001"));
+    } finally {
+      // Deleting the staff cascades to anything left of the module and its record
+      jdbcTemplate.update("DELETE FROM staff WHERE id = ?", CACHE_SEED_ID);
+    }
+  }
+
+
+  private void testProgramTranscripts(String accessToken) throws Exception {
+    // Seed students with ids above the sequence, so the ids later tests expect stay free
+    int students = 201;
+    Set<String> expected = new HashSet<>();
+    for (long id = TRANSCRIPT_SEED_ID; id < TRANSCRIPT_SEED_ID + students; id++) {
+      jdbcTemplate.update("INSERT INTO student (id, first_name, last_name, username, password,"
+              + " program_of_study) VALUES (?, ?, ?, ?, ?, ?)",
+          id, "Zip", "Student " + id, "zip" + id, "zip", "Zip Program");
+      expected.add("transcript_" + id + "_Zip_Student_" + id + ".pdf");
+    }
+    jdbcTemplate.update("INSERT INTO student (id, first_name, last_name, username, password,"
+            + " program_of_study) VALUES (?, ?, ?, ?, ?, ?)",
+        TRANSCRIPT_SEED_ID + students, "Other", "Student", "zipOther", "zip", "Other Program");
+    try {
+      MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/student/transcripts")
+              .header("Authorization", accessToken)
+              .param("programOfStudy", "Zip Program"))
+          .andExpect(status().isOk())
+          .andExpect(content().contentType("application/zip"))
+          .andReturn();
+      // One entry per student of the program, across three batches of students
+      Set<String> entries = new HashSet<>();
+      try (ZipInputStream inputStream = new ZipInputStream(
+          new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+        for (ZipEntry entry; (entry = inputStream.getNextEntry()) != null; ) {
+          assertTrue(entries.add(entry.getName()), "duplicate " + entry.getName());
+          assertArrayEquals("%PDF".getBytes(StandardCharsets.US_ASCII),
+              inputStream.readNBytes(4));
+        }
+      }
+      assertEquals(expected, entries);
+    } finally {
+      jdbcTemplate.update("DELETE FROM student WHERE id BETWEEN ? AND ?", TRANSCRIPT_SEED_ID,
+          TRANSCRIPT_SEED_ID + students);
+    }
+  }
+
+
+  private void testRecordStats() {
+    // Seed rows with ids above the sequences, so the ids later tests expect stay free
+    long recordId = STATS_SEED_ID;
+    long otherRecordId = STATS_SEED_ID + 1;
+    jdbcTemplate.update("INSERT INTO staff (id, username, password) VALUES (?, ?, ?)",
+        STATS_SEED_ID, "statsStaff", "statsStaff");
+    jdbcTemplate.update("INSERT INTO module (code, name, staff_id) VALUES (?, ?, ?)",
+        "STATS0001", "Stats Module", STATS_SEED_ID);
+    for (long id : List.of(recordId, otherRecordId)) {
+      jdbcTemplate.update("INSERT INTO record (id, module_code, date) VALUES (?, ?, ?)",
+          id, "STATS0001", LocalDate.of(2024, 1, 1));
+    }
+    int[] studentIds = new int[4];
+    for (int i = 0; i < studentIds.length; i++) {
+      studentIds[i] = (int) STATS_SEED_ID + i;
+      jdbcTemplate.update("INSERT INTO student (id, username, password) VALUES (?, ?, ?)",
+          studentIds[i], "stats" + i, "stats");
+    }
+    try {
+      // Test Add
+      Integer[] scores = {70, 30, 90, null};
+      for (int i = 0; i < studentIds.length; i++) {
+        registrationService.addRegistration(
+            new CreateRegistrationDto(studentIds[i], recordId, scores[i]));
+        assertRecordStats(recordId);
+      }
+      // Test Edit, neither score is the minimum or the maximum
+      registrationService.editRegistration(new EditRegistrationDto(null, null, 55),
+          registrationId(studentIds[0], recordId));
+      assertRecordStats(recordId);
+      // Test Edit, the maximum becomes the new minimum
+      registrationService.editRegistration(new EditRegistrationDto(null, null, 20),
+          registrationId(studentIds[2], recordId));
+      assertRecordStats(recordId);
+      // Test Delete, removing the minimum and then the maximum
+      registrationService.delete(registrationId(studentIds[2], recordId));
+      assertRecordStats(recordId);
+      registrationService.delete(registrationId(studentIds[0], recordId));
+      assertRecordStats(recordId);
+      // Test Edit, moving a registration to a record without stats
+      registrationService.editRegistration(new EditRegistrationDto(null, otherRecordId, null),
+          registrationId(studentIds[1], recordId));
+      assertRecordStats(recordId);
+      assertRecordStats(otherRecordId);
+      // Test Delete, removing the last registration without a score
+      registrationService.delete(registrationId(studentIds[3], recordId));
+      assertRecordStats(recordId);
+    } finally {
+      // Deleting the staff and students cascades to the module, records and registrations
+      jdbcTemplate.update("DELETE FROM student WHERE id BETWEEN ? AND ?", STATS_SEED_ID,
+          STATS_SEED_ID + studentIds.length - 1);
+      jdbcTemplate.update("DELETE FROM staff WHERE id = ?", STATS_SEED_ID);
+    }
+  }
+
+  private Long registrationId(int studentId, long recordId) {
+    return jdbcTemplate.queryForObject(
+        "SELECT id FROM registration WHERE student_id = ? AND record_id = ?", Long.class,
+        studentId, recordId);
+  }
+
+  /**
+   * Compare the kept aggregates of a record with ones computed from its registrations.
+   *
+   * @param recordId id of the record
+   */
+  private void assertRecordStats(long recordId) {
+    Map<String, Object> expected = jdbcTemplate.queryForMap("SELECT"
+        + " COALESCE(SUM(score), 0) AS score_sum, COUNT(score) AS scored_count,"
+        + " COUNT(id) AS candidate_count,"
+        + " COALESCE(SUM(CASE WHEN score > 40 THEN 1 ELSE 0 END), 0) AS pass_count,"
+        + " MIN(score) AS min_score, MAX(score) AS max_score"
+        + " FROM registration WHERE record_id = ?", recordId);
+    Map<String, Object> actual = jdbcTemplate.queryForMap("SELECT score_sum, scored_count,"
+        + " candidate_count, pass_count, min_score, max_score"
+        + " FROM record_stats WHERE record_id = ?", recordId);
+    for (Map.Entry<String, Object> entry : expected.entrySet()) {
+      Object value = actual.get(entry.getKey());
+      assertEquals(entry.getValue() == null ? null : ((Number) entry.getValue()).longValue(),
+          value == null ? null : ((Number) value).longValue(), entry.getKey());
+    }
+  }
+
+
+  private void testRecordDateRange(String accessToken) throws Exception {
+    // Record the statements run by the list, H2 keeps them with their placeholders
+    jdbcTemplate.execute("SET QUERY_STATISTICS TRUE");
+    try {
+      mockMvc.perform(MockMvcRequestBuilders.get("/api/record")
+              .header("Authorization", accessToken)
+              .param("size", "5")
+              .param("year", "2024")
+              .param("month", "12"))
+          .andExpect(status().isOk());
+      List<String> statements = jdbcTemplate.queryForList(
+          "SELECT SQL_STATEMENT FROM INFORMATION_SCHEMA.QUERY_STATISTICS", String.class);
+      String count = statements.stream()
+          .filter(sql -> sql.contains("FROM record") && sql.contains("date >= ?"))
+          .findFirst().orElseThrow();
+      assertTrue(statements.stream().noneMatch(sql -> sql.contains("YEAR(date)")));
+      // The year and month become a seek on the date index, not a scan of it
+      String plan = jdbcTemplate.queryForObject("EXPLAIN " + count, String.class,
+          LocalDate.of(2024, 12, 1), LocalDate.of(2025, 1, 1));
+      assertTrue(plan.contains("IDX_RECORD_DATE: DATE >= ?1"), plan);
+    } finally {
+      jdbcTemplate.execute("SET QUERY_STATISTICS FALSE");
+    }
+  }
+
+  private void testAsyncLoginContext(String accessToken) throws Exception {
+    // Serve a handler returning a Callable, proxied by the login aspect like the controllers
+    Object handler = applicationContext.getAutowireCapableBeanFactory()
+        .initializeBean(new AsyncLoginController(), "asyncLoginController");
+    RequestMappingInfo mapping = RequestMappingInfo.paths("/api/test/async-login")
+        .methods(RequestMethod.GET).build();
+    requestMappingHandlerMapping.registerMapping(mapping, handler,
+        AsyncLoginController.class.getMethod("login"));
+    try {
+      MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/test/async-login")
+              .header("Authorization", accessToken))
+          .andExpect(request().asyncStarted())
+          .andReturn();
+      // The Callable ran on the async request executor and still saw the admin
+      mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.data.accountType").value("admin"))
+          .andExpect(jsonPath("$.data.thread", startsWith("mvc-async-")));
+    } finally {
+      requestMappingHandlerMapping.unregisterMapping(mapping);
+    }
+  }
+
+  /**
+   * Async handler answering with the account it runs for and the thread it runs on.
+   */
+
+  public static class AsyncLoginController {
+
+    /**
+     * Read the logged in account from the Callable.
+     *
+     * @return account type and thread name
+     */
+
+    @LoginRequired(accountTypes = {AccountType.admin})
+    @ResponseBody
+    public Callable<Result<Map<String, String>>> login() {
+      return () -> Result.success(Map.of(
+          "accountType", LoginContextHolder.get().getAccountType().name(),
+          "thread", Thread.currentThread().getName()));
+    }
+
+  }
+
+
+  private long getListTotal(String accessToken, String url, String count, String recordId)
+      throws Exception {
+    MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(url)
+        .header("Authorization", accessToken)
+        .param("size", "5")
+        .param("count", count);
+    if (recordId != null) {
+      request.param("recordId", recordId);
+    }
+    MvcResult result = mockMvc.perform(request)
+        .andExpect(status().isOk())
+        .andReturn();
+    return objectMapper.readTree(result.getResponse().getContentAsString())
+        .path("data").path("total").asLong();
+  }
+
 }
@@ -0,0 +1,784 @@
+package uk.ac.ucl.comp0010.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVReader;
+import java.io.BufferedWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.ac.ucl.comp0010.StudentManagementSystemApplication;
+import uk.ac.ucl.comp0010.config.PasswordProperties;
+import uk.ac.ucl.comp0010.dto.CreateRegistrationDto;
+import uk.ac.ucl.comp0010.entity.Module;
+import uk.ac.ucl.comp0010.entity.Staff;
+import uk.ac.ucl.comp0010.entity.Student;
+import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.mapper.ModuleMapper;
+import uk.ac.ucl.comp0010.mapper.StaffMapper;
+import uk.ac.ucl.comp0010.mapper.StudentMapper;
+import uk.ac.ucl.comp0010.model.SearchDocument;
+import uk.ac.ucl.comp0010.search.SearchIndex;
+import uk.ac.ucl.comp0010.service.impl.PasswordServiceImpl;
+import uk.ac.ucl.comp0010.utils.BcryptPasswordHasher;
+import uk.ac.ucl.comp0010.utils.CsvUtils;
+import uk.ac.ucl.comp0010.utils.LongLongHashMap;
+import uk.ac.ucl.comp0010.utils.PasswordHasher;
+import uk.ac.ucl.comp0010.utils.TrigramUtils;
+
+/**
+ * Timed comparisons of optimised paths against the code they replaced.
+ *
+ * <p>
+ * Each test runs both paths on the same input, checks they agree and prints the best of a few
+ * timed runs after a warm-up. Timings depend on the machine running the build, so they are
+ * reported instead of asserted.
+ * </p>
+ *
+ * <p>
+ * The benchmarks take minutes, so the build skips them. Run them with
+ * {@code mvn test -Pbenchmark}.
+ * </p>
+ *
+ * @author Jack Pan
+ * @since 2024-12-14
+ */
+
+@Tag("benchmark")
+public class BenchmarkTest {
+
+  private static final int RUNS = 3;
+
+  /**
+   * Placeholder of a query wrapper parameter in its sql segment.
+   */
+  private static final Pattern PARAMETER = Pattern.compile(
+      "#\\{ew\\.paramNameValuePairs\\.(\\w+)}");
+
+  /**
+   * Reading a generated csv file of a million registration rows with the precompiled binder of
+   * CsvUtils and with the reflective {@code Field.set} path it replaced.
+   */
+
+  @Test
+  public void benchmarkCsvRowBinder() throws Exception {
+    int rows = 1_000_000;
+    Path file = Files.createTempFile("registrations", ".csv");
+    try {
+      try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+        writer.write("studentId,recordId,score\n");
+        for (int i = 0; i < rows; i++) {
+          writer.write(i % 5000 + "," + i * 7L + "," + i % 101 + "\n");
+        }
+      }
+      Map<String, Field> fields = new HashMap<>();
+      for (String header : new String[] {"studentId", "recordId", "score"}) {
+        Field field = CreateRegistrationDto.class.getDeclaredField(header);
+        field.setAccessible(true);
+        fields.put(header, field);
+      }
+      long[] checksums = new long[2];
+      long reflective = bestOf(() -> {
+        long checksum = 0;
+        try (CSVReader csvReader = new CSVReader(Files.newBufferedReader(file))) {
+          String[] headers = csvReader.readNext();
+          String[] dataRow;
+          while ((dataRow = csvReader.readNext()) != null) {
+            checksum += reflectiveBind(headers, fields, dataRow).getScore();
+          }
+        }
+        checksums[0] = checksum;
+      });
+      long precompiled = bestOf(() -> {
+        long[] checksum = new long[1];
+        CsvUtils.readCsvInChunks(Files.newInputStream(file), CreateRegistrationDto.class,
+            CsvUtils.DEFAULT_CHUNK_SIZE,
+            chunk -> chunk.forEach(registration -> checksum[0] += registration.getScore()));
+        checksums[1] = checksum[0];
+      });
+      assertEquals(checksums[0], checksums[1]);
+      report("Read " + rows + " csv rows from a file", "reflective", reflective, "precompiled",
+          precompiled);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  /**
+   * The reflective binding of CsvUtils before precompiled binders.
+   */
+
+  private static CreateRegistrationDto reflectiveBind(String[] headers, Map<String, Field> fields,
+      String[] dataRow) {
+    try {
+      CreateRegistrationDto obj = CreateRegistrationDto.class.getDeclaredConstructor()
+          .newInstance();
+      for (int i = 0; i < headers.length; i++) {
+        Field field = fields.get(headers[i]);
+        Class<?> fieldType = field.getType();
+        String value = dataRow[i];
+        if (fieldType == int.class || fieldType == Integer.class) {
+          field.set(obj, Integer.parseInt(value));
+        } else if (fieldType == Long.class) {
+          field.set(obj, Long.parseLong(value));
+        } else if (fieldType == String.class) {
+          field.set(obj, value);
+        } else if (fieldType == LocalDate.class) {
+          field.set(obj, LocalDate.parse(value));
+        }
+      }
+      return obj;
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Hashing the passwords of an import chunk on a pool sized like the password hash executor,
+   * against hashing them one by one on the caller.
+   */
+
+  @Test
+  public void benchmarkPasswordHashing() throws Exception {
+    int cores = Runtime.getRuntime().availableProcessors();
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(cores);
+    executor.setMaxPoolSize(cores);
+    executor.setQueueCapacity(cores * 64);
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.initialize();
+    PasswordProperties passwordProperties = new PasswordProperties();
+    passwordProperties.getCost().put(AccountType.student, 8);
+    PasswordServiceImpl passwordService = new PasswordServiceImpl();
+    ReflectionTestUtils.setField(passwordService, "passwordHasher", new BcryptPasswordHasher());
+    ReflectionTestUtils.setField(passwordService, "passwordProperties", passwordProperties);
+    ReflectionTestUtils.setField(passwordService, "passwordHashExecutor", executor);
+    List<String> plainPasswords = new ArrayList<>();
+    for (int i = 0; i < 32; i++) {
+      plainPasswords.add("password" + i);
+    }
+    try {
+      long sequential = bestOf(() -> plainPasswords
+          .forEach(password -> passwordService.encode(AccountType.student, password)));
+      List<List<String>> hashed = new ArrayList<>();
+      long parallel = bestOf(() -> hashed.add(
+          passwordService.encodeAll(AccountType.student, plainPasswords)));
+      List<String> hashes = hashed.get(hashed.size() - 1);
+      for (int i = 0; i < plainPasswords.size(); i++) {
+        assertTrue(passwordService.matches(plainPasswords.get(i), hashes.get(i)));
+      }
+      report("Hash " + plainPasswords.size() + " passwords at cost 8 on " + cores + " cores",
+          "sequential", sequential, "parallel", parallel);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Loading and probing the existing registrations of a thousand import chunks with the reused
+   * primitive map, against the string keyed HashMap it replaced. Also reports the bytes allocated
+   * per chunk.
+   */
+
+  @Test
+  public void benchmarkRegistrationKeys() throws Exception {
+    int chunks = 1000;
+    int chunkSize = 1000;
+    long[] checksums = new long[2];
+    long[] allocated = new long[2];
+    long stringKeys = bestOf(() -> {
+      long before = allocatedBytes();
+      long checksum = 0;
+      for (int chunk = 0; chunk < chunks; chunk++) {
+        Map<String, Long> existingRegistration = new HashMap<>();
+        for (int row = 0; row < chunkSize; row++) {
+          Long recordId = (long) chunk;
+          Integer studentId = row;
+          existingRegistration.put(recordId + "-" + studentId, (long) row);
+        }
+        for (int row = 0; row < chunkSize; row++) {
+          Long recordId = (long) chunk;
+          Integer studentId = row * 2;
+          Long registrationId = existingRegistration.get(recordId.toString() + "-"
+              + studentId.toString());
+          checksum += registrationId == null ? 0 : registrationId;
+        }
+      }
+      allocated[0] = allocatedBytes() - before;
+      checksums[0] = checksum;
+    });
+    LongLongHashMap existingRegistration = new LongLongHashMap(chunkSize);
+    long packedKeys = bestOf(() -> {
+      long before = allocatedBytes();
+      long checksum = 0;
+      for (int chunk = 0; chunk < chunks; chunk++) {
+        existingRegistration.clear();
+        for (int row = 0; row < chunkSize; row++) {
+          existingRegistration.put(LongLongHashMap.pack(chunk, row), row);
+        }
+        for (int row = 0; row < chunkSize; row++) {
+          checksum += existingRegistration.get(LongLongHashMap.pack(chunk, row * 2), 0L);
+        }
+      }
+      allocated[1] = allocatedBytes() - before;
+      checksums[1] = checksum;
+    });
+    assertEquals(checksums[0], checksums[1]);
+    report("Registration keys of " + chunks + " chunks", "string keys", stringKeys,
+        "packed keys", packedKeys);
+    System.out.printf("[benchmark] Registration keys allocated per chunk: string keys %d bytes,"
+        + " packed keys %d bytes%n", allocated[0] / chunks, allocated[1] / chunks);
+    assertTrue(allocated[1] < allocated[0]);
+  }
+
+  /**
+   * Bytes allocated by the current thread so far.
+   */
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Counting the records of each month of a year among 500k with the half-open date range the
+   * record list uses, against the YEAR and MONTH predicates it replaced. Runs on its own H2
+   * database so the shared test data is left alone.
+   */
+
+  @Test
+  public void benchmarkRecordDateFilter() throws Exception {
+    try (Connection connection = DriverManager.getConnection(
+        "jdbc:h2:mem:benchmark_record_date;MODE=PostgreSQL;QUERY_CACHE_SIZE=0")) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("CREATE TABLE record (id BIGSERIAL PRIMARY KEY, date DATE NOT NULL)");
+        statement.execute("CREATE INDEX idx_record_date ON record (date)");
+      }
+      connection.setAutoCommit(false);
+      try (PreparedStatement insert = connection.prepareStatement(
+          "INSERT INTO record (date) VALUES (?)")) {
+        LocalDate start = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < 500_000; i++) {
+          insert.setDate(1, Date.valueOf(start.plusDays(i % 9000)));
+          insert.addBatch();
+          if (i % 10_000 == 9_999) {
+            insert.executeBatch();
+          }
+        }
+      }
+      connection.commit();
+      String functions = "SELECT COUNT(*) FROM record WHERE YEAR(date) = ? AND MONTH(date) = ?";
+      String range = "SELECT COUNT(*) FROM record WHERE date >= ? AND date < ?";
+      long[] counts = new long[2];
+      long functionTime = bestOf(() -> {
+        counts[0] = 0;
+        for (int month = 1; month <= 12; month++) {
+          counts[0] += count(connection, functions, 2010, month);
+        }
+      });
+      long rangeTime = bestOf(() -> {
+        counts[1] = 0;
+        for (int month = 1; month <= 12; month++) {
+          LocalDate start = LocalDate.of(2010, month, 1);
+          counts[1] += count(connection, range, Date.valueOf(start),
+              Date.valueOf(start.plusMonths(1)));
+        }
+      });
+      assertEquals(counts[0], counts[1]);
+      report("Count each month of a year in 500000 records", "YEAR and MONTH", functionTime,
+          "date range", rangeTime);
+      // Only the range seeks the index, timings alone don't show it
+      assertTrue(plan(connection, range).contains("IDX_RECORD_DATE: DATE >= ?1"));
+      assertFalse(plan(connection, functions).contains("IDX_RECORD_DATE: "));
+    }
+  }
+
+  private static String plan(Connection connection, String sql) throws Exception {
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+      resultSet.next();
+      return resultSet.getString(1);
+    }
+  }
+
+  private static long count(Connection connection, String sql, Object... parameters)
+      throws Exception {
+    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+      for (int i = 0; i < parameters.length; i++) {
+        statement.setObject(i + 1, parameters[i]);
+      }
+      try (ResultSet resultSet = statement.executeQuery()) {
+        resultSet.next();
+        return resultSet.getLong(1);
+      }
+    }
+  }
+
+  /**
+   * Searching the names of 500k students the way listStudents does, against the LIKE scan of
+   * full_name it replaced. Runs on its own H2 databases with the student tables of the schema.
+   *
+   * <p>
+   * Names of random letters have selective trigrams, like real names with rare parts, and are
+   * searched through the trigram table. Names built from a few syllables share most of their
+   * trigrams, so their searches fall back to the scan and should take as long as it.
+   * </p>
+   */
+
+  @Test
+  public void benchmarkNameSearch() throws Exception {
+    Random random = new Random(42);
+    String[] randomNames = new String[500_000];
+    for (int i = 0; i < randomNames.length; i++) {
+      randomNames[i] = randomWord(random) + " " + randomWord(random);
+    }
+    List<String> randomQueries = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      String name = randomNames[i * 49_999];
+      randomQueries.add(name.substring(i % 3, i % 3 + 4 + i % 4));
+    }
+    benchmarkNameSearch("random letter", randomNames, randomQueries, true);
+
+    String[] syllables = {"an", "ber", "cor", "dal", "el", "fin", "gra", "hol", "is", "jo",
+        "kin", "lor", "mar", "nel", "or", "pet", "quin", "ros", "sam", "tor"};
+    String[] syllableNames = new String[500_000];
+    for (int i = 0; i < syllableNames.length; i++) {
+      syllableNames[i] = syllables[i % 20] + syllables[i / 20 % 20] + " "
+          + syllables[i / 400 % 20] + syllables[i / 8000 % 20] + syllables[i % 7];
+    }
+    benchmarkNameSearch("syllable", syllableNames, List.of("berquin", "rosel", "jomar", "tor",
+        "quinsam", "finpet", "ellor", "isgra", "corkin sam", "dalnel"), false);
+  }
+
+  private static String randomWord(Random random) {
+    char[] letters = new char[4 + random.nextInt(6)];
+    for (int i = 0; i < letters.length; i++) {
+      letters[i] = (char) ('a' + random.nextInt(26));
+    }
+    return new String(letters);
+  }
+
+  private static void benchmarkNameSearch(String kind, String[] names, List<String> queries,
+      boolean selective) throws Exception {
+    try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:benchmark_" + kind
+        .replace(' ', '_') + "_names;MODE=PostgreSQL;QUERY_CACHE_SIZE=0")) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("CREATE TABLE student (id INT PRIMARY KEY, full_name VARCHAR(61))");
+        statement.execute("CREATE TABLE student_name_trigram (student_id INT NOT NULL,"
+            + " trigram VARCHAR(3) NOT NULL, PRIMARY KEY (trigram, student_id))");
+      }
+      connection.setAutoCommit(false);
+      // Trigrams are inserted in key order, which fills the table faster
+      List<String> postings = new ArrayList<>();
+      try (PreparedStatement student = connection.prepareStatement(
+          "INSERT INTO student VALUES (?, ?)")) {
+        for (int id = 1; id <= names.length; id++) {
+          student.setInt(1, id);
+          student.setString(2, names[id - 1]);
+          student.addBatch();
+          for (String gram : TrigramUtils.trigrams(names[id - 1])) {
+            postings.add(gram + String.format("%07d", id));
+          }
+          if (id % 1000 == 0) {
+            student.executeBatch();
+          }
+        }
+      }
+      Collections.sort(postings);
+      try (PreparedStatement trigram = connection.prepareStatement(
+          "INSERT INTO student_name_trigram VALUES (?, ?)")) {
+        for (int i = 0; i < postings.size(); i++) {
+          trigram.setInt(1, Integer.parseInt(postings.get(i).substring(TrigramUtils.GRAM_SIZE)));
+          trigram.setString(2, postings.get(i).substring(0, TrigramUtils.GRAM_SIZE));
+          trigram.addBatch();
+          if (i % 10_000 == 9_999) {
+            trigram.executeBatch();
+          }
+        }
+        trigram.executeBatch();
+      }
+      connection.commit();
+      // How many searches go through the trigram table instead of falling back to the scan
+      int throughTrigrams = 0;
+      for (String query : queries) {
+        if (nameSearch(connection, query).getSqlSegment().contains("trigram")) {
+          throughTrigrams++;
+        }
+      }
+      if (selective) {
+        assertEquals(queries.size(), throughTrigrams);
+      }
+      long[] counts = new long[2];
+      long scan = bestOf(() -> {
+        counts[0] = 0;
+        for (String query : queries) {
+          counts[0] += count(connection, "SELECT COUNT(*) FROM student WHERE full_name LIKE ?",
+              "%" + query + "%");
+        }
+      });
+      ThrowingRunnable search = () -> {
+        counts[1] = 0;
+        for (String query : queries) {
+          QueryWrapper<Student> wrapper = nameSearch(connection, query);
+          List<Object> parameters = new ArrayList<>();
+          StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM student WHERE ");
+          Matcher matcher = PARAMETER.matcher(wrapper.getSqlSegment());
+          while (matcher.find()) {
+            parameters.add(wrapper.getParamNameValuePairs().get(matcher.group(1)));
+            matcher.appendReplacement(sql, "?");
+          }
+          matcher.appendTail(sql);
+          counts[1] += count(connection, sql.toString(), parameters.toArray());
+        }
+      };
+      // The searches run far more often than the scans before they are compiled, warm them first
+      long warmUpEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (System.nanoTime() < warmUpEnd) {
+        search.run();
+      }
+      long indexed = bestOf(search);
+      assertEquals(counts[0], counts[1]);
+      report("Search a name in " + names.length + " " + kind + " names, " + throughTrigrams
+              + " of " + queries.size() + " through trigrams", "like scan",
+          scan / queries.size(), "name search", indexed / queries.size());
+    }
+  }
+
+  private static QueryWrapper<Student> nameSearch(Connection connection, String query) {
+    QueryWrapper<Student> wrapper = new QueryWrapper<>();
+    TrigramUtils.applyNameSearch(wrapper, "student_name_trigram", "student_id", query,
+        (trigram, limit) -> {
+          try {
+            return (int) count(connection, "SELECT COUNT(*) FROM (SELECT 1"
+                + " FROM student_name_trigram WHERE trigram = ? LIMIT ?) AS postings", trigram,
+                limit);
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
+          }
+        });
+    return wrapper;
+  }
+
+  /**
+   * Type-ahead latency of the search index against scanning every account and module.
+   *
+   * <p>
+   * Both paths answer the same prefix queries over 100k students, 2k staff and 5k modules, and the
+   * index ranks like sorting every match of the scan. The index is compared on its 99th
+   * percentile, the latency the search endpoint is meant to bound.
+   * </p>
+   */
+
+  @Test
+  public void benchmarkSearchIndex() throws Exception {
+    String[] syllables = {"an", "ber", "cor", "dal", "el", "fin", "gra", "hol", "is", "jo",
+        "kin", "lor", "mar", "nel", "or", "pet", "quin", "ros", "sam", "tor"};
+    Random random = new Random(42);
+    List<Student> students = new ArrayList<>();
+    for (int id = 1; id <= 100_000; id++) {
+      students.add(new Student().setId(id).setFirstName(randomName(random, syllables))
+          .setLastName(randomName(random, syllables)).setUsername("student" + id)
+          .setProgramOfStudy(syllables[id % 20] + " studies"));
+    }
+    List<Staff> staffs = new ArrayList<>();
+    for (int id = 1; id <= 2_000; id++) {
+      staffs.add(new Staff().setId(id).setFirstName(randomName(random, syllables))
+          .setLastName(randomName(random, syllables)).setUsername("staff" + id)
+          .setDepartment(syllables[id % 20] + " department").setTitle("Lecturer"));
+    }
+    List<Module> modules = new ArrayList<>();
+    for (int i = 0; i < 5_000; i++) {
+      modules.add(new Module(String.format("MOD%04d", i), randomName(random, syllables)
+          + " " + randomName(random, syllables), false, 15, 1 + i % 2_000));
+    }
+    StudentMapper studentMapper = mock(StudentMapper.class);
+    StaffMapper staffMapper = mock(StaffMapper.class);
+    ModuleMapper moduleMapper = mock(ModuleMapper.class);
+    when(studentMapper.selectList(any())).thenReturn(students);
+    when(staffMapper.selectList(any())).thenReturn(staffs);
+    when(moduleMapper.selectList(any())).thenReturn(modules);
+    SearchIndex searchIndex = new SearchIndex();
+    ReflectionTestUtils.setField(searchIndex, "studentMapper", studentMapper);
+    ReflectionTestUtils.setField(searchIndex, "staffMapper", staffMapper);
+    ReflectionTestUtils.setField(searchIndex, "moduleMapper", moduleMapper);
+    searchIndex.rebuild();
+
+    // The words the scan matches against, as the index tokenizes them
+    List<String[]> texts = new ArrayList<>();
+    List<String> keys = new ArrayList<>();
+    List<String> titles = new ArrayList<>();
+    for (Student student : students) {
+      keys.add("student:" + student.getId());
+      titles.add(student.getFirstName() + " " + student.getLastName());
+      texts.add(words(student.getFirstName(), student.getLastName(), student.getUsername(),
+          student.getProgramOfStudy()));
+    }
+    for (Staff staff : staffs) {
+      keys.add("staff:" + staff.getId());
+      titles.add(staff.getFirstName() + " " + staff.getLastName());
+      texts.add(words(staff.getFirstName(), staff.getLastName(), staff.getUsername(),
+          staff.getDepartment(), staff.getTitle()));
+    }
+    for (Module module : modules) {
+      Staff leader = staffs.get(module.getStaffId() - 1);
+      keys.add("module:" + module.getCode());
+      titles.add(module.getCode() + " " + module.getName());
+      texts.add(words(module.getCode(), module.getName(), leader.getFirstName(),
+          leader.getLastName()));
+    }
+    List<String> queries = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      String[] words = texts.get(random.nextInt(texts.size()));
+      String word = words[random.nextInt(words.length)];
+      queries.add(word.substring(0, Math.min(word.length(), 2 + random.nextInt(4))));
+    }
+
+    long[] scan = new long[queries.size()];
+    long[] indexed = new long[queries.size()];
+    for (int run = 0; run < 2; run++) {
+      for (int i = 0; i < queries.size(); i++) {
+        String query = queries.get(i);
+        long start = System.nanoTime();
+        int matches = 0;
+        for (String[] words : texts) {
+          for (String word : words) {
+            if (word.startsWith(query)) {
+              matches++;
+              break;
+            }
+          }
+        }
+        scan[i] = System.nanoTime() - start;
+        start = System.nanoTime();
+        int results = searchIndex.search(query, 10).size();
+        indexed[i] = System.nanoTime() - start;
+        assertEquals(Math.min(matches, 10), results);
+      }
+    }
+    // The index ranks like sorting every match of the scan
+    for (String query : queries.subList(0, 100)) {
+      List<Integer> matches = new ArrayList<>();
+      for (int i = 0; i < texts.size(); i++) {
+        if (Arrays.stream(texts.get(i)).anyMatch(word -> word.startsWith(query))) {
+          matches.add(i);
+        }
+      }
+      List<String> expected = matches.stream()
+          .sorted(Comparator.comparing((Integer i) -> !Arrays.asList(texts.get(i)).contains(query))
+              .thenComparingInt(i -> titles.get(i).length())
+              .thenComparing(titles::get)
+              .thenComparing(keys::get))
+          .limit(10).map(keys::get).toList();
+      assertEquals(expected,
+          searchIndex.search(query, 10).stream().map(SearchDocument::getKey).toList());
+    }
+    report("p99 of " + queries.size() + " prefix searches over " + texts.size() + " documents",
+        "scan", percentile(scan, 0.99), "search index", percentile(indexed, 0.99));
+  }
+
+  private static String randomName(Random random, String[] syllables) {
+    String name = syllables[random.nextInt(syllables.length)]
+        + syllables[random.nextInt(syllables.length)] + syllables[random.nextInt(syllables.length)];
+    return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+
+  private static String[] words(String... texts) {
+    return Arrays.stream(texts)
+        .flatMap(text -> Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")))
+        .filter(word -> !word.isEmpty())
+        .toArray(String[]::new);
+  }
+
+  private static long percentile(long[] samples, double fraction) {
+    long[] sorted = samples.clone();
+    Arrays.sort(sorted);
+    return sorted[(int) Math.ceil(fraction * sorted.length) - 1];
+  }
+
+  /**
+   * Time to hash and to verify one password at each bcrypt cost a deployment would pick from.
+   *
+   * <p>
+   * Every step doubles the work, so this is the table to read before changing password.cost.
+   * </p>
+   */
+
+  @Test
+  public void benchmarkPasswordCost() throws Exception {
+    PasswordHasher passwordHasher = new BcryptPasswordHasher();
+    for (int cost = BcryptPasswordHasher.MIN_COST; cost <= 12; cost += 2) {
+      int rounds = cost;
+      String[] hashed = new String[1];
+      long hash = bestOf(() -> hashed[0] = passwordHasher.hash("password", rounds));
+      assertEquals(cost, passwordHasher.costOf(hashed[0]));
+      long verify = bestOf(() -> assertTrue(passwordHasher.verify("password", hashed[0])));
+      System.out.printf("[benchmark] bcrypt cost %d: hash %.1f ms, verify %.1f ms%n", cost,
+          hash / 1e6, verify / 1e6);
+    }
+  }
+
+  /**
+   * Load on the real endpoints with spring.threads.virtual.enabled off and on.
+   *
+   * <p>
+   * The application is started once per mode on a random port and 400 clients list students,
+   * modules and records with an admin login, so requests go through the login aspect, the
+   * services and the database. Virtual threads only take effect on Java 21 or later, so the
+   * printed mode tells whether the run compared anything. Run it on Java 21 with
+   * {@code mvn test -Pbenchmark,java21 -Dtest=BenchmarkTest#benchmarkVirtualThreads}.
+   * </p>
+   */
+
+  @Test
+  public void benchmarkVirtualThreads() throws Exception {
+    int clients = 400;
+    int requests = 10_000;
+    long[] times = new long[2];
+    for (int mode = 0; mode < 2; mode++) {
+      boolean virtual = mode == 1;
+      try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+          StudentManagementSystemApplication.class)
+          .properties("server.port=0", "spring.threads.virtual.enabled=" + virtual)
+          .run()) {
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        HttpClient client = HttpClient.newHttpClient();
+        String accessToken = login(client, port);
+        String host = "http://localhost:" + port;
+        List<URI> uris = List.of(
+            URI.create(host + "/api/student/list-students?current=1&size=10"),
+            URI.create(host + "/api/module/list?current=1&size=10"),
+            URI.create(host + "/api/record?size=10"));
+        long[] latencies = new long[requests];
+        times[mode] = bestOf(() -> load(client, accessToken, uris, clients, latencies));
+        Arrays.sort(latencies);
+        System.out.printf("[benchmark] %s threads (virtual active: %s): p50 %.1f ms,"
+                + " p99 %.1f ms%n", virtual ? "virtual" : "platform",
+            Threading.VIRTUAL.isActive(context.getEnvironment()), latencies[requests / 2] / 1e6,
+            latencies[requests * 99 / 100] / 1e6);
+      }
+    }
+    report("Serve " + requests + " requests from " + clients + " clients",
+        "platform threads", times[0], "virtual threads", times[1]);
+  }
+
+  private static String login(HttpClient client, int port) throws Exception {
+    HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:" + port + "/api/admin/login"))
+            .header("Content-Type", "application/json")
+            .POST(BodyPublishers.ofString(
+                "{\"username\":\"admin\",\"password\":\"123456\"}"))
+            .build(),
+        BodyHandlers.ofString());
+    return new ObjectMapper().readTree(response.body()).path("data").path("accessToken")
+        .asText();
+  }
+
+  private static void load(HttpClient client, String accessToken, List<URI> uris, int clients,
+      long[] latencies) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(clients);
+    try {
+      List<Future<Void>> responses = new ArrayList<>();
+      for (int i = 0; i < latencies.length; i++) {
+        int request = i;
+        responses.add(executor.submit((Callable<Void>) () -> {
+          long start = System.nanoTime();
+          HttpResponse<Void> response = client.send(
+              HttpRequest.newBuilder(uris.get(request % uris.size()))
+                  .header("Authorization", accessToken)
+                  .build(),
+              BodyHandlers.discarding());
+          latencies[request] = System.nanoTime() - start;
+          assertEquals(200, response.statusCode());
+          return null;
+        }));
+      }
+      for (Future<Void> response : responses) {
+        response.get();
+      }
+    } finally {
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+  }
+
+  /**
+   * Best wall time of a task in nanoseconds, after one untimed warm-up run.
+   */
+
+  static long bestOf(ThrowingRunnable task) throws Exception {
+    task.run();
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < RUNS; i++) {
+      long start = System.nanoTime();
+      task.run();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    return best;
+  }
+
+  static void report(String benchmark, String baselineName, long baseline, String optimisedName,
+      long optimised) {
+    System.out.printf("[benchmark] %s: %s %.1f ms, %s %.1f ms, %.2fx%n", benchmark,
+        baselineName, baseline / 1e6, optimisedName, optimised / 1e6,
+        (double) baseline / optimised);
+  }
+
+  /**
+   * Task which may throw checked exceptions.
+   */
+
+  @FunctionalInterface
+  interface ThrowingRunnable {
+
+    void run() throws Exception;
+
+  }
+
+}
@@ -1,24 +1,41 @@
 package uk.ac.ucl.comp0010.test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import uk.ac.ucl.comp0010.cache.GradeSummaryCache;
+import uk.ac.ucl.comp0010.config.PasswordProperties;
 import uk.ac.ucl.comp0010.dto.LoginDto;
 import uk.ac.ucl.comp0010.dto.ResetPasswordDto;
 import uk.ac.ucl.comp0010.entity.Student;
+import uk.ac.ucl.comp0010.enums.AccountType;
 import uk.ac.ucl.comp0010.response.Result;
 import uk.ac.ucl.comp0010.service.StudentService;
 import uk.ac.ucl.comp0010.utils.PasswordEncoderUtils;
+import uk.ac.ucl.comp0010.utils.PasswordHasher;
 import uk.ac.ucl.comp0010.vo.LoginVo;
 
 /**
@@ -28,6 +45,10 @@ import uk.ac.ucl.comp0010.vo.LoginVo;
 @AutoConfigureMockMvc
 public class StudentTest {
 
+  private static final long CURSOR_SEED_ID = 900001;
+
+  private static final long GRADE_SEED_ID = 900701;
+
   @Autowired
   protected MockMvc mockMvc;
 
@@ -37,6 +58,18 @@ public class StudentTest {
   @Autowired
   private StudentService studentService;
 
+  @Autowired
+  private GradeSummaryCache gradeSummaryCache;
+
+  @Autowired
+  private PasswordHasher passwordHasher;
+
+  @Autowired
+  private PasswordProperties passwordProperties;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
   private String accessToken;
 
   private String refreshToken;
@@ -118,6 +151,189 @@ public class StudentTest {
         .andExpect(status().isOk());
   }
 
+  private void testListRecordsByCursor() throws Exception {
+    //Test List Records using keyset paging
+    mockMvc.perform(
+            MockMvcRequestBuilders.get("/api/record")
+                .header("Authorization", accessToken)
+                .param("size", "10")
+                .param("after", ""))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.data.records").isArray());
+    //Test List Records using an invalid cursor
+    mockMvc.perform(
+            MockMvcRequestBuilders.get("/api/record")
+                .header("Authorization", accessToken)
+                .param("size", "10")
+                .param("after", "Invalid Cursor"))
+        .andExpect(status().is4xxClientError());
+    //Test List Records using an invalid page size
+    mockMvc.perform(
+            MockMvcRequestBuilders.get("/api/record")
+                .header("Authorization", accessToken)
+                .param("size", "0")
+                .param("after", ""))
+        .andExpect(status().is4xxClientError());
+
+    // Seed records with ids above the sequence, so the ids later tests expect stay free
+    jdbcTemplate.update("INSERT INTO staff (id, username, password) VALUES (?, ?, ?)",
+        CURSOR_SEED_ID, "cursorStaff", "cursorStaff");
+    jdbcTemplate.update("INSERT INTO module (code, name, staff_id) VALUES (?, ?, ?)",
+        "CURSOR0001", "Cursor Module", CURSOR_SEED_ID);
+    List<Long> ids = new ArrayList<>();
+    for (long id = CURSOR_SEED_ID; id < CURSOR_SEED_ID + 6; id++) {
+      jdbcTemplate.update("INSERT INTO record (id, module_code, date) VALUES (?, ?, ?)",
+          id, "CURSOR0001", LocalDate.of(2024, 1, 1));
+      ids.add(id);
+    }
+    try {
+      // Sizes 1, 2, 3 and 6 end on an exactly full page, 4 and 7 on a partial one
+      for (int size : new int[] {1, 2, 3, 4, 6, 7}) {
+        assertEquals(ids, listRecordIdsByCursor(size), "page size " + size);
+      }
+    } finally {
+      // Deleting the staff cascades to the module and its records
+      jdbcTemplate.update("DELETE FROM staff WHERE id = ?", CURSOR_SEED_ID);
+    }
+  }
+
+  /**
+   * Follow the cursors of the seeded module's records until the last page.
+   *
+   * @param size page size
+   * @return ids of the records in the order they were listed
+   * @throws Exception if any error occurs during list request
+   */
+  private List<Long> listRecordIdsByCursor(int size) throws Exception {
+    List<Long> ids = new ArrayList<>();
+    String after = "";
+    while (after != null) {
+      MvcResult result = mockMvc.perform(
+              MockMvcRequestBuilders.get("/api/record")
+                  .header("Authorization", accessToken)
+                  .param("size", Integer.toString(size))
+                  .param("moduleCode", "CURSOR0001")
+                  .param("after", after))
+          .andExpect(status().isOk())
+          .andReturn();
+      JsonNode page = objectMapper.readTree(result.getResponse().getContentAsString())
+          .get("data");
+      JsonNode records = page.get("records");
+      // No page is empty, and only the last one may be partial
+      assertTrue(records.size() > 0, "empty page after " + after);
+      assertTrue(records.size() <= size);
+      for (JsonNode record : records) {
+        ids.add(record.get("id").asLong());
+      }
+      JsonNode nextCursor = page.get("nextCursor");
+      after = nextCursor == null || nextCursor.isNull() ? null : nextCursor.asText();
+      if (after != null) {
+        assertEquals(size, records.size());
+      }
+    }
+    return ids;
+  }
+
+  private void testDownloadTranscript() throws Exception {
+    //Test Download Own Transcript
+    mockMvc.perform(
+            MockMvcRequestBuilders.get("/api/student/transcript")
+                .header("Authorization", accessToken))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_PDF));
+  }
+
+  private void testGradeSummary() throws Exception {
+    // Seed marks with ids above the sequences, so the ids later tests expect stay free
+    Integer studentId = studentService.getOne(
+        new QueryWrapper<Student>().eq("username", "test")).getId();
+    jdbcTemplate.update("INSERT INTO staff (id, username, password) VALUES (?, ?, ?)",
+        GRADE_SEED_ID, "gradeStaff", "gradeStaff");
+    // Module, credits, exam date and score of each registration
+    Object[][] marks = {
+        {"GRADE0001", 15, LocalDate.of(2023, 6, 1), 80},
+        {"GRADE0002", 30, LocalDate.of(2023, 6, 2), 65},
+        {"GRADE0003", 15, LocalDate.of(2024, 6, 1), 35},
+        {"GRADE0004", 60, LocalDate.of(2024, 6, 2), null}};
+    for (int i = 0; i < marks.length; i++) {
+      jdbcTemplate.update(
+          "INSERT INTO module (code, name, credits, staff_id) VALUES (?, ?, ?, ?)",
+          marks[i][0], "Grade Module", marks[i][1], GRADE_SEED_ID);
+      jdbcTemplate.update("INSERT INTO record (id, module_code, date) VALUES (?, ?, ?)",
+          GRADE_SEED_ID + i, marks[i][0], marks[i][2]);
+      jdbcTemplate.update("INSERT INTO registration (id, student_id, record_id, score,"
+              + " registration_time) VALUES (?, ?, ?, ?, ?)",
+          GRADE_SEED_ID + i, studentId, GRADE_SEED_ID + i, marks[i][3], LocalDateTime.now());
+    }
+    try {
+      //Test Get Own Grade Summary
+      // Weighted by credits: (80 * 15 + 65 * 30 + 35 * 15) / 60 = 61.25
+      mockMvc.perform(
+              MockMvcRequestBuilders.get("/api/student/grade-summary")
+                  .header("Authorization", accessToken))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.data.totalModules").value(4))
+          .andExpect(jsonPath("$.data.markedModules").value(3))
+          .andExpect(jsonPath("$.data.totalCredits").value(60))
+          .andExpect(jsonPath("$.data.creditsEarned").value(45))
+          .andExpect(jsonPath("$.data.averageScore").value(60.0))
+          .andExpect(jsonPath("$.data.weightedAverage").value(61.25))
+          .andExpect(jsonPath("$.data.passRate").value(0.6667))
+          .andExpect(jsonPath("$.data.classification").value("Upper Second (2:1)"))
+          .andExpect(jsonPath("$.data.gradeDistribution.A").value(1))
+          .andExpect(jsonPath("$.data.gradeDistribution.B").value(1))
+          .andExpect(jsonPath("$.data.gradeDistribution.F").value(1))
+          .andExpect(jsonPath("$.data.years.length()").value(2))
+          // (80 * 15 + 65 * 30) / 45 = 70
+          .andExpect(jsonPath("$.data.years[0].year").value(2023))
+          .andExpect(jsonPath("$.data.years[0].averageScore").value(72.5))
+          .andExpect(jsonPath("$.data.years[0].weightedAverage").value(70.0))
+          .andExpect(jsonPath("$.data.years[0].classification").value("First"))
+          .andExpect(jsonPath("$.data.years[1].year").value(2024))
+          .andExpect(jsonPath("$.data.years[1].creditsEarned").value(0))
+          .andExpect(jsonPath("$.data.years[1].weightedAverage").value(35.0))
+          .andExpect(jsonPath("$.data.years[1].classification").value("Fail"));
+    } finally {
+      // Deleting the staff cascades to the modules, records and registrations
+      jdbcTemplate.update("DELETE FROM staff WHERE id = ?", GRADE_SEED_ID);
+      gradeSummaryCache.evict(List.of(studentId));
+    }
+  }
+
+  /**
+   * Test that a login upgrades a hash made with another cost, and a failed one doesn't.
+   *
+   * @throws Exception if any error occurs during login request
+   */
+  private void testRehashOnLogin() throws Exception {
+    int cost = passwordProperties.getCost(AccountType.student);
+    String oldHash = passwordHasher.hash("test", cost == 4 ? 5 : 4);
+    studentService.update(new UpdateWrapper<Student>().set("password", oldHash)
+        .eq("username", "test"));
+    // Failed Login
+    LoginDto loginDto = new LoginDto();
+    loginDto.setUsername("test");
+    loginDto.setPassword("Error Password");
+    mockMvc.perform(
+        MockMvcRequestBuilders.post("/api/student/login").contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(loginDto)))
+        .andExpect(status().is4xxClientError());
+    assertEquals(oldHash, studentService.getOne(
+        new QueryWrapper<Student>().eq("username", "test")).getPassword());
+    // Successful Login
+    loginDto.setPassword("test");
+    mockMvc.perform(
+        MockMvcRequestBuilders.post("/api/student/login").contentType(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(loginDto)))
+        .andExpect(status().isOk());
+    String newHash = studentService.getOne(
+        new QueryWrapper<Student>().eq("username", "test")).getPassword();
+    assertNotEquals(oldHash, newHash);
+    assertEquals(cost, passwordHasher.costOf(newHash));
+    assertTrue(passwordHasher.verify("test", newHash));
+  }
+
+
   /**
    * Test for resetting the password.
    *
@@ -167,6 +383,15 @@ public class StudentTest {
     testPersonalDetails();
     // Test Personal Records
     testListStudentRegistrations(1, 10);
+    // Test Records by Cursor
+    testListRecordsByCursor();
+    // Test Transcript
+    testDownloadTranscript();
+    // Test Grade Summary
+    testGradeSummary();
+
+    // Test Rehash on Login
+    testRehashOnLogin();
 
     // Test Reset Password
     testResetPassword(accessToken);
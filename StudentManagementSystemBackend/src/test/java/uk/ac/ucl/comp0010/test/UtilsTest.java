@@ -1,9 +1,82 @@
 package uk.ac.ucl.comp0010.test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import javax.crypto.SecretKey;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultSetType;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import uk.ac.ucl.comp0010.context.LoginContextHolder;
+import uk.ac.ucl.comp0010.context.LoginContextTaskDecorator;
+import uk.ac.ucl.comp0010.dto.CreateRecordDto;
+import uk.ac.ucl.comp0010.dto.CreateRegistrationDto;
+import uk.ac.ucl.comp0010.entity.Module;
+import uk.ac.ucl.comp0010.entity.Staff;
+import uk.ac.ucl.comp0010.entity.Student;
+import uk.ac.ucl.comp0010.enums.AccountType;
+import uk.ac.ucl.comp0010.enums.FacetType;
+import uk.ac.ucl.comp0010.enums.ImportJobStatus;
+import uk.ac.ucl.comp0010.enums.ImportType;
+import uk.ac.ucl.comp0010.enums.JwtType;
+import uk.ac.ucl.comp0010.enums.SearchType;
+import uk.ac.ucl.comp0010.exception.CustomException;
+import uk.ac.ucl.comp0010.exception.ServerException;
+import uk.ac.ucl.comp0010.mapper.ModuleMapper;
+import uk.ac.ucl.comp0010.mapper.StaffMapper;
+import uk.ac.ucl.comp0010.mapper.StudentMapper;
+import uk.ac.ucl.comp0010.model.FacetCount;
+import uk.ac.ucl.comp0010.model.ImportJob;
+import uk.ac.ucl.comp0010.model.LoginEntity;
+import uk.ac.ucl.comp0010.model.Payload;
+import uk.ac.ucl.comp0010.model.SearchDocument;
+import uk.ac.ucl.comp0010.search.FacetIndex;
+import uk.ac.ucl.comp0010.search.SearchIndex;
+import uk.ac.ucl.comp0010.utils.CsvRowBinder;
 import uk.ac.ucl.comp0010.utils.CsvUtils;
+import uk.ac.ucl.comp0010.utils.EtagUtils;
 import uk.ac.ucl.comp0010.utils.JwtUtils;
+import uk.ac.ucl.comp0010.utils.LongLongHashMap;
 import uk.ac.ucl.comp0010.utils.PasswordEncoderUtils;
+import uk.ac.ucl.comp0010.utils.TransactionUtils;
+import uk.ac.ucl.comp0010.utils.TrigramUtils;
+import uk.ac.ucl.comp0010.vo.ImportJobVo;
 
 /**
  * Test initialize utilities.
@@ -21,4 +94,408 @@ public class UtilsTest {
     new PasswordEncoderUtils();
   }
 
+  @Test
+  public void testEtag() {
+    // Test First Request
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    assertFalse(EtagUtils.checkNotModified(
+        new ServletWebRequest(new MockHttpServletRequest("GET", "/api/module/test"), response),
+        "\"1\""));
+    assertEquals("\"1\"", response.getHeader(HttpHeaders.ETAG));
+    assertEquals("no-cache", response.getHeader(HttpHeaders.CACHE_CONTROL));
+    // Test Not Modified
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/module/test");
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"1\"");
+    response = new MockHttpServletResponse();
+    assertTrue(EtagUtils.checkNotModified(new ServletWebRequest(request, response), "\"1\""));
+    assertEquals(304, response.getStatus());
+    // Test Modified
+    response = new MockHttpServletResponse();
+    assertFalse(EtagUtils.checkNotModified(new ServletWebRequest(request, response), "\"2\""));
+    // Test No Such Resource
+    assertFalse(EtagUtils.checkNotModified(new ServletWebRequest(request), null));
+  }
+
+  @Test
+  public void testLoginContextPropagation() throws Exception {
+    LoginEntity loginEntity = new LoginEntity();
+    loginEntity.setId(1);
+    loginEntity.setAccountType(AccountType.staff);
+    LoginContextHolder.set(loginEntity);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // Test Executor Task
+      Runnable task = new LoginContextTaskDecorator().decorate(
+          () -> assertEquals(1, LoginContextHolder.get().getId()));
+      CompletableFuture.runAsync(task, executor).get();
+      // Test CompletableFuture Supplier
+      assertEquals(AccountType.staff, CompletableFuture.supplyAsync(
+          LoginContextHolder.wrapSupplier(() -> LoginContextHolder.get().getAccountType()),
+          executor).get());
+      // Test Pool Thread Cleared
+      assertNull(CompletableFuture.supplyAsync(LoginContextHolder::get, executor).get());
+      // Test Caller Keeps Its Account
+      LoginContextHolder.clear();
+      Runnable emptyTask = LoginContextHolder.wrap(() -> assertNull(LoginContextHolder.get()));
+      LoginContextHolder.set(loginEntity);
+      emptyTask.run();
+      assertEquals(loginEntity, LoginContextHolder.get());
+    } finally {
+      LoginContextHolder.clear();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testCsvRowBinder() {
+    // Test Type Coercion
+    CsvRowBinder<CreateRegistrationDto> binder = CsvRowBinder.of(CreateRegistrationDto.class);
+    BiConsumer<CreateRegistrationDto, String>[] setters =
+        binder.bindHeader(new String[] {"recordId", "studentId", "score"});
+    CreateRegistrationDto registration = binder.bindRow(setters,
+        new String[] {"12345678901", "7", "65"});
+    assertEquals(12345678901L, registration.getRecordId());
+    assertEquals(7, registration.getStudentId());
+    assertEquals(65, registration.getScore());
+    CsvRowBinder<CreateRecordDto> recordBinder = CsvRowBinder.of(CreateRecordDto.class);
+    CreateRecordDto record = recordBinder.bindRow(
+        recordBinder.bindHeader(new String[] {"date", "moduleCode"}),
+        new String[] {"2024-12-12", "COMP0010"});
+    assertEquals(LocalDate.of(2024, 12, 12), record.getDate());
+    assertEquals("COMP0010", record.getModuleCode());
+    // Test Cached Binder
+    assertSame(binder, CsvRowBinder.of(CreateRegistrationDto.class));
+    // Test Blank Cells
+    registration = binder.bindRow(setters, new String[] {"1", " ", ""});
+    assertNull(registration.getStudentId());
+    assertNull(registration.getScore());
+    record = recordBinder.bindRow(recordBinder.bindHeader(new String[] {"moduleCode", "date"}),
+        new String[] {"", ""});
+    assertEquals("", record.getModuleCode());
+    assertNull(record.getDate());
+    // Test Column Missing From The Header
+    registration = binder.bindRow(binder.bindHeader(new String[] {"studentId"}),
+        new String[] {"3"});
+    assertEquals(3, registration.getStudentId());
+    assertNull(registration.getRecordId());
+    // Test Unknown Column
+    assertThrows(CustomException.class,
+        () -> binder.bindHeader(new String[] {"studentId", "grade"}));
+    // Test Invalid Number
+    assertThrows(NumberFormatException.class,
+        () -> binder.bindRow(setters, new String[] {"1", "x", "2"}));
+  }
+
+  @Test
+  public void testImportJobFailure() {
+    ImportJob importJob = new ImportJob(ImportType.student, 1, AccountType.admin);
+    importJob.start(5);
+    Consumer<List<Integer>> chunkConsumer = ImportJob.track(importJob, chunk -> {
+      if (chunk.contains(0)) {
+        throw new CustomException("Invalid row");
+      }
+    });
+    chunkConsumer.accept(List.of(1, 2, 3));
+    assertEquals(3, importJob.getProcessedRows().get());
+    assertThrows(CustomException.class, () -> chunkConsumer.accept(List.of(4, 0)));
+    importJob.fail("Invalid row");
+
+    ImportJobVo importJobVo = new ImportJobVo(importJob);
+    assertEquals(ImportJobStatus.failed, importJobVo.getStatus());
+    assertEquals(0, importJobVo.getProcessedRows());
+    assertEquals(3, importJobVo.getRolledBackRows());
+    assertEquals(2, importJobVo.getFailedRows());
+    assertEquals(0, importJobVo.getThroughput());
+    assertNull(importJobVo.getEtaSeconds());
+    assertEquals("Invalid row", importJobVo.getMessage());
+  }
+
+  @Test
+  public void testLongLongHashMap() {
+    LongLongHashMap map = new LongLongHashMap(16);
+    // Absent keys return the given default, and a stored value equal to it is still found
+    assertEquals(-1, map.get(42, -1));
+    assertFalse(map.containsKey(42));
+    map.put(42, -1);
+    assertTrue(map.containsKey(42));
+    assertEquals(-1, map.get(42, 7));
+    // The key 0 lives outside the table
+    map.put(0, 5);
+    assertTrue(map.containsKey(0));
+    assertEquals(5, map.get(0, -1));
+    assertEquals(2, map.size());
+
+    // Enough keys to collide and resize the table several times
+    for (int recordId = 1; recordId <= 100; recordId++) {
+      for (int studentId = 1; studentId <= 100; studentId++) {
+        map.put(LongLongHashMap.pack(recordId, studentId), recordId * 1000L + studentId);
+      }
+    }
+    // Replacing a value doesn't add an entry
+    map.put(LongLongHashMap.pack(1, 1), 7);
+    assertEquals(10_002, map.size());
+    assertEquals(7, map.get(LongLongHashMap.pack(1, 1), -1));
+    for (int recordId = 1; recordId <= 100; recordId++) {
+      for (int studentId = recordId == 1 ? 2 : 1; studentId <= 100; studentId++) {
+        assertEquals(recordId * 1000L + studentId,
+            map.get(LongLongHashMap.pack(recordId, studentId), -1));
+      }
+    }
+    assertEquals(-1, map.get(LongLongHashMap.pack(101, 1), -1));
+    assertFalse(map.containsKey(LongLongHashMap.pack(1, 101)));
+
+    map.clear();
+    assertEquals(0, map.size());
+    assertFalse(map.containsKey(0));
+    assertFalse(map.containsKey(LongLongHashMap.pack(1, 2)));
+
+    // Negative student ids keep their own keys, negative record ids can't be packed
+    long negativeStudent = LongLongHashMap.pack(1, -1);
+    assertTrue(negativeStudent > 0);
+    map.put(negativeStudent, 3);
+    assertEquals(-1, map.get(LongLongHashMap.pack(1, Integer.MAX_VALUE), -1));
+    assertEquals(-1, map.get(LongLongHashMap.pack(2, -1), -1));
+    assertEquals(3, map.get(negativeStudent, -1));
+    assertThrows(IllegalArgumentException.class, () -> LongLongHashMap.pack(-1, 1));
+    assertThrows(IllegalArgumentException.class, () -> LongLongHashMap.pack(1L << 32, 1));
+  }
+
+  @Test
+  public void testTrigramSimilarity() {
+    assertEquals(1, TrigramUtils.similarity("john smith", "john smith"));
+    assertEquals(0, TrigramUtils.similarity("jo", "john smith"));
+    assertEquals(3, TrigramUtils.minSharedTrigrams(8));
+    assertEquals(1, TrigramUtils.minSharedTrigrams(1));
+    // A misspelled name ranks the intended name first and leaves out unrelated ones
+    List<String> names = List.of("mary jones", "joan smithers", "jon smyth", "john smith");
+    assertEquals(List.of("john smith", "joan smithers"),
+        TrigramUtils.rankBySimilarity("jhon smith", names, name -> name, 10));
+    assertEquals(List.of("john smith"),
+        TrigramUtils.rankBySimilarity("jhon smith", names, name -> name, 1));
+    assertEquals(List.of(), TrigramUtils.rankBySimilarity("zzz", names, name -> name, 10));
+  }
+
+  @Test
+  public void testNameSearch() {
+    // The rarest trigram gives the candidates, common ones are counted no further than it
+    List<Integer> limits = new ArrayList<>();
+    QueryWrapper<Student> wrapper = new QueryWrapper<>();
+    TrigramUtils.applyNameSearch(wrapper, "student_name_trigram", "student_id", "john",
+        (trigram, limit) -> {
+          limits.add(limit);
+          return trigram.equals("joh") ? 20 : limit;
+        });
+    assertEquals(List.of(TrigramUtils.MAX_TRIGRAM_CANDIDATES + 1, 20), limits);
+    assertTrue(wrapper.getSqlSegment().contains("FROM student_name_trigram WHERE trigram ="));
+    assertTrue(wrapper.getParamNameValuePairs().containsValue("joh"));
+    assertTrue(wrapper.getParamNameValuePairs().containsValue("%john%"));
+    // Trigrams held by too many names fall back to matching full_name
+    wrapper = new QueryWrapper<>();
+    TrigramUtils.applyNameSearch(wrapper, "student_name_trigram", "student_id", "john",
+        (trigram, limit) -> limit);
+    assertFalse(wrapper.getSqlSegment().contains("trigram"));
+    // A trigram held by no name stops the counting
+    limits.clear();
+    TrigramUtils.applyNameSearch(new QueryWrapper<>(), "student_name_trigram", "student_id",
+        "john", (trigram, limit) -> {
+          limits.add(limit);
+          return 0;
+        });
+    assertEquals(1, limits.size());
+    // Short queries have no trigram to count
+    wrapper = new QueryWrapper<>();
+    TrigramUtils.applyNameSearch(wrapper, "student_name_trigram", "student_id", "jo",
+        (trigram, limit) -> {
+          throw new AssertionError(trigram);
+        });
+    assertFalse(wrapper.getSqlSegment().contains("trigram"));
+    assertTrue(wrapper.getParamNameValuePairs().containsValue("%jo%"));
+  }
+
+  @Test
+  public void testSearchIndexPrefix() {
+    StudentMapper studentMapper = mock(StudentMapper.class);
+    StaffMapper staffMapper = mock(StaffMapper.class);
+    ModuleMapper moduleMapper = mock(ModuleMapper.class);
+    Student student = new Student().setId(1).setFirstName("Alice").setLastName("Smith")
+        .setUsername("asmith").setProgramOfStudy("Computer Science");
+    Staff staff = new Staff().setId(2).setFirstName("Alan").setLastName("Turing")
+        .setUsername("aturing").setDepartment("Computer Science").setTitle("Professor");
+    Module module = new Module("COMP0010", "Software Engineering", true, 15, 2);
+    when(studentMapper.selectList(any())).thenReturn(List.of(student));
+    when(staffMapper.selectList(any())).thenReturn(List.of(staff));
+    when(moduleMapper.selectList(any())).thenReturn(List.of(module));
+    SearchIndex searchIndex = new SearchIndex();
+    ReflectionTestUtils.setField(searchIndex, "studentMapper", studentMapper);
+    ReflectionTestUtils.setField(searchIndex, "staffMapper", staffMapper);
+    ReflectionTestUtils.setField(searchIndex, "moduleMapper", moduleMapper);
+    searchIndex.rebuild();
+
+    // A prefix of a first name finds the student, the staff and the module they lead
+    List<SearchDocument> results = searchIndex.search("al", 10);
+    assertEquals(List.of(SearchType.staff, SearchType.student, SearchType.module),
+        results.stream().map(SearchDocument::getType).toList());
+    assertEquals("Alan Turing", results.get(2).getSubtitle());
+
+    // Every word has to match, and ties fall back to the shorter, then smaller title
+    assertEquals(List.of("staff:2", "student:1"),
+        searchIndex.search("comp sci", 10).stream().map(SearchDocument::getKey).toList());
+    assertEquals(List.of("module:COMP0010"),
+        searchIndex.search("comp0010", 10).stream().map(SearchDocument::getKey).toList());
+    assertEquals(List.of("student:1"),
+        searchIndex.search("SMI", 10).stream().map(SearchDocument::getKey).toList());
+    assertEquals(1, searchIndex.search("al", 1).size());
+    assertTrue(searchIndex.search("bob", 10).isEmpty());
+    assertTrue(searchIndex.search(" - ", 10).isEmpty());
+
+    // A deleted student leaves the index once it is refreshed
+    when(studentMapper.selectList(any())).thenReturn(List.of());
+    searchIndex.refreshStudents(List.of(1));
+    assertEquals(List.of("staff:2", "module:COMP0010"),
+        searchIndex.search("al", 10).stream().map(SearchDocument::getKey).toList());
+  }
+
+  @Test
+  public void testFacetIndex() {
+    StudentMapper studentMapper = mock(StudentMapper.class);
+    StaffMapper staffMapper = mock(StaffMapper.class);
+    when(studentMapper.countPrograms()).thenReturn(List.of());
+    when(staffMapper.countDepartments()).thenReturn(
+        List.of(facetCount("Physics", 2), facetCount("Chemistry", 1)));
+    when(staffMapper.countTitles()).thenReturn(List.of(facetCount("Professor", 1)));
+    FacetIndex facetIndex = new FacetIndex();
+    ReflectionTestUtils.setField(facetIndex, "studentMapper", studentMapper);
+    ReflectionTestUtils.setField(facetIndex, "staffMapper", staffMapper);
+    facetIndex.run();
+    assertEquals(List.of("Chemistry", "Physics"), facetIndex.values(FacetType.department));
+    assertTrue(facetIndex.values(FacetType.program).isEmpty());
+
+    // Moving one of two staff keeps the old value, moving the last one removes it
+    facetIndex.change(FacetType.department, "Physics", "Biology");
+    assertEquals(List.of("Biology", "Chemistry", "Physics"),
+        facetIndex.values(FacetType.department));
+    facetIndex.change(FacetType.department, "Physics", "Chemistry");
+    assertEquals(List.of("Biology", "Chemistry"), facetIndex.values(FacetType.department));
+
+    // Deleting drops a value at zero, adding brings it back
+    facetIndex.change(FacetType.title, "Professor", null);
+    assertTrue(facetIndex.values(FacetType.title).isEmpty());
+    facetIndex.change(FacetType.title, null, "Professor");
+    facetIndex.change(FacetType.title, null, " ");
+    assertEquals(List.of("Professor"), facetIndex.values(FacetType.title));
+
+    // A reload replaces the counts of the facets it names
+    when(staffMapper.countDepartments()).thenReturn(List.of(facetCount("Physics", 1)));
+    facetIndex.reload(FacetType.department);
+    assertEquals(List.of("Physics"), facetIndex.values(FacetType.department));
+    assertEquals(List.of("Professor"), facetIndex.values(FacetType.title));
+  }
+
+  private static FacetCount facetCount(String name, long total) {
+    FacetCount facetCount = new FacetCount();
+    facetCount.setName(name);
+    facetCount.setTotal(total);
+    return facetCount;
+  }
+
+  @Test
+  public void testJwtCache() throws Exception {
+    Cache<?, ?> verifiedTokens = (Cache<?, ?>) ReflectionTestUtils.getField(JwtUtils.class,
+        "verifiedTokens");
+    String token = JwtUtils.generateJwtToken(1, AccountType.student, JwtType.access_token);
+    assertEquals(1, JwtUtils.getPayloadFromJwt(token).getAccountId());
+    assertTrue(verifiedTokens.asMap().containsKey(tokenHash(token)));
+    // Served from the cache
+    assertEquals(1, JwtUtils.getPayloadFromJwt(token).getAccountId());
+
+    // A tampered token misses the cache and fails verification every time
+    String[] parts = token.split("\\.");
+    Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    String claims = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+    String tampered = parts[0] + "." + encoder.encodeToString(claims.replace(
+        "\"accountId\":1", "\"accountId\":2").getBytes(StandardCharsets.UTF_8)) + "." + parts[2];
+    assertNotEquals(token, tampered);
+    for (int i = 0; i < 2; i++) {
+      assertEquals("Token Invalid",
+          assertThrows(ServerException.class, () -> JwtUtils.getPayloadFromJwt(tampered))
+              .getMessage());
+    }
+    assertFalse(verifiedTokens.asMap().containsKey(tokenHash(tampered)));
+
+    // Unsigned, malformed, blank and foreign tokens are invalid rather than server errors
+    SecretKey otherKey = Keys.hmacShaKeyFor(new byte[32]);
+    for (String invalid : List.of(Jwts.builder().subject("unsigned").compact(), "malformed",
+        " ", Jwts.builder().claims(new Payload(1, AccountType.admin, JwtType.access_token)
+            .toMap()).signWith(otherKey).compact())) {
+      assertEquals("Token Invalid",
+          assertThrows(ServerException.class, () -> JwtUtils.getPayloadFromJwt(invalid))
+              .getMessage());
+    }
+
+    // A cached token is rejected once it expires, the expiry has a precision of one second
+    SecretKey key = (SecretKey) ReflectionTestUtils.getField(JwtUtils.class, "key");
+    Date expiration = new Date((System.currentTimeMillis() / 1000 + 2) * 1000);
+    String expiring = Jwts.builder()
+        .claims(new Payload(3, AccountType.staff, JwtType.access_token).toMap())
+        .expiration(expiration).signWith(key).compact();
+    assertEquals(3, JwtUtils.getPayloadFromJwt(expiring).getAccountId());
+    assertTrue(verifiedTokens.asMap().containsKey(tokenHash(expiring)));
+    Thread.sleep(expiration.getTime() - System.currentTimeMillis() + 100);
+    assertEquals("Token Expired",
+        assertThrows(ServerException.class, () -> JwtUtils.getPayloadFromJwt(expiring))
+            .getMessage());
+    assertFalse(verifiedTokens.asMap().containsKey(tokenHash(expiring)));
+  }
+
+  private static Object tokenHash(String token) {
+    return ReflectionTestUtils.invokeMethod(JwtUtils.class, "hash", token);
+  }
+
+
+  @Test
+  public void testMysqlStreaming() throws Exception {
+    // The statements of other databases aren't loaded on H2, so parse the mappers as on MySQL
+    MybatisConfiguration configuration = new MybatisConfiguration();
+    configuration.setDatabaseId("mysql");
+    for (Resource resource : new PathMatchingResourcePatternResolver()
+        .getResources("classpath*:/mapper/*.xml")) {
+      try (InputStream inputStream = resource.getInputStream()) {
+        new XMLMapperBuilder(inputStream, configuration, resource.toString(),
+            configuration.getSqlFragments()).parse();
+      }
+    }
+    for (String statement : List.of("StudentMapper.export", "StudentMapper.listUsernames",
+        "StaffMapper.export", "StaffMapper.listUsernames", "ModuleMapper.export",
+        "ModuleMapper.listCodes", "RecordMapper.export", "RegistrationMapper.export",
+        "RegistrationMapper.listKeys")) {
+      MappedStatement mappedStatement = configuration.getMappedStatement(
+          "uk.ac.ucl.comp0010.mapper." + statement);
+      assertEquals(Integer.MIN_VALUE, mappedStatement.getFetchSize(), statement);
+      assertEquals(ResultSetType.FORWARD_ONLY, mappedStatement.getResultSetType(), statement);
+    }
+  }
+
+
+  @Test
+  public void testTransactionCompletion() {
+    List<String> ran = new ArrayList<>();
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      TransactionUtils.afterCommit(() -> ran.add("commit"));
+      TransactionUtils.afterCompletion(() -> ran.add("completion"));
+      assertTrue(ran.isEmpty());
+      // A rollback skips actions waiting for the commit, but not cache evictions
+      TransactionSynchronizationUtils.invokeAfterCompletion(
+          TransactionSynchronizationManager.getSynchronizations(),
+          TransactionSynchronization.STATUS_ROLLED_BACK);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    assertEquals(List.of("completion"), ran);
+    // Outside of a transaction both run at once
+    TransactionUtils.afterCommit(() -> ran.add("commit"));
+    TransactionUtils.afterCompletion(() -> ran.add("completion"));
+    assertEquals(List.of("completion", "commit", "completion"), ran);
+  }
+
 }